@@ -0,0 +1,510 @@
+package com.example.bench;
+
+import com.example.ExtractionCache;
+import com.example.FileUtils;
+import com.example.FontInventory;
+import com.example.FontPack;
+import com.example.JsoncEditor;
+import com.example.MemoryFontRegistry;
+import com.example.SettingsManager;
+import com.example.SettingsPatch;
+import com.example.WindowsFontBackend;
+import com.example.WorkspacePatcher;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Micro-benchmarks for the settings editor, font extraction, file copy, the
+ * font inventory, the workspace settings scan and the Windows font
+ * registration logic.
+ *
+ * Each benchmark is warmed up, then measured for a fixed time while recording
+ * the duration of every operation. Results (mean, percentiles, throughput) are
+ * printed as a table and written as JSON so runs can be compared.
+ *
+ * Usage: {@code Benchmarks [--out results.json] [--filter text] [--quick]}
+ * with the directory containing {@code Monocraft-font} on the classpath.
+ */
+public class Benchmarks {
+    private static final String[] FONT_RESOURCES = {
+        "/Monocraft-font/Monocraft-nerd-fonts-patched.ttc",
+        "/Monocraft-font/Monocraft-ttf-otf/other-formats/Monocraft.ttf"
+    };
+    private static final int[] SETTINGS_SIZES = {1024, 64 * 1024, 1024 * 1024, 10 * 1024 * 1024};
+
+    /** Prevents the JIT from eliminating benchmarked work. */
+    private static volatile long sink;
+
+    /**
+     * An operation to measure; returns any value derived from its work.
+     */
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Measured statistics for one benchmark.
+     */
+    private static final class Stats {
+        final String name;
+        final Map<String, Object> params;
+        final long bytesPerOp;
+        final long[] samples;
+
+        Stats(String name, Map<String, Object> params, long bytesPerOp, long[] samples) {
+            this.name = name;
+            this.params = params;
+            this.bytesPerOp = bytesPerOp;
+            this.samples = samples;
+            Arrays.sort(samples);
+        }
+
+        double mean() {
+            double sum = 0;
+            for (long s : samples) sum += s;
+            return sum / samples.length;
+        }
+
+        long percentile(double p) {
+            int i = (int) Math.ceil(p * samples.length) - 1;
+            return samples[Math.max(0, Math.min(samples.length - 1, i))];
+        }
+
+        double opsPerSecond() {
+            return 1e9 / mean();
+        }
+
+        double mbPerSecond() {
+            return bytesPerOp * opsPerSecond() / (1024.0 * 1024.0);
+        }
+    }
+
+    private final long warmupNanos;
+    private final long measureNanos;
+    private final String filter;
+    private final List<Stats> results = new ArrayList<>();
+
+    private Benchmarks(long warmupNanos, long measureNanos, String filter) {
+        this.warmupNanos = warmupNanos;
+        this.measureNanos = measureNanos;
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path out = null;
+        String filter = null;
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out": out = Paths.get(args[++i]); break;
+                case "--filter": filter = args[++i]; break;
+                case "--quick": quick = true; break;
+                default:
+                    System.err.println("Usage: Benchmarks [--out results.json] [--filter text] [--quick]");
+                    System.exit(2);
+            }
+        }
+        long warmup = TimeUnit.MILLISECONDS.toNanos(quick ? 200 : 1000);
+        long measure = TimeUnit.MILLISECONDS.toNanos(quick ? 500 : 2000);
+        Benchmarks b = new Benchmarks(warmup, measure, filter);
+
+        Path work = Files.createTempDirectory("monocraft-bench-");
+        try {
+            b.settingsBenchmarks();
+            b.extractionBenchmarks(work);
+            b.packBenchmarks(work);
+            b.copyBenchmarks(work);
+            b.registryBenchmarks(work);
+            b.inventoryBenchmarks(work);
+            b.workspaceBenchmarks(work);
+        } finally {
+            deleteRecursively(work);
+        }
+
+        b.printTable(System.out);
+        if (out != null) {
+            if (out.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(out.toAbsolutePath().getParent());
+            }
+            Files.writeString(out, b.toJson(), StandardCharsets.UTF_8);
+            System.out.println("Results written to " + out);
+        }
+    }
+
+    /**
+     * Settings patches on generated files of 1 KB to 10 MB, with and without
+     * comments and with and without the managed keys already present.
+     */
+    private void settingsBenchmarks() throws Exception {
+        SettingsPatch add = SettingsManager.createPatch(true);
+        SettingsPatch remove = SettingsManager.createPatch(false);
+        for (int size : SETTINGS_SIZES) {
+            for (boolean comments : new boolean[]{false, true}) {
+                for (boolean existing : new boolean[]{false, true}) {
+                    String text = generateSettings(size, comments, existing);
+                    long bytes = text.getBytes(StandardCharsets.UTF_8).length;
+                    Map<String, Object> params = new LinkedHashMap<>();
+                    params.put("size", formatSize(size));
+                    params.put("comments", comments);
+                    params.put("existingKeys", existing);
+                    run("settings.parse", params, bytes, () -> JsoncEditor.parse(text));
+                    run("settings.add", params, bytes, () -> add.apply(text).getText());
+                    if (existing) {
+                        run("settings.remove", params, bytes, () -> remove.apply(text).getText());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Extraction of the bundled fonts: cold (empty cache, full inflate and
+     * hash) and warm (cache hit).
+     */
+    private void extractionBenchmarks(Path work) throws Exception {
+        for (String resource : FONT_RESOURCES) {
+            if (Benchmarks.class.getResource(resource) == null) {
+                System.err.println("Skipping extraction of " + resource + " (not on classpath)");
+                continue;
+            }
+            String name = Paths.get(resource).getFileName().toString();
+            long bytes = resourceSize(resource);
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("font", name);
+
+            Path coldRoot = work.resolve("cold-cache");
+            run("extract.cold", params, bytes, () -> {
+                deleteRecursively(coldRoot);
+                return new ExtractionCache(coldRoot).extract(resource);
+            });
+
+            ExtractionCache warm = new ExtractionCache(work.resolve("warm-cache"));
+            warm.extract(resource);
+            run("extract.warm", params, bytes, () -> warm.extract(resource));
+        }
+    }
+
+    /**
+     * Extraction of single fonts from a font pack built from
+     * {@code resources/fonts/Monocraft-font}, cold and warm.
+     */
+    private void packBenchmarks(Path work) throws Exception {
+        Path fontsDir = Paths.get("resources", "fonts", "Monocraft-font");
+        if (!Files.isDirectory(fontsDir)) {
+            System.err.println("Skipping font pack benchmarks (" + fontsDir + " not found)");
+            return;
+        }
+        Path packFile = work.resolve("fonts.pack");
+        FontPack.write(fontsDir, packFile);
+        FontPack pack = FontPack.open(packFile);
+        for (String resource : FONT_RESOURCES) {
+            String name = resource.substring("/Monocraft-font/".length());
+            FontPack.Entry entry = pack.getEntry(name);
+            if (entry == null) {
+                continue;
+            }
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("font", Paths.get(name).getFileName().toString());
+
+            Path coldRoot = work.resolve("pack-cold-cache");
+            run("extract.pack.cold", params, entry.getLength(), () -> {
+                deleteRecursively(coldRoot);
+                return new ExtractionCache(coldRoot).extract(pack, name);
+            });
+
+            ExtractionCache warm = new ExtractionCache(work.resolve("pack-warm-cache"));
+            warm.extract(pack, name);
+            run("extract.pack.warm", params, entry.getLength(), () -> warm.extract(pack, name));
+        }
+    }
+
+    /**
+     * File copy throughput with the real font files, plus the skip path for
+     * an identical destination.
+     */
+    private void copyBenchmarks(Path work) throws Exception {
+        ExtractionCache cache = new ExtractionCache(work.resolve("copy-source"));
+        for (String resource : FONT_RESOURCES) {
+            Path src = Benchmarks.class.getResource(resource) != null ? cache.extract(resource) : null;
+            if (src == null) {
+                continue;
+            }
+            long bytes = Files.size(src);
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("font", src.getFileName().toString());
+            Path dest = work.resolve("copy-dest-" + src.getFileName());
+            run("copy.full", params, bytes, () -> {
+                FileUtils.copyFile(src, dest);
+                return dest;
+            });
+            FileUtils.copyFile(src, dest);
+            run("copy.ifChanged.identical", params, bytes, () -> FileUtils.copyIfChanged(src, dest));
+        }
+    }
+
+    /**
+     * Windows install and uninstall of the real fonts into a temporary
+     * folder, with the registry kept in memory next to 200 other fonts'
+     * values. Every cycle must take one registry read and two transactions,
+     * however many fonts there are.
+     */
+    private void registryBenchmarks(Path work) throws Exception {
+        ExtractionCache cache = new ExtractionCache(work.resolve("registry-source"));
+        List<Path> fonts = new ArrayList<>();
+        List<String> fileNames = new ArrayList<>();
+        long bytes = 0;
+        for (String resource : FONT_RESOURCES) {
+            if (Benchmarks.class.getResource(resource) != null) {
+                Path font = cache.extract(resource);
+                fonts.add(font);
+                fileNames.add(font.getFileName().toString());
+                bytes += Files.size(font);
+            }
+        }
+        if (fonts.isEmpty()) {
+            System.err.println("Skipping registry benchmarks (no fonts on classpath)");
+            return;
+        }
+        MemoryFontRegistry registry = new MemoryFontRegistry();
+        for (int i = 0; i < 200; i++) {
+            registry.put("Other Font " + i + " (TrueType)", "C:\\Fonts\\other" + i + ".ttf");
+        }
+        Path fontsDir = work.resolve("registry-fonts");
+        WindowsFontBackend backend = new WindowsFontBackend(fontsDir, registry);
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("fonts", fonts.size());
+        run("windows.installUninstall", params, bytes, () -> {
+            backend.register(fonts);
+            backend.unregister(fileNames);
+            deleteRecursively(fontsDir);
+            return registry.getApplyCount();
+        });
+        if (registry.getApplyCount() != 2 * registry.getReadCount()) {
+            throw new IllegalStateException("Expected two transactions per read, got "
+                + registry.getApplyCount() + " for " + registry.getReadCount());
+        }
+    }
+
+    /**
+     * Font inventory of a folder with 500 fonts: a cold refresh parses every
+     * file, a warm one only lists the folder against the stored index.
+     */
+    private void inventoryBenchmarks(Path work) throws Exception {
+        String resource = FONT_RESOURCES[FONT_RESOURCES.length - 1];
+        if (Benchmarks.class.getResource(resource) == null) {
+            System.err.println("Skipping inventory benchmarks (" + resource + " not on classpath)");
+            return;
+        }
+        Path font = new ExtractionCache(work.resolve("inventory-source")).extract(resource);
+        Path fontsDir = work.resolve("inventory-fonts");
+        Files.createDirectories(fontsDir);
+        for (int i = 0; i < 500; i++) {
+            Files.copy(font, fontsDir.resolve("font" + i + ".ttf"));
+        }
+        Path index = work.resolve("font-index.tsv");
+        List<Path> dirs = Arrays.asList(fontsDir);
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("fonts", 500);
+        run("inventory.refresh.cold", params, 0, () -> {
+            Files.deleteIfExists(index);
+            return new FontInventory(index, dirs).refresh().getParsed();
+        });
+        new FontInventory(index, dirs).refresh();
+        run("inventory.refresh.warm", params, 0, () -> new FontInventory(index, dirs).refresh().getParsed());
+    }
+
+    /**
+     * Dry run of the workspace settings patcher over a generated source tree
+     * of 40 000 files with 100 workspace settings files, plus a
+     * {@code node_modules} folder of 20 000 files that must be skipped.
+     */
+    private void workspaceBenchmarks(Path work) throws Exception {
+        Path tree = work.resolve("workspace-tree");
+        for (int p = 0; p < 20; p++) {
+            Path pkg = tree.resolve("pkg" + p);
+            for (int m = 0; m < 5; m++) {
+                Path module = pkg.resolve("module" + m);
+                Files.createDirectories(module.resolve(".vscode"));
+                Files.write(module.resolve(".vscode").resolve("settings.json"),
+                    "{\n    \"editor.tabSize\": 4\n}\n".getBytes(StandardCharsets.UTF_8));
+                for (int d = 0; d < 4; d++) {
+                    Path src = Files.createDirectories(module.resolve("src" + d));
+                    for (int f = 0; f < 100; f++) {
+                        Files.createFile(src.resolve("File" + f + ".java"));
+                    }
+                }
+            }
+            Path deps = Files.createDirectories(pkg.resolve("node_modules").resolve("dep"));
+            for (int f = 0; f < 1000; f++) {
+                Files.createFile(deps.resolve("index" + f + ".js"));
+            }
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("files", 40000);
+        params.put("targets", 100);
+        run("workspace.scan", params, 0, () -> {
+            WorkspacePatcher.Report report = new WorkspacePatcher(tree).dryRun(true).run(true);
+            if (report.getSettings().getTargets().size() != 100) {
+                throw new IllegalStateException("Found " + report.getSettings().getTargets().size() + " files");
+            }
+            return report;
+        });
+    }
+
+    /**
+     * Warms up and measures one operation, recording per-operation times.
+     */
+    private void run(String name, Map<String, Object> params, long bytesPerOp, Operation op) throws Exception {
+        String id = name + params;
+        if (filter != null && !id.contains(filter)) {
+            return;
+        }
+        long end = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < end) {
+            consume(op.run());
+        }
+
+        long[] samples = new long[1024];
+        int count = 0;
+        end = System.nanoTime() + measureNanos;
+        // Always take a few samples, even for operations slower than the window
+        while (System.nanoTime() < end || count < 5) {
+            long t0 = System.nanoTime();
+            Object result = op.run();
+            long t1 = System.nanoTime();
+            consume(result);
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = t1 - t0;
+        }
+        Stats stats = new Stats(name, params, bytesPerOp, Arrays.copyOf(samples, count));
+        results.add(stats);
+        System.err.printf(Locale.ROOT, "%-28s %-55s %12.1f us%n", name, params, stats.mean() / 1000);
+    }
+
+    private static void consume(Object o) {
+        sink += o != null ? o.hashCode() : 0;
+    }
+
+    /**
+     * Generates a settings.json of roughly the given size.
+     */
+    static String generateSettings(int targetBytes, boolean comments, boolean existingKeys) {
+        StringBuilder sb = new StringBuilder(targetBytes + 256);
+        sb.append("{\n");
+        if (comments) {
+            sb.append("    /* Generated settings for benchmarking.\n       \"editor.fontFamily\" in a comment must be ignored. */\n");
+        }
+        int i = 0;
+        boolean keysWritten = !existingKeys;
+        while (sb.length() < targetBytes) {
+            if (!keysWritten && sb.length() >= targetBytes / 2) {
+                sb.append("    \"editor.fontFamily\": \"Consolas, 'Courier New', monospace\",\n");
+                sb.append("    \"editor.fontLigatures\": false,\n");
+                sb.append("    \"terminal.integrated.fontFamily\": \"Consolas\",\n");
+                keysWritten = true;
+            }
+            if (comments && i % 4 == 0) {
+                sb.append("    // setting group ").append(i / 4).append('\n');
+            }
+            switch (i % 3) {
+                case 0:
+                    sb.append("    \"workbench.generated.").append(i).append("\": \"value ").append(i).append("\",\n");
+                    break;
+                case 1:
+                    sb.append("    \"[lang").append(i).append("]\": { \"editor.tabSize\": ").append(i % 8)
+                      .append(", \"editor.fontFamily\": \"Fira Code\" },\n");
+                    break;
+                default:
+                    sb.append("    \"files.exclude.").append(i).append("\": [\"**/.git\", \"**/node_modules\"],\n");
+            }
+            i++;
+        }
+        if (!keysWritten) {
+            sb.append("    \"editor.fontFamily\": \"Consolas\",\n");
+        }
+        sb.append("    \"workbench.last\": true\n}\n");
+        return sb.toString();
+    }
+
+    private static long resourceSize(String resource) throws IOException {
+        long size = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (java.io.InputStream in = Benchmarks.class.getResourceAsStream(resource)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) size += n;
+        }
+        return size;
+    }
+
+    private static String formatSize(int bytes) {
+        return bytes >= 1024 * 1024 ? (bytes / (1024 * 1024)) + "MB" : (bytes / 1024) + "KB";
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException ignored) {
+                }
+            });
+        }
+    }
+
+    private void printTable(PrintStream out) {
+        out.printf(Locale.ROOT, "%n%-28s %-55s %8s %12s %12s %12s %10s%n",
+            "Benchmark", "Params", "Samples", "Mean us", "p50 us", "p99 us", "MB/s");
+        for (Stats s : results) {
+            out.printf(Locale.ROOT, "%-28s %-55s %8d %12.1f %12.1f %12.1f %10.1f%n",
+                s.name, s.params, s.samples.length, s.mean() / 1000,
+                s.percentile(0.50) / 1000.0, s.percentile(0.99) / 1000.0, s.mbPerSecond());
+        }
+    }
+
+    private String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"timestamp\": ").append(JsoncEditor.quote(java.time.Instant.now().toString()))
+          .append(",\n  \"java\": ").append(JsoncEditor.quote(System.getProperty("java.version")))
+          .append(",\n  \"os\": ").append(JsoncEditor.quote(System.getProperty("os.name") + " " + System.getProperty("os.arch")))
+          .append(",\n  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Stats s = results.get(i);
+            sb.append(i > 0 ? "," : "").append("\n    {\"benchmark\": ").append(JsoncEditor.quote(s.name))
+              .append(", \"params\": {");
+            int j = 0;
+            for (Map.Entry<String, Object> p : s.params.entrySet()) {
+                sb.append(j++ > 0 ? ", " : "").append(JsoncEditor.quote(p.getKey())).append(": ");
+                sb.append(p.getValue() instanceof String ? JsoncEditor.quote((String) p.getValue()) : p.getValue());
+            }
+            sb.append("}, \"samples\": ").append(s.samples.length)
+              .append(String.format(Locale.ROOT, ", \"meanNs\": %.0f", s.mean()))
+              .append(", \"p50Ns\": ").append(s.percentile(0.50))
+              .append(", \"p90Ns\": ").append(s.percentile(0.90))
+              .append(", \"p99Ns\": ").append(s.percentile(0.99))
+              .append(", \"maxNs\": ").append(s.samples[s.samples.length - 1])
+              .append(String.format(Locale.ROOT, ", \"opsPerSec\": %.2f", s.opsPerSecond()))
+              .append(String.format(Locale.ROOT, ", \"mbPerSec\": %.2f", s.mbPerSecond()))
+              .append('}');
+        }
+        return sb.append("\n  ]\n}\n").toString();
+    }
+}
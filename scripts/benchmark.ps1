@@ -0,0 +1,57 @@
+# Monocraft Font Tool - Benchmarks
+#
+# Compiles the application and the benchmarks in bench/ and runs them.
+# Results are printed as a table and written as JSON to build\bench\ so
+# runs before and after a change can be compared.
+#
+# Requirements:
+# - JDK 17 or higher
+#
+# Run with: .\scripts\benchmark.ps1
+#           .\scripts\benchmark.ps1 -Filter settings.add -Quick
+
+param(
+    [string]$Filter = '',
+    [switch]$Quick
+)
+
+$ErrorActionPreference = 'Stop'
+
+$scriptDir = Split-Path -Parent $MyInvocation.MyCommand.Definition
+$projectRoot = Split-Path -Parent $scriptDir
+$buildDir = Join-Path $projectRoot 'build'
+$classDir = Join-Path $buildDir 'bench-classes'
+$resultDir = Join-Path $buildDir 'bench'
+$fontsRoot = Join-Path $projectRoot 'resources\fonts'
+
+if (!(Test-Path $classDir)) {
+    New-Item -ItemType Directory -Path $classDir -Force | Out-Null
+}
+if (!(Test-Path $resultDir)) {
+    New-Item -ItemType Directory -Path $resultDir -Force | Out-Null
+}
+
+Write-Host '==> Compiling application and benchmarks...'
+$javaFiles = @(Get-ChildItem -Path (Join-Path $projectRoot 'src\com\example') -Filter '*.java' | ForEach-Object { $_.FullName })
+$javaFiles += Get-ChildItem -Path (Join-Path $projectRoot 'bench') -Filter '*.java' -Recurse | ForEach-Object { $_.FullName }
+javac -d $classDir $javaFiles
+if ($LASTEXITCODE -ne 0) {
+    Write-Error 'Java compilation failed.'
+    exit 1
+}
+
+$timestamp = Get-Date -Format 'yyyyMMdd-HHmmss'
+$resultFile = Join-Path $resultDir "results-$timestamp.json"
+$benchArgs = @('--out', $resultFile)
+if ($Filter) { $benchArgs += @('--filter', $Filter) }
+if ($Quick) { $benchArgs += '--quick' }
+
+Write-Host '==> Running benchmarks...'
+# Fixed heap so results do not depend on the machine's default sizing
+java -Xms512m -Xmx512m -cp "$classDir;$fontsRoot" com.example.bench.Benchmarks @benchArgs
+if ($LASTEXITCODE -ne 0) {
+    Write-Error 'Benchmarks failed.'
+    exit 1
+}
+Write-Host "[OK] Results: $resultFile" -ForegroundColor Green
+exit 0
@@ -47,15 +47,19 @@ if (!(Test-Path $manifest)) {
     # Create a default manifest if not present
     Set-Content -Path $manifest -Value "Main-Class: com.example.MonocraftFontInstaller`r`n"
 }
-# If Monocraft-font exists, include it in the jar so fonts are bundled
+jar cfm $jarPath $manifest -C $classDir com
+if ($LASTEXITCODE -ne 0) { Write-Error 'JAR creation failed.'; exit 1 }
+
+# If Monocraft-font exists, pack it into one font pack and add it to the jar
+# uncompressed, so a single font can be read without inflating the others
 $fontsPath = Join-Path $projectRoot 'resources\fonts\Monocraft-font'
 if (Test-Path $fontsPath) {
-  Write-Host 'Including Monocraft-font folder in JAR'
-  jar cfm $jarPath $manifest -C $classDir com -C (Join-Path $projectRoot 'resources\fonts') Monocraft-font
-} else {
-  jar cfm $jarPath $manifest -C $classDir com
+  Write-Host 'Bundling Monocraft-font folder as font pack'
+  java -cp $classDir com.example.FontPack $fontsPath (Join-Path $buildDir 'Monocraft-font.pack')
+  if ($LASTEXITCODE -ne 0) { Write-Error 'Font pack creation failed.'; exit 1 }
+  jar --update --no-compress --file $jarPath -C $buildDir Monocraft-font.pack
+  if ($LASTEXITCODE -ne 0) { Write-Error 'Adding font pack to JAR failed.'; exit 1 }
 }
-if ($LASTEXITCODE -ne 0) { Write-Error 'JAR creation failed.'; exit 1 }
 
 # 3. Create Launch4j config (always regenerate to ensure latest settings)
 $iconPath = Join-Path $projectRoot 'app-icon.ico'
@@ -58,19 +58,28 @@ if (!(Test-Path $manifest)) {
     Set-Content -Path $manifest -Value "Main-Class: com.example.MonocraftFontInstaller`r`n"
 }
 
-# Include fonts in the jar if available
-$fontsPath = Join-Path $projectRoot 'resources\fonts\Monocraft-font'
-if (Test-Path $fontsPath) {
-    Write-Host 'Including Monocraft-font folder in JAR' -ForegroundColor Gray
-    jar cfm $jarPath $manifest -C $classDir com -C (Join-Path $projectRoot 'resources\fonts') Monocraft-font
-} else {
-    jar cfm $jarPath $manifest -C $classDir com
-}
-
+jar cfm $jarPath $manifest -C $classDir com
 if ($LASTEXITCODE -ne 0) { 
     Write-Error 'JAR creation failed.' 
     exit 1 
 }
+
+# Include fonts in the jar if available, as one font pack stored uncompressed
+# so a single font can be read without inflating the others
+$fontsPath = Join-Path $projectRoot 'resources\fonts\Monocraft-font'
+if (Test-Path $fontsPath) {
+    Write-Host 'Bundling Monocraft-font folder as font pack' -ForegroundColor Gray
+    java -cp $classDir com.example.FontPack $fontsPath (Join-Path $buildDir 'Monocraft-font.pack')
+    if ($LASTEXITCODE -ne 0) {
+        Write-Error 'Font pack creation failed.'
+        exit 1
+    }
+    jar --update --no-compress --file $jarPath -C $buildDir Monocraft-font.pack
+    if ($LASTEXITCODE -ne 0) {
+        Write-Error 'Adding font pack to JAR failed.'
+        exit 1
+    }
+}
 Write-Host '[OK] JAR created: $jarName' -ForegroundColor Green
 
 # 3. Call package.ps1 to create native package with jpackage
@@ -132,7 +132,9 @@ if ($UseCustomRuntime -and $jlink) {
         'java.logging',
         'java.xml',
         'java.prefs',
-        'jdk.crypto.ec'
+        'jdk.crypto.ec',
+        'jdk.jfr',
+        'jdk.unsupported'
     )
     
     $moduleList = $modules -join ','
@@ -0,0 +1,47 @@
+# Monocraft Font Tool - Tests
+#
+# Compiles the application and the tests in test/ and runs them. Tests use
+# a small built-in harness (test\com\example\Tests.java), so no libraries
+# are needed.
+#
+# Requirements:
+# - JDK 17 or higher
+#
+# Run with: .\scripts\test.ps1
+#           .\scripts\test.ps1 -Filter SettingsPatchTest
+
+param(
+    [string]$Filter = ''
+)
+
+$ErrorActionPreference = 'Stop'
+
+$scriptDir = Split-Path -Parent $MyInvocation.MyCommand.Definition
+$projectRoot = Split-Path -Parent $scriptDir
+$classDir = Join-Path $projectRoot 'build\test-classes'
+$fontsRoot = Join-Path $projectRoot 'resources\fonts'
+
+if (!(Test-Path $classDir)) {
+    New-Item -ItemType Directory -Path $classDir -Force | Out-Null
+}
+
+Write-Host '==> Compiling application and tests...'
+$javaFiles = @(Get-ChildItem -Path (Join-Path $projectRoot 'src\com\example') -Filter '*.java' | ForEach-Object { $_.FullName })
+$javaFiles += Get-ChildItem -Path (Join-Path $projectRoot 'test') -Filter '*.java' -Recurse | ForEach-Object { $_.FullName }
+javac -d $classDir $javaFiles
+if ($LASTEXITCODE -ne 0) {
+    Write-Error 'Java compilation failed.'
+    exit 1
+}
+
+$testArgs = @()
+if ($Filter) { $testArgs += @('--filter', $Filter) }
+
+Write-Host '==> Running tests...'
+java -cp "$classDir;$fontsRoot" com.example.Tests @testArgs
+if ($LASTEXITCODE -ne 0) {
+    Write-Error 'Tests failed.'
+    exit 1
+}
+Write-Host '[OK] All tests passed' -ForegroundColor Green
+exit 0
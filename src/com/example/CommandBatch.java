@@ -0,0 +1,286 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Runs a list of shell commands as a single script in one shell process.
+ *
+ * Starting PowerShell costs several hundred milliseconds, so all registration
+ * steps are collected here and executed together instead of one process per
+ * command. Each command is wrapped with marker lines so its exit status,
+ * output and duration can still be reported individually. The markers carry
+ * a random token chosen per run, so output that merely looks like a marker
+ * is kept as output.
+ */
+public class CommandBatch {
+    private static final String BEGIN_MARKER = "@@monocraft:begin:";
+    private static final String END_MARKER = "@@monocraft:end:";
+
+    /**
+     * Describes how to run a batch script with a particular shell.
+     */
+    public interface Shell {
+        /** File extension of the generated script, including the dot. */
+        String extension();
+
+        /** Text written at the top of the script. */
+        String header();
+
+        /**
+         * Wraps one command so it prints the begin marker, runs, and prints
+         * the end marker followed by its exit code, all on a single line.
+         */
+        String wrap(String beginMarker, String endMarker, String command);
+
+        /** Command line that executes the given script file. */
+        List<String> command(Path script);
+    }
+
+    /** Windows PowerShell; the script is written as UTF-8 with a BOM. */
+    public static final Shell POWERSHELL = new Shell() {
+        @Override
+        public String extension() {
+            return ".ps1";
+        }
+
+        @Override
+        public String header() {
+            return "\uFEFF$ErrorActionPreference = 'Stop'\n" +
+                "$ProgressPreference = 'SilentlyContinue'\n" +
+                "[Console]::OutputEncoding = [System.Text.Encoding]::UTF8\n";
+        }
+
+        @Override
+        public String wrap(String beginMarker, String endMarker, String command) {
+            return "Write-Output '" + beginMarker + "'; $global:LASTEXITCODE = 0; " +
+                "try { " + command + " } catch { Write-Output $_.Exception.Message; $global:LASTEXITCODE = 1 }; " +
+                "Write-Output \"" + endMarker + "$LASTEXITCODE\"";
+        }
+
+        @Override
+        public List<String> command(Path script) {
+            return Arrays.asList("powershell", "-NoProfile", "-NonInteractive",
+                "-ExecutionPolicy", "Bypass", "-File", script.toString());
+        }
+    };
+
+    /** POSIX bash; each command runs in a subshell so it cannot end the script. */
+    public static final Shell BASH = new Shell() {
+        @Override
+        public String extension() {
+            return ".sh";
+        }
+
+        @Override
+        public String header() {
+            return "";
+        }
+
+        @Override
+        public String wrap(String beginMarker, String endMarker, String command) {
+            return "echo '" + beginMarker + "'; ( " + command + " ) 2>&1; echo \"" + endMarker + "$?\"";
+        }
+
+        @Override
+        public List<String> command(Path script) {
+            return Arrays.asList("bash", script.toString());
+        }
+    };
+
+    /**
+     * Exit status, output and duration of a single command in the batch.
+     */
+    public static class CommandResult {
+        /** Exit code reported when a command never ran. */
+        public static final int NOT_RUN = -1;
+
+        private final String label;
+        private final int exitCode;
+        private final long durationMillis;
+        private final String output;
+
+        CommandResult(String label, int exitCode, long durationMillis, String output) {
+            this.label = label;
+            this.exitCode = exitCode;
+            this.durationMillis = durationMillis;
+            this.output = output;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+
+        public boolean succeeded() {
+            return exitCode == 0;
+        }
+
+        @Override
+        public String toString() {
+            return label + ": exit " + exitCode + " in " + durationMillis + " ms";
+        }
+    }
+
+    private final Shell shell;
+    private final List<String> labels = new ArrayList<>();
+    private final List<String> commands = new ArrayList<>();
+
+    /**
+     * Creates an empty batch for the given shell.
+     */
+    public CommandBatch(Shell shell) {
+        this.shell = shell;
+    }
+
+    /**
+     * Appends a command to the batch.
+     *
+     * @param label Name used when reporting the command's result
+     * @param command Single-line command in the shell's syntax
+     * @return This batch
+     */
+    public CommandBatch add(String label, String command) {
+        if (command.indexOf('\n') >= 0 || command.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Batch commands must fit on one line: " + label);
+        }
+        labels.add(label);
+        commands.add(command);
+        return this;
+    }
+
+    /**
+     * Returns true if no commands have been added.
+     */
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    /**
+     * Runs all commands in one shell process and waits for it to finish.
+     * Commands after one that fails still run. The shell is killed if it
+     * runs past the {@link ProcessRunner} timeout.
+     *
+     * @return One result per command, in the order they were added
+     * @throws IOException If the shell cannot be started, times out or the wait is interrupted
+     */
+    public List<CommandResult> run() throws IOException {
+        if (commands.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String token = UUID.randomUUID().toString().replace("-", "");
+        String begin = BEGIN_MARKER + token + ":";
+        String end = END_MARKER + token + ":";
+        StringBuilder script = new StringBuilder(shell.header());
+        for (int i = 0; i < commands.size(); i++) {
+            script.append(shell.wrap(begin + i, end + i + ":", commands.get(i))).append('\n');
+        }
+
+        Path scriptFile = Files.createTempFile("monocraft-batch-", shell.extension());
+        try {
+            Files.writeString(scriptFile, script, StandardCharsets.UTF_8);
+            CommandResult[] results = new CommandResult[commands.size()];
+            MarkerParser parser = new MarkerParser(results, begin, end);
+            ProcessRunner.Result process = new ProcessRunner(shell.command(scriptFile))
+                .mergeErrors(true)
+                .onOutputLine(parser::accept)
+                .run();
+            if (process.isTimedOut()) {
+                throw new IOException(shell.command(scriptFile).get(0) + " did not finish within "
+                    + process.getDurationMillis() / 1000 + " s and was stopped");
+            }
+
+            List<CommandResult> list = new ArrayList<>(results.length);
+            for (int i = 0; i < results.length; i++) {
+                list.add(results[i] != null ? results[i]
+                    : new CommandResult(labels.get(i), CommandResult.NOT_RUN, 0, ""));
+            }
+            return list;
+        } finally {
+            Files.deleteIfExists(scriptFile);
+        }
+    }
+
+    /**
+     * Splits the shell's output into per-command results at the marker
+     * lines, timing each command as its output arrives.
+     */
+    private final class MarkerParser {
+        private final CommandResult[] results;
+        private final String beginMarker;
+        private final String endMarker;
+        private StringBuilder output;
+        private int index = -1;
+        private long started;
+
+        MarkerParser(CommandResult[] results, String beginMarker, String endMarker) {
+            this.results = results;
+            this.beginMarker = beginMarker;
+            this.endMarker = endMarker;
+        }
+
+        void accept(String line) {
+            if (output == null) {
+                int next = parseIndex(line, beginMarker);
+                if (next >= 0 && next < results.length) {
+                    index = next;
+                    output = new StringBuilder();
+                    started = System.nanoTime();
+                }
+            } else if (line.startsWith(endMarker + index + ":")) {
+                int exitCode = parseExitCode(line.substring((endMarker + index + ":").length()));
+                long elapsed = (System.nanoTime() - started) / 1_000_000;
+                results[index] = new CommandResult(labels.get(index), exitCode, elapsed, output.toString());
+                output = null;
+            } else {
+                output.append(line).append('\n');
+            }
+        }
+
+        private int parseIndex(String line, String marker) {
+            if (!line.startsWith(marker)) {
+                return -1;
+            }
+            try {
+                return Integer.parseInt(line.substring(marker.length()).trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Quotes a value as a single-quoted PowerShell string literal.
+     */
+    public static String quotePowerShell(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    private static int parseExitCode(String s) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            // PowerShell prints an empty string when no native command ran
+            return s.trim().isEmpty() ? 0 : 1;
+        }
+    }
+}
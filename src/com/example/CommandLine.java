@@ -0,0 +1,579 @@
+package com.example;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Headless command-line mode for scripted use (e.g. login scripts).
+ *
+ * Only touches {@link FontInstaller} and {@link SettingsManager}, so no AWT or
+ * Swing classes are loaded. Each command prints one JSON object per line to
+ * stdout and the process exit code reflects the worst outcome.
+ */
+public class CommandLine {
+    /** All commands succeeded. */
+    public static final int EXIT_OK = 0;
+    /** A command completed but the desired state was not reached. */
+    public static final int EXIT_INCOMPLETE = 1;
+    /** The arguments could not be understood. */
+    public static final int EXIT_USAGE = 2;
+    /** A command failed with an error. */
+    public static final int EXIT_ERROR = 3;
+    /** Longest wait for a background font cache refresh before exiting. */
+    private static final long REFRESH_WAIT_MILLIS = 30_000;
+
+    private static final String USAGE =
+        "Usage: MonocraftFontInstaller [options] <command>...\n" +
+        "\n" +
+        "Commands (run in the order given):\n" +
+        "  --install          Install the fonts for the current user\n" +
+        "  --uninstall        Uninstall the fonts for the current user\n" +
+        "  --add-settings     Add Monocraft font settings to VS Code\n" +
+        "  --remove-settings  Remove Monocraft font settings from VS Code\n" +
+        "  --verify           Check whether the fonts are installed\n" +
+        "  --status           Show the installed fonts and settings recorded in the journal\n" +
+        "  --inventory        List Monocraft fonts installed under any file name\n" +
+        "  --fleet            Copy the fonts into and add the settings to every profile given\n" +
+        "                     with --profiles or --homes (needs admin/root rights)\n" +
+        "  --add-workspace-settings     Add the font settings to every .vscode/settings.json\n" +
+        "                     and *.code-workspace file below --workspaces DIR\n" +
+        "  --remove-workspace-settings  Remove them from those files again\n" +
+        "  --help             Show this help\n" +
+        "\n" +
+        "Options:\n" +
+        "  --force            Reinstall even if the fonts are already installed\n" +
+        "  --weights LIST     Weights to install/verify, comma separated or 'all':\n" +
+        "                     extralight, light, regular, semibold, bold, black\n" +
+        "  --formats LIST     Formats to install/verify: ttf, otf (default ttf)\n" +
+        "  --italics          Include the italic style of each weight\n" +
+        "  --family           Same as --weights all --italics\n" +
+        "  --split-collections  Install the Nerd Font collection as separate .ttf faces\n" +
+        "  --metrics          Print a per-phase timing summary after the commands\n" +
+        "  --profiles DIR     For --fleet: every user folder below DIR, e.g. C:\\Users or /home\n" +
+        "  --homes LIST       For --fleet: home directories separated by '" + File.pathSeparator + "'\n" +
+        "  --parallel N       For --fleet: profiles processed at once (default " + FleetInstaller.DEFAULT_PARALLELISM + ");\n" +
+        "                     for workspace settings: folders and files (default " + WorkspacePatcher.DEFAULT_PARALLELISM + ")\n" +
+        "  --workspaces DIR   For workspace settings: the source tree to search\n" +
+        "  --exclude LIST     For workspace settings: more folder names (or globs) to skip,\n" +
+        "                     comma separated; " + String.join(", ", WorkspacePatcher.DEFAULT_EXCLUDES) + " are always skipped\n" +
+        "  --dry-run          For workspace settings: report the changes without writing\n" +
+        "\n" +
+        "Exit codes: 0 ok, 1 incomplete, 2 usage error, 3 error";
+
+    /**
+     * Returns true if the arguments request command-line mode.
+     */
+    public static boolean isRequested(String[] args) {
+        return args != null && args.length > 0;
+    }
+
+    /**
+     * Runs the given commands and returns the process exit code.
+     *
+     * @param args Command-line arguments
+     * @param out Stream receiving one JSON result per command
+     * @param err Stream receiving usage messages
+     * @return The exit code
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        boolean force = false;
+        boolean italics = false;
+        boolean splitCollections = false;
+        boolean metrics = false;
+        boolean dryRun = false;
+        Path profilesRoot = null;
+        Path workspacesRoot = null;
+        List<Path> homes = new ArrayList<>();
+        List<String> excludes = new ArrayList<>();
+        int parallel = 0;
+        Set<FontManifest.Weight> weights = null;
+        Set<FontManifest.Format> formats = null;
+        List<String> commands = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--force":
+                    force = true;
+                    break;
+                case "--family":
+                    weights = EnumSet.allOf(FontManifest.Weight.class);
+                    italics = true;
+                    break;
+                case "--italics":
+                    italics = true;
+                    break;
+                case "--split-collections":
+                    splitCollections = true;
+                    break;
+                case "--metrics":
+                    metrics = true;
+                    break;
+                case "--dry-run":
+                    dryRun = true;
+                    break;
+                case "--profiles":
+                case "--workspaces":
+                case "--exclude":
+                case "--homes":
+                case "--parallel":
+                case "--weights":
+                case "--formats":
+                    if (i + 1 >= args.length) {
+                        err.println("Missing value for " + arg);
+                        err.println(USAGE);
+                        return EXIT_USAGE;
+                    }
+                    try {
+                        if (arg.equals("--profiles")) {
+                            profilesRoot = Paths.get(args[++i]);
+                        } else if (arg.equals("--workspaces")) {
+                            workspacesRoot = Paths.get(args[++i]);
+                        } else if (arg.equals("--exclude")) {
+                            for (String pattern : args[++i].split(",")) {
+                                if (!pattern.trim().isEmpty()) excludes.add(pattern.trim());
+                            }
+                        } else if (arg.equals("--homes")) {
+                            for (String home : args[++i].split(File.pathSeparator)) {
+                                if (!home.trim().isEmpty()) homes.add(Paths.get(home.trim()));
+                            }
+                        } else if (arg.equals("--parallel")) {
+                            parallel = parseParallel(args[++i]);
+                        } else if (arg.equals("--weights")) {
+                            weights = parseWeights(args[++i]);
+                        } else {
+                            formats = parseFormats(args[++i]);
+                        }
+                    } catch (IllegalArgumentException ex) {
+                        err.println(ex.getMessage());
+                        err.println(USAGE);
+                        return EXIT_USAGE;
+                    }
+                    break;
+                case "--help":
+                case "-h":
+                case "/?":
+                    out.println(USAGE);
+                    return EXIT_OK;
+                case "--install":
+                case "--uninstall":
+                case "--add-settings":
+                case "--remove-settings":
+                case "--verify":
+                case "--status":
+                case "--inventory":
+                case "--fleet":
+                case "--add-workspace-settings":
+                case "--remove-workspace-settings":
+                    commands.add(arg.substring(2));
+                    break;
+                default:
+                    err.println("Unknown argument: " + arg);
+                    err.println(USAGE);
+                    return EXIT_USAGE;
+            }
+        }
+        if (commands.isEmpty()) {
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (commands.contains("fleet") && profilesRoot == null && homes.isEmpty()) {
+            err.println("--fleet needs --profiles or --homes");
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if ((commands.contains("add-workspace-settings") || commands.contains("remove-workspace-settings"))
+                && workspacesRoot == null) {
+            err.println("Workspace settings need --workspaces");
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        FontManifest.Selection selection = null;
+        if (weights != null || formats != null || italics) {
+            selection = new FontManifest.Selection(true,
+                weights != null ? weights : EnumSet.of(FontManifest.Weight.REGULAR),
+                formats != null ? formats : EnumSet.of(FontManifest.Format.TTF),
+                italics);
+        }
+        if (splitCollections) {
+            selection = (selection != null ? selection : FontManifest.Selection.DEFAULT).withSplitCollections(true);
+        }
+
+        Metrics.setCollecting(metrics);
+        long runStart = System.nanoTime();
+        int exitCode = recover(out);
+        for (String command : commands) {
+            long start = System.nanoTime();
+            String status;
+            int code;
+            String message = null;
+            String details = null;
+            try {
+                switch (command) {
+                    case "install": {
+                        FontInstaller.Result result = selection != null
+                            ? FontInstaller.installFonts(force, selection)
+                            : FontInstaller.installFonts(force);
+                        status = result.name();
+                        code = result == FontInstaller.Result.UNVERIFIED ? EXIT_INCOMPLETE : EXIT_OK;
+                        break;
+                    }
+                    case "uninstall":
+                        FontInstaller.uninstallFonts();
+                        status = "UNINSTALLED";
+                        code = EXIT_OK;
+                        break;
+                    case "add-settings":
+                    case "remove-settings": {
+                        SettingsManager.Report report = SettingsManager.modifySettings(command.startsWith("add"));
+                        SettingsManager.Result result = report.getResult();
+                        status = result.name();
+                        details = settingsDetails(report);
+                        if (result == SettingsManager.Result.NOT_FOUND) {
+                            message = "No settings.json found under " + report.getConfigRoot();
+                            code = EXIT_INCOMPLETE;
+                        } else if (result == SettingsManager.Result.FAILED) {
+                            message = report.getFailures().size() + " settings file(s) could not be modified";
+                            code = EXIT_ERROR;
+                        } else {
+                            code = EXIT_OK;
+                        }
+                        break;
+                    }
+                    case "fleet": {
+                        List<Path> targets = new ArrayList<>(homes);
+                        if (profilesRoot != null) {
+                            targets.addAll(FleetInstaller.findProfiles(profilesRoot));
+                        }
+                        FleetInstaller.Report report = FleetInstaller.provision(targets,
+                            selection != null ? selection : FontManifest.Selection.DEFAULT,
+                            parallel > 0 ? parallel : FleetInstaller.DEFAULT_PARALLELISM);
+                        FleetInstaller.Result result = report.getResult();
+                        status = result.name();
+                        details = fleetDetails(report);
+                        if (result == FleetInstaller.Result.NOT_FOUND) {
+                            message = "No profiles found";
+                        } else if (result == FleetInstaller.Result.PARTIAL) {
+                            message = report.getFailures().size() + " of " + report.getProfiles().size()
+                                + " profiles failed";
+                        }
+                        code = result == FleetInstaller.Result.PARTIAL || result == FleetInstaller.Result.NOT_FOUND
+                            ? EXIT_INCOMPLETE : EXIT_OK;
+                        break;
+                    }
+                    case "add-workspace-settings":
+                    case "remove-workspace-settings": {
+                        WorkspacePatcher patcher = new WorkspacePatcher(workspacesRoot)
+                            .parallelism(parallel > 0 ? parallel : WorkspacePatcher.DEFAULT_PARALLELISM)
+                            .dryRun(dryRun);
+                        for (String pattern : excludes) {
+                            patcher.exclude(pattern);
+                        }
+                        WorkspacePatcher.Report report = patcher.run(command.startsWith("add"));
+                        SettingsManager.Result result = report.getSettings().getResult();
+                        status = result.name();
+                        details = workspaceDetails(report);
+                        if (result == SettingsManager.Result.NOT_FOUND) {
+                            message = "No workspace settings found under " + workspacesRoot;
+                            code = EXIT_INCOMPLETE;
+                        } else if (result == SettingsManager.Result.FAILED) {
+                            message = report.getSettings().getFailures().size()
+                                + " workspace settings file(s) could not be modified";
+                            code = EXIT_ERROR;
+                        } else {
+                            code = EXIT_OK;
+                        }
+                        if (report.isDryRun() && message == null) {
+                            message = "Dry run, nothing written";
+                        }
+                        break;
+                    }
+                    case "inventory": {
+                        FontInventory inventory = FontInventory.getDefault();
+                        FontInventory.RefreshStats stats = inventory.refresh();
+                        List<FontInventory.Entry> fonts = inventory.findFamily("Monocraft");
+                        status = fonts.isEmpty() ? "NOT_INSTALLED" : "INSTALLED";
+                        details = inventoryDetails(fonts, stats);
+                        code = EXIT_OK;
+                        break;
+                    }
+                    case "status": {
+                        InstallJournal journal = InstallJournal.getDefault();
+                        List<InstallJournal.Record> fonts = journal.getInstalledFonts();
+                        status = fonts.isEmpty() ? "NOT_INSTALLED" : "INSTALLED";
+                        details = journalDetails(fonts, journal.getSettingsTargets());
+                        code = EXIT_OK;
+                        break;
+                    }
+                    default: {
+                        List<FontInstaller.FontCheck> checks = FontInstaller.checkInstallation(
+                            selection != null ? selection : FontManifest.Selection.DEFAULT);
+                        boolean installed = FontInstaller.isInstalled(checks);
+                        status = installed ? "INSTALLED" : "NOT_INSTALLED";
+                        details = fontDetails(checks);
+                        code = installed ? EXIT_OK : EXIT_INCOMPLETE;
+                        break;
+                    }
+                }
+            } catch (Exception ex) {
+                status = "ERROR";
+                message = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+                code = EXIT_ERROR;
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            out.println(toJson(command, status, elapsedMillis, message, details));
+            exitCode = Math.max(exitCode, code);
+        }
+        // Let a font cache refresh finish so the fonts are usable on exit
+        FontInstaller.awaitBackgroundWork(REFRESH_WAIT_MILLIS);
+        if (metrics) {
+            long elapsedMillis = (System.nanoTime() - runStart) / 1_000_000;
+            out.println(toJson("metrics", "OK", elapsedMillis, null, Metrics.toJson()));
+        }
+        return exitCode;
+    }
+
+    /**
+     * Recovers an operation left unfinished by a previous run and reports it
+     * as a "recover" result. Returns the exit code contribution.
+     */
+    private static int recover(PrintStream out) {
+        long start = System.nanoTime();
+        try {
+            String message = FontInstaller.recoverInterruptedOperation();
+            if (message == null) {
+                return EXIT_OK;
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            out.println(toJson("recover", "RECOVERED", elapsedMillis, message, null));
+            return EXIT_OK;
+        } catch (Exception ex) {
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            out.println(toJson("recover", "ERROR", elapsedMillis,
+                ex.getMessage() != null ? ex.getMessage() : ex.toString(), null));
+            return EXIT_ERROR;
+        }
+    }
+
+    private static int parseParallel(String value) {
+        try {
+            int n = Integer.parseInt(value.trim());
+            if (n >= 1) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("--parallel needs a positive number: " + value);
+    }
+
+    private static Set<FontManifest.Weight> parseWeights(String list) {
+        if (list.equalsIgnoreCase("all")) {
+            return EnumSet.allOf(FontManifest.Weight.class);
+        }
+        Set<FontManifest.Weight> weights = EnumSet.noneOf(FontManifest.Weight.class);
+        for (String name : list.split(",")) {
+            weights.add(FontManifest.Weight.parse(name.trim()));
+        }
+        return weights;
+    }
+
+    private static Set<FontManifest.Format> parseFormats(String list) {
+        Set<FontManifest.Format> formats = EnumSet.noneOf(FontManifest.Format.class);
+        for (String name : list.split(",")) {
+            String key = name.trim().toLowerCase(Locale.ROOT);
+            if (key.equals("ttf")) {
+                formats.add(FontManifest.Format.TTF);
+            } else if (key.equals("otf")) {
+                formats.add(FontManifest.Format.OTF);
+            } else {
+                throw new IllegalArgumentException("Unknown font format: " + name);
+            }
+        }
+        return formats;
+    }
+
+    /**
+     * Formats a single command result as a one-line JSON object.
+     */
+    private static String toJson(String command, String status, long elapsedMillis, String message, String details) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"command\":").append(JsoncEditor.quote(command))
+          .append(",\"status\":").append(JsoncEditor.quote(status.toLowerCase()))
+          .append(",\"elapsedMillis\":").append(elapsedMillis);
+        if (message != null) {
+            sb.append(",\"message\":").append(JsoncEditor.quote(message));
+        }
+        if (details != null) {
+            sb.append(',').append(details);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Formats the per-profile fleet results as JSON "profiles" and
+     * "summary" members.
+     */
+    private static String fleetDetails(FleetInstaller.Report report) {
+        StringBuilder sb = new StringBuilder("\"profiles\":[");
+        List<FleetInstaller.ProfileResult> profiles = report.getProfiles();
+        long slowest = 0;
+        int changed = 0;
+        for (int i = 0; i < profiles.size(); i++) {
+            FleetInstaller.ProfileResult p = profiles.get(i);
+            SettingsManager.Report settings = p.getSettings();
+            slowest = Math.max(slowest, p.getDurationMillis());
+            if (p.isChanged()) changed++;
+            sb.append(i > 0 ? "," : "")
+              .append("{\"home\":").append(JsoncEditor.quote(p.getHome().toString()))
+              .append(",\"status\":").append(JsoncEditor.quote(p.isFailed() ? "failed" : p.isChanged() ? "updated" : "unchanged"))
+              .append(",\"fontsCopied\":").append(p.getFontsCopied())
+              .append(",\"fontsUnchanged\":").append(p.getFontsUnchanged())
+              .append(",\"settings\":").append(JsoncEditor.quote(settings.getResult().name().toLowerCase()))
+              .append(",\"settingsFiles\":").append(settings.getTargets().size())
+              .append(",\"elapsedMillis\":").append(p.getDurationMillis());
+            String failure = FleetInstaller.describeFailure(p);
+            if (failure != null) {
+                sb.append(",\"message\":").append(JsoncEditor.quote(failure));
+            }
+            sb.append('}');
+        }
+        return sb.append("],\"summary\":{\"profiles\":").append(profiles.size())
+            .append(",\"updated\":").append(changed)
+            .append(",\"failed\":").append(report.getFailures().size())
+            .append(",\"slowestMillis\":").append(slowest)
+            .append(",\"totalMillis\":").append(report.getDurationMillis())
+            .append('}').toString();
+    }
+
+    /**
+     * Formats the workspace settings results as JSON "targets", "dryRun" and
+     * "scan" members; a dry run also lists each change.
+     */
+    private static String workspaceDetails(WorkspacePatcher.Report report) {
+        StringBuilder sb = new StringBuilder(settingsDetails(report.getSettings()));
+        if (report.isDryRun()) {
+            sb.append(",\"diff\":[");
+            boolean first = true;
+            for (SettingsManager.TargetResult t : report.getSettings().getTargets()) {
+                for (SettingsPatch.Change c : t.getChanges()) {
+                    sb.append(first ? "" : ",").append(JsoncEditor.quote(t.getPath() + ": " + c));
+                    first = false;
+                }
+            }
+            sb.append(']');
+        }
+        return sb.append(",\"dryRun\":").append(report.isDryRun())
+            .append(",\"scan\":{\"directories\":").append(report.getDirectories())
+            .append(",\"excluded\":").append(report.getExcluded())
+            .append(",\"files\":").append(report.getFiles())
+            .append(",\"unreadable\":").append(report.getUnreadable())
+            .append(",\"scanMillis\":").append(report.getScanMillis())
+            .append(",\"totalMillis\":").append(report.getDurationMillis())
+            .append('}').toString();
+    }
+
+    /**
+     * Formats the indexed Monocraft files as JSON "fonts" and "index" members.
+     */
+    private static String inventoryDetails(List<FontInventory.Entry> fonts, FontInventory.RefreshStats stats) {
+        StringBuilder sb = new StringBuilder("\"fonts\":[");
+        for (int i = 0; i < fonts.size(); i++) {
+            FontInventory.Entry e = fonts.get(i);
+            sb.append(i > 0 ? "," : "")
+              .append("{\"file\":").append(JsoncEditor.quote(e.getPath().toString()))
+              .append(",\"size\":").append(e.getSize())
+              .append(",\"faces\":[");
+            List<FontInventory.Face> faces = e.getFaces();
+            for (int j = 0; j < faces.size(); j++) {
+                FontInventory.Face f = faces.get(j);
+                sb.append(j > 0 ? "," : "")
+                  .append("{\"family\":").append(JsoncEditor.quote(String.valueOf(f.getFamily())))
+                  .append(",\"style\":").append(JsoncEditor.quote(String.valueOf(f.getSubfamily())))
+                  .append(",\"version\":").append(JsoncEditor.quote(String.valueOf(f.getVersion())))
+                  .append('}');
+            }
+            sb.append("]}");
+        }
+        return sb.append("],\"index\":{\"files\":").append(stats.getFiles())
+            .append(",\"parsed\":").append(stats.getParsed())
+            .append(",\"removed\":").append(stats.getRemoved())
+            .append(",\"elapsedMillis\":").append(stats.getDurationMillis())
+            .append('}').toString();
+    }
+
+    /**
+     * Formats the per-font verification results as a JSON "fonts" member.
+     */
+    private static String fontDetails(List<FontInstaller.FontCheck> checks) {
+        StringBuilder sb = new StringBuilder("\"fonts\":[");
+        for (int i = 0; i < checks.size(); i++) {
+            FontInstaller.FontCheck c = checks.get(i);
+            sb.append(i > 0 ? "," : "")
+              .append("{\"file\":").append(JsoncEditor.quote(c.getFileName()))
+              .append(",\"status\":").append(JsoncEditor.quote(c.getStatus().name().toLowerCase()));
+            if (c.getDetail() != null) {
+                sb.append(",\"message\":").append(JsoncEditor.quote(c.getDetail()));
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Formats the journaled state as JSON "fonts" and "settings" members.
+     */
+    private static String journalDetails(List<InstallJournal.Record> fonts, List<InstallJournal.Record> settings) {
+        StringBuilder sb = new StringBuilder("\"fonts\":[");
+        for (int i = 0; i < fonts.size(); i++) {
+            InstallJournal.Record r = fonts.get(i);
+            sb.append(i > 0 ? "," : "")
+              .append("{\"file\":").append(JsoncEditor.quote(r.getName()))
+              .append(",\"version\":").append(JsoncEditor.quote(r.getInfo()))
+              .append(",\"sha256\":").append(JsoncEditor.quote(r.getSha256()))
+              .append(",\"installedAt\":").append(r.getTime())
+              .append('}');
+        }
+        sb.append("],\"settings\":[");
+        for (int i = 0; i < settings.size(); i++) {
+            InstallJournal.Record r = settings.get(i);
+            sb.append(i > 0 ? "," : "")
+              .append("{\"path\":").append(JsoncEditor.quote(r.getName()))
+              .append(",\"fonts\":").append(JsoncEditor.quote(r.getInfo().equals("add") ? "added" : "removed"))
+              .append(",\"modifiedAt\":").append(r.getTime())
+              .append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Formats the per-file settings results as a JSON "targets" member.
+     */
+    private static String settingsDetails(SettingsManager.Report report) {
+        StringBuilder sb = new StringBuilder("\"targets\":[");
+        List<SettingsManager.TargetResult> targets = report.getTargets();
+        for (int i = 0; i < targets.size(); i++) {
+            SettingsManager.TargetResult t = targets.get(i);
+            sb.append(i > 0 ? "," : "")
+              .append("{\"path\":").append(JsoncEditor.quote(t.getPath().toString()))
+              .append(",\"status\":").append(JsoncEditor.quote(t.getResult().name().toLowerCase()))
+              .append(",\"changed\":[");
+            List<SettingsPatch.Change> changes = t.getChanges();
+            for (int j = 0; j < changes.size(); j++) {
+                sb.append(j > 0 ? "," : "").append(JsoncEditor.quote(changes.get(j).getKey()));
+            }
+            sb.append(']');
+            if (t.getError() != null) {
+                sb.append(",\"message\":").append(JsoncEditor.quote(String.valueOf(t.getError().getMessage())));
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,375 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+
+/**
+ * Persistent, content-addressed cache for font files extracted from the JAR.
+ *
+ * Each extracted file is stored as {@code <root>/<sha256>/<file name>} so the
+ * original file name is preserved for installation. An index maps each
+ * resource to a fingerprint of its JAR entry (size, CRC, time), which can be
+ * read from the JAR directory without inflating anything; when the fingerprint
+ * still matches, the cached copy is reused and no extraction happens at all.
+ * Entries of a {@link FontPack} carry their hash in the pack index and are
+ * looked up directly by it.
+ */
+public class ExtractionCache {
+    private static final String INDEX_FILE = "index.properties";
+    private static final String TEMP_PREFIX = ".tmp-";
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final long MAX_TOTAL_BYTES = 64L * 1024 * 1024;
+
+    private final Path root;
+    private Properties index;
+
+    /**
+     * Creates a cache rooted at the given directory.
+     */
+    public ExtractionCache(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the cache in the application's data directory.
+     */
+    public static ExtractionCache getDefault() {
+        return new ExtractionCache(SystemUtils.getAppDataDir().resolve("cache"));
+    }
+
+    /**
+     * Returns the cache's root directory.
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the SHA-256 of a file extracted into this cache, known from its
+     * location, so it need not be read again.
+     *
+     * @param file A file returned by {@code extract}
+     * @return The content hash, or null if the file is not a cache entry
+     */
+    public String getSha256(Path file) {
+        Path dir = file.getParent();
+        if (dir == null || !root.equals(dir.getParent())) {
+            return null;
+        }
+        String name = dir.getFileName().toString();
+        return name.matches("[0-9a-f]{64}") ? name : null;
+    }
+
+    /**
+     * Returns a file with the contents of a classpath resource, extracting it
+     * only if no valid cached copy exists.
+     *
+     * Safe to call from several threads: only the index lookup and update
+     * are serialized, so different resources are extracted concurrently.
+     *
+     * @param resource Absolute resource name, e.g. {@code /Monocraft-font/Monocraft.ttf}
+     * @return The cached file, or null if the resource does not exist
+     * @throws IOException If the resource cannot be extracted
+     */
+    public Path extract(String resource) throws IOException {
+        try (Metrics.Phase phase = Metrics.begin("extract", resource)) {
+            Path extracted = extractResource(resource, phase);
+            if (extracted == null) {
+                phase.done(0, "not found");
+            }
+            return extracted;
+        }
+    }
+
+    private Path extractResource(String resource, Metrics.Phase phase) throws IOException {
+        URL url = ExtractionCache.class.getResource(resource);
+        if (url == null) {
+            return null;
+        }
+        String fileName = Paths.get(resource).getFileName().toString();
+        // A plain file (development builds) is fingerprinted without a
+        // URLConnection, whose first use loads the MIME type tables
+        Path file = toFile(url);
+        URLConnection connection = file == null ? url.openConnection() : null;
+        String fingerprint = file != null ? fingerprint(file) : fingerprint(connection);
+
+        // Reuse the cached copy if the resource is unchanged
+        Path cached = lookup(resource, fingerprint, fileName);
+        if (cached != null) {
+            touch(cached);
+            phase.done(0, "cached");
+            return cached;
+        }
+
+        // Extract to a temp file while hashing, then move into place atomically
+        Files.createDirectories(root);
+        Path tmp = Files.createTempFile(root, TEMP_PREFIX, ".part");
+        String sha256;
+        long size;
+        try {
+            try (InputStream raw = file != null ? Files.newInputStream(file) : connection.getInputStream();
+                 DigestInputStream in = new DigestInputStream(raw, FileUtils.newSha256())) {
+                size = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                sha256 = FileUtils.toHex(in.getMessageDigest().digest());
+            }
+
+            Path dir = root.resolve(sha256);
+            Path target = dir.resolve(fileName);
+            if (Files.isRegularFile(target) && Files.size(target) == size) {
+                // Same content already cached (e.g. index was lost)
+                Files.delete(tmp);
+                touch(target);
+            } else {
+                Files.createDirectories(dir);
+                FileUtils.moveAtomically(tmp, target);
+            }
+
+            record(resource, fingerprint + "|" + sha256 + "|" + size);
+            phase.done(size, "extracted");
+            return target;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Returns a file with the contents of a font pack entry. The pack index
+     * already holds the entry's SHA-256, so a cached copy is found without
+     * reading the pack or the index file; otherwise only that entry is
+     * inflated, and its hash is checked against the pack index.
+     *
+     * @param pack The font pack
+     * @param name Entry name, e.g. {@code Monocraft-ttf-otf/other-formats/Monocraft.ttf}
+     * @return The cached file, or null if the pack has no such entry
+     * @throws IOException If the entry cannot be extracted or is corrupt
+     */
+    public Path extract(FontPack pack, String name) throws IOException {
+        try (Metrics.Phase phase = Metrics.begin("extract", name)) {
+            FontPack.Entry entry = pack.getEntry(name);
+            if (entry == null) {
+                phase.done(0, "not found");
+                return null;
+            }
+            return extractEntry(pack, entry, phase);
+        }
+    }
+
+    private Path extractEntry(FontPack pack, FontPack.Entry entry, Metrics.Phase phase) throws IOException {
+        String name = entry.getName();
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        Path dir = root.resolve(entry.getSha256());
+        Path target = dir.resolve(fileName);
+        if (Files.isRegularFile(target) && Files.size(target) == entry.getLength()) {
+            touch(target);
+            phase.done(0, "cached");
+            return target;
+        }
+
+        Files.createDirectories(root);
+        Path tmp = Files.createTempFile(root, TEMP_PREFIX, ".part");
+        try {
+            String sha256;
+            try (InputStream raw = pack.openEntry(name);
+                 DigestInputStream in = new DigestInputStream(raw, FileUtils.newSha256())) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                sha256 = FileUtils.toHex(in.getMessageDigest().digest());
+            }
+            if (!sha256.equals(entry.getSha256())) {
+                throw new IOException("Font pack entry " + name + " is corrupt");
+            }
+            Files.createDirectories(dir);
+            FileUtils.moveAtomically(tmp, target);
+            phase.done(entry.getLength(), "extracted");
+            return target;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private synchronized Path lookup(String resource, String fingerprint, String fileName) throws IOException {
+        String[] entry = splitEntry(loadIndex().getProperty(resource));
+        if (entry != null && entry[0].equals(fingerprint)) {
+            Path cached = root.resolve(entry[1]).resolve(fileName);
+            if (Files.isRegularFile(cached) && Files.size(cached) == Long.parseLong(entry[2])) {
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void record(String resource, String value) throws IOException {
+        loadIndex().setProperty(resource, value);
+        saveIndex();
+    }
+
+    /**
+     * Deletes cache entries not used for 30 days, then the least recently
+     * used entries until the cache is below 64 MB. Leftover temp files from
+     * interrupted extractions are removed as well.
+     */
+    public synchronized void evict() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                if (name.startsWith(TEMP_PREFIX)) {
+                    if (now - Files.getLastModifiedTime(p).toMillis() > TimeUnit.HOURS.toMillis(1)) {
+                        Files.deleteIfExists(p);
+                    }
+                } else if (Files.isDirectory(p)) {
+                    entries.add(p);
+                }
+            }
+        } catch (IOException e) {
+            return;
+        }
+
+        // Oldest first
+        entries.sort(Comparator.comparingLong(ExtractionCache::lastUsed));
+        long total = 0;
+        for (Path e : entries) {
+            total += sizeOf(e);
+        }
+        for (Path e : entries) {
+            boolean stale = now - lastUsed(e) > MAX_AGE_MILLIS;
+            if (!stale && total <= MAX_TOTAL_BYTES) {
+                break;
+            }
+            long size = sizeOf(e);
+            if (deleteEntry(e)) {
+                total -= size;
+            }
+        }
+    }
+
+    private static String fingerprint(URLConnection connection) throws IOException {
+        if (connection instanceof JarURLConnection) {
+            JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+            return "jar:" + entry.getSize() + ":" + entry.getCrc() + ":" + entry.getTime();
+        }
+        return "url:" + connection.getContentLengthLong() + ":" + connection.getLastModified();
+    }
+
+    /**
+     * Fingerprints a file the way a {@code file:} URLConnection would, so
+     * existing index entries stay valid.
+     */
+    private static String fingerprint(Path file) throws IOException {
+        return "url:" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    /**
+     * Returns the file behind a {@code file:} URL, or null for other URLs.
+     */
+    private static Path toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String[] splitEntry(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split("\\|");
+        return parts.length == 3 ? parts : null;
+    }
+
+    private Properties loadIndex() {
+        if (index == null) {
+            index = new Properties();
+            Path file = root.resolve(INDEX_FILE);
+            if (Files.isRegularFile(file)) {
+                try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    index.load(r);
+                } catch (IOException | IllegalArgumentException e) {
+                    // A corrupt index only costs a re-extraction
+                    index.clear();
+                }
+            }
+        }
+        return index;
+    }
+
+    private void saveIndex() throws IOException {
+        Path tmp = Files.createTempFile(root, TEMP_PREFIX, ".properties");
+        try {
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                index.store(w, "Monocraft extraction cache");
+            }
+            FileUtils.moveAtomically(tmp, root.resolve(INDEX_FILE));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+            Files.setLastModifiedTime(file, now);
+            Files.setLastModifiedTime(file.getParent(), now);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static long lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long sizeOf(Path entry) {
+        long size = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(entry)) {
+            for (Path p : stream) {
+                size += Files.size(p);
+            }
+        } catch (IOException ignored) {
+        }
+        return size;
+    }
+
+    private static boolean deleteEntry(Path entry) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(entry)) {
+            for (Path p : stream) {
+                Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(entry);
+            return true;
+        } catch (IOException e) {
+            // Likely in use; try again next time
+            return false;
+        }
+    }
+}
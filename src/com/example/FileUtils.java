@@ -1,40 +1,419 @@
 package com.example;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 /**
  * File utility methods.
  */
 public class FileUtils {
     
+    /** Size of the buffer each thread copies files through. */
+    private static final int TRANSFER_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * One direct buffer per thread, reused for every copy on that thread, so
+     * memory use does not depend on the size or number of files.
+     */
+    private static final ThreadLocal<ByteBuffer> TRANSFER_BUFFER =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE));
+
     /**
-     * Copies a file from source to destination with retry logic for files in use.
+     * Copies a file from source to destination in a single pass, hashing the
+     * bytes as they are written.
+     * 
+     * The data goes to a temp file next to the destination that is then
+     * renamed over it, so readers such as the font cache never see a
+     * truncated font and a full disk leaves the old copy intact. The file is
+     * not forced to disk; after a power loss the install journal and
+     * {@code --verify} catch a damaged copy. If the destination is in use
+     * the rename is retried once.
      * 
      * @param src Source file path
      * @param dest Destination file path
+     * @return The SHA-256 of the bytes written, as lowercase hexadecimal
      * @throws IOException If copy fails
      */
-    public static void copyFile(Path src, Path dest) throws IOException {
-        // Try to delete the destination first if it exists and is in use
-        if (Files.exists(dest)) {
+    public static String copyFile(Path src, Path dest) throws IOException {
+        try (Metrics.Phase phase = Metrics.begin("copy", dest.getFileName().toString())) {
+            Path tmp = dest.toAbsolutePath().getParent().resolve(
+                "." + dest.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                MessageDigest digest = newSha256();
+                ByteBuffer buffer = TRANSFER_BUFFER.get();
+                long bytes = 0;
+                // CREATE_NEW rather than createTempFile, which would make the font private to this user
+                try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+                    buffer.clear();
+                    while (in.read(buffer) != -1) {
+                        buffer.flip();
+                        bytes += buffer.remaining();
+                        digest.update(buffer);
+                        buffer.rewind();
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                }
+                boolean retried = replaceWithRetry(tmp, dest);
+                phase.done(bytes, retried ? "copied after retry" : "copied");
+                return toHex(digest.digest());
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * Renames a file over the destination, retrying once if the destination
+     * is in use.
+     * 
+     * @return true if the rename had to be retried
+     */
+    private static boolean replaceWithRetry(Path tmp, Path dest) throws IOException {
+        try {
+            moveAtomically(tmp, dest);
+            return false;
+        } catch (IOException e) {
+            // If the rename fails, wait a moment and retry
             try {
-                Files.delete(dest);
-            } catch (IOException e) {
-                // If delete fails, try to wait a moment and retry
+                Thread.sleep(100);
+                moveAtomically(tmp, dest);
+                return true;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (IOException e2) {
+                throw new IOException("Cannot overwrite " + dest.getFileName() + 
+                    " - the file may be in use. Please close any applications using this font and try again.", e2);
+            }
+        }
+    }
+
+    /**
+     * Copies a file only if the destination is missing or differs from it.
+     * An identical destination is left untouched, so fonts that are already
+     * installed (and possibly in use) are never deleted or rewritten.
+     * 
+     * @param src Source file path
+     * @param dest Destination file path
+     * @return true if the file was copied, false if it was already identical
+     * @throws IOException If comparison or copy fails
+     */
+    public static boolean copyIfChanged(Path src, Path dest) throws IOException {
+        if (sameContent(src, dest)) {
+            return false;
+        }
+        copyFile(src, dest);
+        return true;
+    }
+
+    /**
+     * Returns true if both files exist and have the same size and SHA-256.
+     * The cheap size check runs first; files are only hashed if sizes match.
+     */
+    public static boolean sameContent(Path a, Path b) throws IOException {
+        if (!Files.isRegularFile(a) || !Files.isRegularFile(b)) {
+            return false;
+        }
+        if (Files.size(a) != Files.size(b)) {
+            return false;
+        }
+        return sha256(a).equals(sha256(b));
+    }
+
+    /**
+     * Computes the SHA-256 of a file, streaming it through the thread's
+     * transfer buffer.
+     * 
+     * @return The digest as lowercase hexadecimal
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = TRANSFER_BUFFER.get();
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Replaces a file's content atomically: the data is written to a temp file
+     * in the same directory, flushed to disk and then renamed over the target,
+     * so readers never observe a partially written file. The new file keeps
+     * the target's POSIX permissions and, where the process may set it, its
+     * owner.
+     * 
+     * @param target File to write
+     * @param data New content
+     * @throws IOException If writing or renaming fails
+     */
+    public static void writeAtomically(Path target, byte[] data) throws IOException {
+        writeAtomically(target, data, () -> true);
+    }
+
+    /**
+     * Like {@link #writeAtomically(Path, byte[])}, but checks a condition after
+     * the temp file is on disk and immediately before the rename. If the
+     * condition is false the target is left untouched.
+     * 
+     * @param target File to write
+     * @param data New content
+     * @param beforeReplace Condition that must still hold to replace the target
+     * @return true if the target was replaced
+     * @throws IOException If writing or renaming fails
+     */
+    public static boolean writeAtomically(Path target, byte[] data, BooleanSupplier beforeReplace) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path tmp = dir.resolve("." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            // CREATE_NEW rather than createTempFile, which would make the file private to this user
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            copyAccess(target, tmp);
+            if (!beforeReplace.getAsBoolean()) {
+                return false;
+            }
+            moveAtomically(tmp, target);
+            return true;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Gives a file the POSIX permissions and owner of another one, so a
+     * replacement does not change who may read it. Nothing is copied if the
+     * source does not exist or the file system has no POSIX permissions; an
+     * owner the process may not assign is skipped.
+     */
+    private static void copyAccess(Path from, Path to) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        if (view == null || !Files.exists(from)) {
+            return;
+        }
+        PosixFileAttributes attributes = view.readAttributes();
+        Files.setPosixFilePermissions(to, attributes.permissions());
+        try {
+            if (!attributes.owner().equals(Files.getOwner(to))) {
+                Files.setOwner(to, attributes.owner());
+            }
+        } catch (IOException e) {
+            // Only root may give files away; the file then stays with this user
+        }
+    }
+
+    /**
+     * Renames a file over another atomically where the file system allows it.
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileAlreadyExistsException e) {
+            // Some platforms refuse to replace on atomic move
+            Files.delete(target);
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Refuses a path below a directory if it leaves the directory or any
+     * part of it below the directory is a symbolic link. Parts that do not
+     * exist yet are fine.
+     * 
+     * Used before writing into directories owned by someone else, e.g. as
+     * administrator into other users' profiles, where following a link the
+     * owner planted would overwrite or hand over a file outside the profile.
+     * 
+     * @param root Directory the path must stay in
+     * @param path Path to check
+     * @throws IOException If the path leaves the root or contains a link
+     */
+    public static void checkNoLinks(Path root, Path path) throws IOException {
+        Path base = root.toAbsolutePath().normalize();
+        Path full = path.toAbsolutePath().normalize();
+        if (!full.startsWith(base)) {
+            throw new IOException(path + " is outside " + root);
+        }
+        Path current = base;
+        for (Path part : base.relativize(full)) {
+            current = current.resolve(part);
+            if (Files.isSymbolicLink(current)) {
+                throw new IOException(current + " is a symbolic link; not following it");
+            }
+        }
+    }
+
+    /**
+     * Waits until all named files exist (and are non-empty) in a directory.
+     * 
+     * The directory is watched with a {@link WatchService} so the method returns
+     * as soon as the last file appears. Because some file systems deliver events
+     * late or not at all, the directory is also re-checked on a short backoff
+     * (10 ms doubling up to 250 ms).
+     * 
+     * @param dir Directory expected to contain the files
+     * @param fileNames File names that must be present
+     * @param timeoutMillis Maximum time to wait
+     * @return true if all files were found before the deadline
+     */
+    public static boolean waitForFiles(Path dir, Collection<String> fileNames, long timeoutMillis) {
+        Set<String> missing = new LinkedHashSet<>(fileNames);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        missing.removeIf(name -> isPresent(dir.resolve(name)));
+        if (missing.isEmpty()) {
+            return true;
+        }
+
+        WatchService watcher = null;
+        try {
+            if (Files.isDirectory(dir)) {
                 try {
-                    Thread.sleep(100);
-                    Files.delete(dest);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                } catch (IOException e2) {
-                    throw new IOException("Cannot overwrite " + dest.getFileName() + 
-                        " - the file may be in use. Please close any applications using this font and try again.", e2);
+                    watcher = dir.getFileSystem().newWatchService();
+                    dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                } catch (IOException | UnsupportedOperationException e) {
+                    // Fall back to polling only
+                    watcher = null;
+                }
+            }
+
+            long backoffMillis = 10;
+            while (true) {
+                missing.removeIf(name -> isPresent(dir.resolve(name)));
+                if (missing.isEmpty()) {
+                    return true;
+                }
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return false;
                 }
+                long waitMillis = Math.min(backoffMillis, remainingMillis);
+                backoffMillis = Math.min(backoffMillis * 2, 250);
+                if (watcher != null) {
+                    WatchKey key = watcher.poll(waitMillis, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                } else {
+                    Thread.sleep(waitMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            missing.removeIf(name -> isPresent(dir.resolve(name)));
+            return missing.isEmpty();
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        } finally {
+            if (watcher != null) {
+                try { watcher.close(); } catch (IOException ignored) {}
             }
         }
-        // Now copy with replace option
-        Files.copy(src, dest, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean isPresent(Path file) {
+        try {
+            return Files.isRegularFile(file) && Files.size(file) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Releases a memory mapping right away instead of when the buffer is
+     * garbage collected. Windows refuses to replace or delete a file while a
+     * mapping of it exists. The buffer must not be used afterwards.
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        if (UNMAPPER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNMAPPER, buffer);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // Released by the garbage collector instead
+        }
+    }
+
+    private static final Object UNMAPPER;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            // sun.misc.Unsafe.invokeCleaner (module jdk.unsupported) is the
+            // supported way to unmap a buffer before it is collected
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+        }
+        UNMAPPER = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Returns a new SHA-256 message digest.
+     */
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Formats bytes as lowercase hexadecimal.
+     */
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
     }
 }
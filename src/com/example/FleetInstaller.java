@@ -0,0 +1,347 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileOwnerAttributeView;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Provisions many user profiles of one machine at once, e.g. on shared
+ * build or jump hosts: copies the fonts into each user's fonts folder and
+ * adds the font settings to each user's editors.
+ *
+ * The bundled fonts are extracted once and profiles are processed on a
+ * bounded pool, each one on its own; a failing profile is reported and the
+ * others go on. Files created in a profile are given to the profile's owner
+ * when the process may do so, and patched settings files keep their owner
+ * and permissions. The profiles belong to their users, so no symbolic link
+ * below a home directory is followed; a fonts folder or settings file
+ * reached through one is reported as failed.
+ *
+ * Nothing is registered with the system or journaled for other users: on
+ * Linux fontconfig finds the copied fonts by itself, while on Windows the
+ * registry of a user who is not signed in is not reachable, so the fonts
+ * become usable once {@code --install} runs as that user (e.g. from a
+ * login script), which then only registers them.
+ */
+public class FleetInstaller {
+    /** Profiles processed at the same time by default. */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /** Folders under a profiles root that belong to no user. */
+    private static final Set<String> SKIPPED_PROFILES = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        SKIPPED_PROFILES.addAll(Arrays.asList("All Users", "Default", "Default User", "Public",
+            "defaultuser0", "lost+found", "Shared", "Guest"));
+    }
+
+    /**
+     * Overall outcome of a fleet run.
+     */
+    public enum Result {
+        /** At least one profile changed and none failed. */
+        UPDATED,
+        /** Every profile was already provisioned. */
+        UNCHANGED,
+        /** Some profiles failed; the others were provisioned. */
+        PARTIAL,
+        /** There were no profiles to provision. */
+        NOT_FOUND
+    }
+
+    /**
+     * Outcome for one profile.
+     */
+    public static class ProfileResult {
+        private final Path home;
+        private final int fontsCopied;
+        private final int fontsUnchanged;
+        private final IOException fontsError;
+        private final SettingsManager.Report settings;
+        private final long durationMillis;
+
+        ProfileResult(Path home, int fontsCopied, int fontsUnchanged, IOException fontsError,
+                      SettingsManager.Report settings, long durationMillis) {
+            this.home = home;
+            this.fontsCopied = fontsCopied;
+            this.fontsUnchanged = fontsUnchanged;
+            this.fontsError = fontsError;
+            this.settings = settings;
+            this.durationMillis = durationMillis;
+        }
+
+        public Path getHome() {
+            return home;
+        }
+
+        /** Fonts copied because they were missing or different. */
+        public int getFontsCopied() {
+            return fontsCopied;
+        }
+
+        /** Fonts that were already in place. */
+        public int getFontsUnchanged() {
+            return fontsUnchanged;
+        }
+
+        /** Why the fonts could not be copied, or null. */
+        public IOException getFontsError() {
+            return fontsError;
+        }
+
+        /** The settings files found and how each was patched. */
+        public SettingsManager.Report getSettings() {
+            return settings;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public boolean isFailed() {
+            return fontsError != null || settings.getResult() == SettingsManager.Result.FAILED;
+        }
+
+        public boolean isChanged() {
+            return fontsCopied > 0 || settings.getResult() == SettingsManager.Result.UPDATED;
+        }
+    }
+
+    /**
+     * Results of all profiles, in the order they were given.
+     */
+    public static class Report {
+        private final List<ProfileResult> profiles;
+        private final long durationMillis;
+
+        Report(List<ProfileResult> profiles, long durationMillis) {
+            this.profiles = Collections.unmodifiableList(profiles);
+            this.durationMillis = durationMillis;
+        }
+
+        public List<ProfileResult> getProfiles() {
+            return profiles;
+        }
+
+        /** Wall-clock time of the whole run. */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public Result getResult() {
+            if (profiles.isEmpty()) {
+                return Result.NOT_FOUND;
+            }
+            boolean changed = false;
+            for (ProfileResult p : profiles) {
+                if (p.isFailed()) {
+                    return Result.PARTIAL;
+                }
+                changed |= p.isChanged();
+            }
+            return changed ? Result.UPDATED : Result.UNCHANGED;
+        }
+
+        /** Profiles for which anything failed. */
+        public List<ProfileResult> getFailures() {
+            List<ProfileResult> failures = new ArrayList<>();
+            for (ProfileResult p : profiles) {
+                if (p.isFailed()) failures.add(p);
+            }
+            return failures;
+        }
+    }
+
+    private FleetInstaller() {
+    }
+
+    /**
+     * Lists the user home directories below a profiles root such as
+     * {@code C:\Users} or {@code /home}, skipping hidden folders and the
+     * system's shared profiles.
+     *
+     * @param root Directory containing one home directory per user
+     * @return The home directories, sorted by name
+     * @throws IOException If the root cannot be listed
+     */
+    public static List<Path> findProfiles(Path root) throws IOException {
+        List<Path> homes = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (Path dir : stream) {
+                String name = dir.getFileName().toString();
+                if (name.startsWith(".") || SKIPPED_PROFILES.contains(name)
+                    || !Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                homes.add(dir);
+            }
+        }
+        Collections.sort(homes);
+        return homes;
+    }
+
+    /**
+     * Copies a selection of fonts into every profile and adds the font
+     * settings to each of its editors.
+     *
+     * @param homes Home directories of the users to provision
+     * @param selection The fonts to copy
+     * @param parallelism Profiles processed at the same time
+     * @return The outcome of each profile
+     * @throws IOException If the bundled fonts cannot be located; failures
+     *         in a profile are reported in its result instead
+     */
+    public static Report provision(List<Path> homes, FontManifest.Selection selection, int parallelism)
+            throws IOException {
+        long start = System.nanoTime();
+        List<Path> fonts = FontInstaller.locateBundledFonts(selection);
+        FontBackend backend = FontInstaller.getBackend();
+        List<ProfileResult> results = new ArrayList<>(homes.size());
+        if (homes.isEmpty()) {
+            return new Report(results, 0);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, homes.size())), r -> {
+            Thread t = new Thread(r, "fleet");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<ProfileResult>> futures = new ArrayList<>(homes.size());
+            for (Path home : homes) {
+                futures.add(pool.submit(() -> provisionProfile(home, fonts, backend)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(failed(homes.get(i), new IOException(e.getCause())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(failed(homes.get(i), new IOException("Interrupted")));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Report(results, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Copies the fonts into one profile and patches its settings; the
+     * settings are patched even if the fonts failed.
+     */
+    private static ProfileResult provisionProfile(Path home, List<Path> fonts, FontBackend backend) {
+        long start = System.nanoTime();
+        try (Metrics.Phase phase = Metrics.begin("profile", home.toString())) {
+            int copied = 0;
+            int unchanged = 0;
+            IOException fontsError = null;
+            UserPrincipal owner = null;
+            long bytes = 0;
+            try {
+                if (!Files.isDirectory(home)) {
+                    throw new IOException("Not a directory: " + home);
+                }
+                owner = Files.getOwner(home);
+                Path fontsDir = backend.getFontsDir(home);
+                createDirectories(home, fontsDir, owner);
+                for (Path font : fonts) {
+                    Path dest = fontsDir.resolve(font.getFileName().toString());
+                    FileUtils.checkNoLinks(home, dest);
+                    if (FileUtils.copyIfChanged(font, dest)) {
+                        adoptOwner(dest, owner);
+                        bytes += Files.size(dest);
+                        copied++;
+                    } else {
+                        unchanged++;
+                    }
+                }
+            } catch (IOException e) {
+                fontsError = e;
+            }
+
+            SettingsManager.Report settings = SettingsManager.modifyProfileSettings(true, home);
+
+            ProfileResult result = new ProfileResult(home, copied, unchanged, fontsError, settings,
+                (System.nanoTime() - start) / 1_000_000);
+            if (!result.isFailed()) {
+                phase.done(bytes, result.isChanged() ? "updated" : "unchanged");
+            }
+            return result;
+        }
+    }
+
+    private static ProfileResult failed(Path home, IOException error) {
+        return new ProfileResult(home, 0, 0, error,
+            new SettingsManager.Report(SettingsTargets.getConfigRoot(home), Collections.emptyList()), 0);
+    }
+
+    /**
+     * Creates a directory below a home directory and its missing parents,
+     * giving each new one to the profile's owner. Symbolic links on the way
+     * are refused, so a link the user planted cannot send the fonts (and
+     * the ownership change) outside the profile.
+     */
+    private static void createDirectories(Path home, Path dir, UserPrincipal owner) throws IOException {
+        FileUtils.checkNoLinks(home, dir);
+        Path current = home;
+        for (Path part : home.relativize(dir)) {
+            current = current.resolve(part);
+            if (Files.isDirectory(current, LinkOption.NOFOLLOW_LINKS)) {
+                continue;
+            }
+            Files.createDirectory(current);
+            adoptOwner(current, owner);
+        }
+    }
+
+    /**
+     * Gives a file to the profile's owner if it belongs to someone else,
+     * which needs administrator or root rights; without them the file
+     * stays with the current user. A symbolic link itself is changed,
+     * never the file it points to.
+     */
+    private static void adoptOwner(Path file, UserPrincipal owner) {
+        if (owner == null) {
+            return;
+        }
+        try {
+            FileOwnerAttributeView view = Files.getFileAttributeView(file, FileOwnerAttributeView.class,
+                LinkOption.NOFOLLOW_LINKS);
+            if (view != null && !owner.equals(view.getOwner())) {
+                view.setOwner(owner);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            // Not permitted; the user can still read the file
+        }
+    }
+
+    /**
+     * Returns a short description of why a profile failed.
+     */
+    static String describeFailure(ProfileResult result) {
+        List<String> problems = new ArrayList<>();
+        if (result.getFontsError() != null) {
+            problems.add("fonts: " + result.getFontsError().getMessage());
+        }
+        for (SettingsManager.TargetResult t : result.getSettings().getFailures()) {
+            problems.add(t.getPath() + ": " + (t.getError() != null ? t.getError().getMessage() : "failed"));
+        }
+        return problems.isEmpty() ? null : String.join("; ", problems);
+    }
+}
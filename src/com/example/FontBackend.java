@@ -0,0 +1,97 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Platform-specific part of installing fonts for the current user: where
+ * font files live, how new fonts are made known to the system and how the
+ * system's font cache is refreshed. {@link FontInstaller} does everything
+ * else (locating, comparing, copying, journaling and verifying) the same way
+ * on every platform.
+ */
+public interface FontBackend {
+    /**
+     * Returns the folder holding the user's installed font files.
+     */
+    Path getFontsDir();
+
+    /**
+     * Returns the folders searched for fonts installed by other means, e.g.
+     * under other file names; subfolders are included.
+     */
+    default List<Path> getSearchDirs() {
+        return Collections.singletonList(getFontsDir());
+    }
+
+    /**
+     * Returns the fonts folder of another user of this machine, given their
+     * home directory, e.g. to provision profiles in fleet mode.
+     */
+    Path getFontsDir(Path home);
+
+    /**
+     * Returns the lower-case file names of the fonts in
+     * {@link #getFontsDir()} that the system knows about. A font that was
+     * only copied into the folder is not registered until {@link #register}
+     * runs for it.
+     *
+     * @throws IOException If the registrations cannot be read
+     */
+    Set<String> getRegisteredFiles() throws IOException;
+
+    /**
+     * Installs fonts that are not installed yet. Afterwards each font
+     * appears in {@link #getFontsDir()} under its own file name, possibly
+     * with a delay.
+     *
+     * @param fonts Font files to install
+     * @return The SHA-256 of each installed copy by file name, computed while
+     *         it was written
+     * @throws IOException If the fonts cannot be installed
+     */
+    Map<String, String> register(List<Path> fonts) throws IOException;
+
+    /**
+     * Removes what {@link #register} set up for fonts that are about to be
+     * deleted from {@link #getFontsDir()}.
+     *
+     * @param fileNames Names of the font files
+     * @throws IOException If the registrations cannot be removed
+     */
+    void unregister(List<String> fileNames) throws IOException;
+
+    /**
+     * Starts refreshing the system's font cache for {@link #getFontsDir()}
+     * if it needs it, without waiting for the refresh to finish.
+     *
+     * @param changed True if fonts were added, replaced or removed
+     * @return Completes when the refresh is done or was not needed; never
+     *         completes exceptionally
+     */
+    CompletableFuture<Void> refresh(boolean changed);
+
+    /**
+     * Returns the backend for the operating system this runs on. Systems
+     * other than Windows and macOS get the fontconfig backend.
+     *
+     * @throws UnsupportedOperationException On macOS, which has no backend yet
+     */
+    static FontBackend getDefault() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        if (os.startsWith("windows")) {
+            return new WindowsFontBackend();
+        }
+        if (os.startsWith("mac")) {
+            throw new UnsupportedOperationException("Installing fonts is not supported on macOS yet; "
+                + "open the font files with Font Book instead. Editor settings can still be changed.");
+        }
+        return new LinuxFontBackend();
+    }
+}
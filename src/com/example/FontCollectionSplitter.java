@@ -0,0 +1,190 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits a TrueType collection (.ttc) into standalone single-face fonts.
+ *
+ * Each face's tables are sliced out of the mapped collection as they are and
+ * written behind a new table directory with a single gather write; only the
+ * {@code head} table is copied, to store the new checkSumAdjustment. Table
+ * checksums are computed once per shared table, so collections with many
+ * shared tables split in a few milliseconds.
+ */
+public class FontCollectionSplitter {
+    private static final long CHECKSUM_MAGIC = 0xB1B0AFBAL;
+    private static final int OTTO = 0x4F54544F;
+
+    /**
+     * Writes every face of a collection as its own font file.
+     *
+     * Files are named {@code <prefix><full name>.ttf} (or {@code .otf} for
+     * CFF faces), with spaces removed from the full name, and replaced
+     * atomically if they already exist.
+     *
+     * @param collection The .ttc file
+     * @param outDir Directory for the fonts; created if needed
+     * @param prefix Prefix for the file names, e.g. the collection's base name and a dash
+     * @return The written files, in face order
+     * @throws IOException If the collection cannot be read or a file cannot be written
+     */
+    public static List<Path> split(Path collection, Path outDir, String prefix) throws IOException {
+        Files.createDirectories(outDir);
+        List<Path> written = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(collection, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(collection.getFileName() + " is too large to be a font");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                FontFile font = FontFile.parse(collection, buffer, false);
+                if (!font.isCollection()) {
+                    throw new IOException(collection.getFileName() + " is not a font collection");
+                }
+                Map<Long, Long> checksums = new HashMap<>();
+                Set<String> names = new HashSet<>();
+                List<FontFile.Face> faces = font.getFaces();
+                for (int i = 0; i < faces.size(); i++) {
+                    FontFile.Face face = faces.get(i);
+                    String name = fileName(prefix, face, i, names);
+                    Path out = outDir.resolve(name);
+                    writeFace(buffer, face, checksums, out);
+                    written.add(out);
+                }
+            } finally {
+                FileUtils.unmap(buffer);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes one face: offset table, directory, then each table padded to
+     * four bytes, in one gather write to a temp file that is then moved
+     * into place.
+     */
+    private static void writeFace(ByteBuffer source, FontFile.Face face, Map<Long, Long> checksums, Path out)
+            throws IOException {
+        List<FontFile.Table> tables = new ArrayList<>(face.getTables().values());
+        int numTables = tables.size();
+        int headerSize = 12 + 16 * numTables;
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+
+        int entrySelector = 31 - Integer.numberOfLeadingZeros(Math.max(numTables, 1));
+        int searchRange = 16 << entrySelector;
+        header.putInt(face.getSfntVersion());
+        header.putShort((short) numTables);
+        header.putShort((short) searchRange);
+        header.putShort((short) entrySelector);
+        header.putShort((short) (numTables * 16 - searchRange));
+
+        ByteBuffer[] parts = new ByteBuffer[1 + 2 * numTables];
+        ByteBuffer head = null;
+        long offset = headerSize;
+        long total = 0;
+        int count = 1;
+        for (FontFile.Table table : tables) {
+            int start = (int) table.getOffset();
+            int length = (int) table.getLength();
+            ByteBuffer data = source.duplicate();
+            data.limit(start + length).position(start);
+            long checksum;
+            if (table.getTag().equals("head")) {
+                // Copy head so its checkSumAdjustment can be rewritten
+                head = ByteBuffer.allocate(length);
+                head.put(data).flip();
+                head.putInt(8, 0);
+                checksum = FontFile.checksum(head, 0, length);
+                data = head;
+            } else {
+                checksum = checksums.computeIfAbsent(table.getOffset(),
+                    o -> FontFile.checksum(source, start, length));
+            }
+            header.putInt(tagValue(table.getTag()));
+            header.putInt((int) checksum);
+            header.putInt((int) offset);
+            header.putInt(length);
+            total += checksum;
+
+            parts[count++] = data;
+            int padding = (4 - (length & 3)) & 3;
+            if (padding > 0) {
+                parts[count++] = ByteBuffer.allocate(padding);
+            }
+            offset += length + padding;
+        }
+        if (head == null) {
+            throw new IOException("Face " + face.getFullName() + " has no head table");
+        }
+        header.flip();
+        total += FontFile.checksum(header, 0, headerSize);
+        head.putInt(8, (int) ((CHECKSUM_MAGIC - total) & 0xFFFFFFFFL));
+        parts[0] = header;
+
+        ByteBuffer[] buffers = count == parts.length ? parts : Arrays.copyOf(parts, count);
+        Path tmp = Files.createTempFile(out.getParent(), "." + out.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                long remaining = offset;
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+            }
+            FileUtils.moveAtomically(tmp, out);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static String fileName(String prefix, FontFile.Face face, int index, Set<String> used) {
+        String base = face.getFullName() != null ? face.getFullName() : "Face" + index;
+        base = base.replaceAll("[\\s\\\\/:*?\"<>|]+", "");
+        if (base.isEmpty()) {
+            base = "Face" + index;
+        }
+        String ext = face.getSfntVersion() == OTTO ? ".otf" : ".ttf";
+        String name = prefix + base + ext;
+        if (!used.add(name)) {
+            name = prefix + base + "-" + index + ext;
+            used.add(name);
+        }
+        return name;
+    }
+
+    private static int tagValue(String tag) {
+        return (tag.charAt(0) << 24) | (tag.charAt(1) << 16) | (tag.charAt(2) << 8) | tag.charAt(3);
+    }
+
+    /**
+     * Splits a collection from the command line.
+     * Usage: {@code FontCollectionSplitter <collection.ttc> <output dir>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: FontCollectionSplitter <collection.ttc> <output dir>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        List<Path> faces = split(Paths.get(args[0]), Paths.get(args[1]), "");
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        for (Path p : faces) {
+            System.out.println(p);
+        }
+        System.out.println("Split " + faces.size() + " faces in " + millis + " ms");
+    }
+}
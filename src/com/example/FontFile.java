@@ -0,0 +1,472 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Header information of a TrueType/OpenType font or font collection.
+ *
+ * The file is memory-mapped and only the structures needed for verification
+ * are read: the collection header, each face's table directory, {@code head}
+ * and {@code name}. Glyph data is never copied; it is only summed to validate
+ * the table checksums. The mapping is released before {@link #read} returns,
+ * so the file can be replaced or deleted right afterwards.
+ */
+public class FontFile {
+    private static final int TAG_TTCF = 0x74746366; // "ttcf"
+    private static final int TAG_OTTO = 0x4F54544F; // "OTTO"
+    private static final int TAG_TRUE = 0x74727565; // "true"
+    private static final int SFNT_VERSION_1 = 0x00010000;
+    private static final int TAG_HEAD = 0x68656164; // "head"
+    private static final int HEAD_MAGIC = 0x5F0F3CF5;
+    /** Sum of all uint32 values of a single font file, per the OpenType spec. */
+    private static final long CHECKSUM_MAGIC = 0xB1B0AFBAL;
+    private static final Charset MAC_ROMAN = Charset.isSupported("x-MacRoman")
+        ? Charset.forName("x-MacRoman") : StandardCharsets.ISO_8859_1;
+
+    /**
+     * One entry of a face's table directory.
+     */
+    public static class Table {
+        private final String tag;
+        private final long checksum;
+        private final long offset;
+        private final long length;
+
+        Table(String tag, long checksum, long offset, long length) {
+            this.tag = tag;
+            this.checksum = checksum;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        /** Checksum recorded in the table directory. */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        /** Offset from the start of the file. */
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * One font face: the whole file for a TTF/OTF, one member of a TTC.
+     */
+    public static class Face {
+        private final long offset;
+        private final int sfntVersion;
+        private final Map<String, Table> tables;
+        private final int fontRevision;
+        private final long checkSumAdjustment;
+        private final String family;
+        private final String subfamily;
+        private final String fullName;
+        private final String version;
+
+        Face(long offset, int sfntVersion, Map<String, Table> tables, int fontRevision, long checkSumAdjustment,
+             String family, String subfamily, String fullName, String version) {
+            this.offset = offset;
+            this.sfntVersion = sfntVersion;
+            this.tables = tables;
+            this.fontRevision = fontRevision;
+            this.checkSumAdjustment = checkSumAdjustment;
+            this.family = family;
+            this.subfamily = subfamily;
+            this.fullName = fullName;
+            this.version = version;
+        }
+
+        /** Offset of this face's table directory in the file. */
+        public long getOffset() {
+            return offset;
+        }
+
+        /** 0x00010000 for TrueType outlines, "OTTO" for CFF outlines. */
+        public int getSfntVersion() {
+            return sfntVersion;
+        }
+
+        /** Tables in directory order, by tag. */
+        public Map<String, Table> getTables() {
+            return tables;
+        }
+
+        /** {@code head.fontRevision} as a 16.16 fixed-point value. */
+        public int getFontRevision() {
+            return fontRevision;
+        }
+
+        /** {@code head.checkSumAdjustment}; changes with any change to the font. */
+        public long getCheckSumAdjustment() {
+            return checkSumAdjustment;
+        }
+
+        /** Family name (typographic family if present), or null. */
+        public String getFamily() {
+            return family;
+        }
+
+        /** Subfamily (style) name, or null. */
+        public String getSubfamily() {
+            return subfamily;
+        }
+
+        /** Full font name, or null. */
+        public String getFullName() {
+            return fullName;
+        }
+
+        /** Version string from the name table, or null. */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns true if this face has the same names, revision and
+         * checksum adjustment as another, i.e. is the same font build.
+         */
+        public boolean sameFontAs(Face other) {
+            return fontRevision == other.fontRevision
+                && checkSumAdjustment == other.checkSumAdjustment
+                && equal(family, other.family)
+                && equal(subfamily, other.subfamily)
+                && equal(version, other.version);
+        }
+
+        @Override
+        public String toString() {
+            return fullName + " (" + version + ")";
+        }
+    }
+
+    private final Path path;
+    private final long size;
+    private final boolean collection;
+    private final List<Face> faces;
+    private final List<String> problems;
+
+    private FontFile(Path path, long size, boolean collection, List<Face> faces, List<String> problems) {
+        this.path = path;
+        this.size = size;
+        this.collection = collection;
+        this.faces = Collections.unmodifiableList(faces);
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Maps and parses a font file and validates its checksums.
+     *
+     * @param file A .ttf, .otf or .ttc file
+     * @return The parsed headers; see {@link #isValid()} for the checksum result
+     * @throws IOException If the file cannot be read or is not a font
+     */
+    public static FontFile read(Path file) throws IOException {
+        return read(file, true);
+    }
+
+    /**
+     * Maps a font file and reads only its headers, without summing the
+     * table data; much faster for large fonts. {@link #isValid()} is then
+     * always true.
+     *
+     * @param file A .ttf, .otf or .ttc file
+     * @return The parsed headers
+     * @throws IOException If the file cannot be read or is not a font
+     */
+    public static FontFile readHeaders(Path file) throws IOException {
+        return read(file, false);
+    }
+
+    private static FontFile read(Path file, boolean validate) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 12) {
+                throw new IOException(file.getFileName() + " is too small to be a font");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file.getFileName() + " is too large to be a font");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                return parse(file, buffer, validate);
+            } finally {
+                FileUtils.unmap(buffer);
+            }
+        }
+    }
+
+    /**
+     * Parses a font held in a buffer positioned anywhere; absolute offsets are
+     * used throughout.
+     */
+    static FontFile parse(Path path, ByteBuffer buffer) throws IOException {
+        return parse(path, buffer, true);
+    }
+
+    /**
+     * Parses a font, optionally without validating checksums, which then
+     * reads only the headers and never touches the table data.
+     */
+    static FontFile parse(Path path, ByteBuffer buffer, boolean validate) throws IOException {
+        try {
+            // Tables shared by several faces of a collection are summed once
+            Map<Long, Long> checksums = validate ? new HashMap<>() : null;
+            List<String> problems = new ArrayList<>();
+            List<Face> faces = new ArrayList<>();
+            int tag = buffer.getInt(0);
+            boolean collection = tag == TAG_TTCF;
+            if (collection) {
+                int numFonts = buffer.getInt(8);
+                if (numFonts <= 0 || 12L + 4L * numFonts > buffer.limit()) {
+                    throw new IOException("Invalid font collection header");
+                }
+                for (int i = 0; i < numFonts; i++) {
+                    long offset = buffer.getInt(12 + 4 * i) & 0xFFFFFFFFL;
+                    faces.add(parseFace(buffer, offset, false, checksums, problems));
+                }
+            } else if (tag == SFNT_VERSION_1 || tag == TAG_OTTO || tag == TAG_TRUE) {
+                faces.add(parseFace(buffer, 0, true, checksums, problems));
+            } else {
+                throw new IOException("Not a TrueType/OpenType font");
+            }
+            return new FontFile(path, buffer.limit(), collection, faces, problems);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException((path != null ? path.getFileName() + ": " : "") + "font is truncated", e);
+        }
+    }
+
+    private static Face parseFace(ByteBuffer buffer, long offset, boolean wholeFile,
+                                  Map<Long, Long> checksums, List<String> problems) throws IOException {
+        int base = checkedOffset(buffer, offset, 12);
+        int sfntVersion = buffer.getInt(base);
+        int numTables = buffer.getShort(base + 4) & 0xFFFF;
+        checkedOffset(buffer, base + 12L, 16L * numTables);
+
+        Map<String, Table> tables = new LinkedHashMap<>();
+        boolean headCutOff = false;
+        for (int i = 0; i < numTables; i++) {
+            int record = base + 12 + 16 * i;
+            int tagValue = buffer.getInt(record);
+            long checksum = buffer.getInt(record + 4) & 0xFFFFFFFFL;
+            long tableOffset = buffer.getInt(record + 8) & 0xFFFFFFFFL;
+            long length = buffer.getInt(record + 12) & 0xFFFFFFFFL;
+            String tag = tagToString(tagValue);
+            if (tableOffset + length > buffer.limit()) {
+                problems.add("Font is truncated: table " + tag + " extends past the end of the file");
+                headCutOff |= tagValue == TAG_HEAD;
+                continue;
+            }
+            Table table = new Table(tag, checksum, tableOffset, length);
+            tables.put(tag, table);
+
+            if (checksums == null) {
+                continue;
+            }
+            long actual = checksums.computeIfAbsent(tableOffset, o -> checksum(buffer, o.intValue(), (int) length));
+            if (tagValue == TAG_HEAD && length >= 12) {
+                // checkSumAdjustment counts as zero in the head table's checksum
+                actual = (actual - (buffer.getInt((int) tableOffset + 8) & 0xFFFFFFFFL)) & 0xFFFFFFFFL;
+            }
+            if (actual != checksum) {
+                problems.add(String.format(Locale.ROOT, "Checksum mismatch in table %s at face offset %d", tag, offset));
+            }
+        }
+
+        Table head = tables.get("head");
+        if (headCutOff) {
+            throw new IOException("Font is truncated: head table extends past the end of the file");
+        }
+        if (head == null || head.length < 54) {
+            throw new IOException("Font has no valid head table");
+        }
+        int headOffset = (int) head.offset;
+        if (buffer.getInt(headOffset + 12) != HEAD_MAGIC) {
+            problems.add("head table has a wrong magic number");
+        }
+        int fontRevision = buffer.getInt(headOffset + 4);
+        long checkSumAdjustment = buffer.getInt(headOffset + 8) & 0xFFFFFFFFL;
+        if (wholeFile && checksums != null) {
+            // checkSumAdjustment = magic - sum with it zeroed, so the full sum is the magic
+            if (checksum(buffer, 0, buffer.limit()) != CHECKSUM_MAGIC) {
+                problems.add("Whole-font checksum does not match head.checkSumAdjustment");
+            }
+        }
+
+        String[] names = new String[6];
+        String typographicFamily = null;
+        Table name = tables.get("name");
+        if (name != null) {
+            typographicFamily = readNames(buffer, (int) name.offset, (int) name.length, names);
+        }
+        String family = typographicFamily != null ? typographicFamily : names[1];
+        return new Face(offset, sfntVersion, Collections.unmodifiableMap(tables), fontRevision,
+            checkSumAdjustment, family, names[2], names[4], names[5]);
+    }
+
+    /**
+     * Reads name IDs 1-5 into {@code names}, preferring Windows Unicode
+     * English records, and returns the typographic family (ID 16) if present.
+     */
+    private static String readNames(ByteBuffer buffer, int tableOffset, int tableLength, String[] names) {
+        int count = buffer.getShort(tableOffset + 2) & 0xFFFF;
+        int storage = tableOffset + (buffer.getShort(tableOffset + 4) & 0xFFFF);
+        int[] rank = new int[17];
+        String typographicFamily = null;
+        for (int i = 0; i < count; i++) {
+            int record = tableOffset + 6 + 12 * i;
+            if (record + 12 > tableOffset + tableLength) {
+                break;
+            }
+            int platform = buffer.getShort(record) & 0xFFFF;
+            int encoding = buffer.getShort(record + 2) & 0xFFFF;
+            int language = buffer.getShort(record + 4) & 0xFFFF;
+            int nameId = buffer.getShort(record + 6) & 0xFFFF;
+            int length = buffer.getShort(record + 8) & 0xFFFF;
+            int offset = buffer.getShort(record + 10) & 0xFFFF;
+            if (nameId == 0 || (nameId > 5 && nameId != 16)) {
+                continue;
+            }
+            int r;
+            Charset charset;
+            if (platform == 3 && (encoding == 1 || encoding == 10)) {
+                r = language == 0x0409 ? 3 : 2;
+                charset = StandardCharsets.UTF_16BE;
+            } else if (platform == 0) {
+                r = 2;
+                charset = StandardCharsets.UTF_16BE;
+            } else if (platform == 1 && encoding == 0) {
+                r = 1;
+                charset = MAC_ROMAN;
+            } else {
+                continue;
+            }
+            if (r <= rank[nameId] || storage + offset + length > buffer.limit()) {
+                continue;
+            }
+            byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = buffer.get(storage + offset + j);
+            }
+            rank[nameId] = r;
+            String value = new String(bytes, charset);
+            if (nameId == 16) {
+                typographicFamily = value;
+            } else {
+                names[nameId] = value;
+            }
+        }
+        return typographicFamily;
+    }
+
+    /**
+     * Sums a range as big-endian uint32 values, zero-padding the last one.
+     */
+    static long checksum(ByteBuffer buffer, int offset, int length) {
+        long sum = 0;
+        int end = offset + (length & ~3);
+        for (int i = offset; i < end; i += 4) {
+            sum += buffer.getInt(i) & 0xFFFFFFFFL;
+        }
+        int rest = length & 3;
+        if (rest > 0) {
+            long last = 0;
+            for (int j = 0; j < 4; j++) {
+                last <<= 8;
+                int p = end + j;
+                if (j < rest && p < buffer.limit()) {
+                    last |= buffer.get(p) & 0xFF;
+                }
+            }
+            sum += last;
+        }
+        return sum & 0xFFFFFFFFL;
+    }
+
+    private static int checkedOffset(ByteBuffer buffer, long offset, long length) throws IOException {
+        if (offset < 0 || offset + length > buffer.limit()) {
+            throw new IOException("Font structure at offset " + offset + " is outside the file; it is truncated");
+        }
+        return (int) offset;
+    }
+
+    private static String tagToString(int tag) {
+        char[] c = {(char) ((tag >>> 24) & 0xFF), (char) ((tag >>> 16) & 0xFF),
+                    (char) ((tag >>> 8) & 0xFF), (char) (tag & 0xFF)};
+        return new String(c);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /** The file that was read. */
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /** True for a .ttc font collection. */
+    public boolean isCollection() {
+        return collection;
+    }
+
+    public List<Face> getFaces() {
+        return faces;
+    }
+
+    /**
+     * Returns true if all table checksums (and for single fonts the
+     * whole-file checksum) are correct.
+     */
+    public boolean isValid() {
+        return problems.isEmpty();
+    }
+
+    /** Descriptions of checksum and structure problems found. */
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Returns true if both files hold the same faces, by name, revision and
+     * checksum adjustment.
+     */
+    public boolean sameFontsAs(FontFile other) {
+        if (faces.size() != other.faces.size()) {
+            return false;
+        }
+        for (int i = 0; i < faces.size(); i++) {
+            if (!faces.get(i).sameFontAs(other.faces.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,213 +1,1056 @@
 package com.example;
 
-import javax.swing.*;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Handles Monocraft font installation and uninstallation for the current user.
  * No administrator privileges required.
+ * 
+ * This class never shows dialogs; outcomes are reported back to the caller so
+ * it can be driven from both the GUI and the headless command line.
  */
 public class FontInstaller {
-    private static final String FONT_NERD_NAME = "Monocraft Nerd Font (TrueType)";
-    private static final String FONT_REGULAR_NAME = "Monocraft";
+    private static final long DEFAULT_VERIFY_TIMEOUT_MILLIS = 5000;
+    private static final int MAX_PARALLEL_FONTS = 4;
+    /** This platform's backend, created on first use. */
+    private static FontBackend backend;
+    
+    /** Font cache refreshes still running in the background. */
+    private static CompletableFuture<Void> pendingRefresh = CompletableFuture.completedFuture(null);
+    
+    /**
+     * Outcome of an install request.
+     */
+    public enum Result {
+        /** Fonts were installed and found in the user fonts folder. */
+        INSTALLED,
+        /** Fonts were already present and either reinstalling was not requested or nothing had changed. */
+        ALREADY_INSTALLED,
+        /** Fonts were handed to the system but could not be found afterwards. */
+        UNVERIFIED
+    }
     
     /**
-     * Installs the Monocraft fonts for the current user.
+     * Installs the Monocraft fonts for the current user: the Nerd Font and
+     * the regular TrueType font.
      * 
-     * @param alsoAddToVSCode If true, also configures VS Code settings
+     * @param reinstall If false, nothing is done when the fonts are already installed
+     * @return The outcome of the installation
      * @throws IOException If font installation fails
      */
-    public static void installFonts(boolean alsoAddToVSCode) throws IOException {
-        // Check if already installed
-        if (verifyInstallation()) {
-            int choice = JOptionPane.showConfirmDialog(null, 
-                "Fonts are already installed correctly.\nDo you want to reinstall them?", 
-                "Already Installed", 
-                JOptionPane.YES_NO_OPTION, 
-                JOptionPane.INFORMATION_MESSAGE);
-            if (choice != JOptionPane.YES_OPTION) {
-                return;
-            }
-        }
-
-        // Extract or locate font files
-        List<Path> extracted = extractBundledFonts();
-        Path ttc = null, ttf = null;
-        for (Path p : extracted) {
-            String n = p.getFileName().toString().toLowerCase();
-            if (n.endsWith(".ttc")) ttc = p;
-            if (n.endsWith(".ttf")) ttf = p;
-        }
-
-        // Fallback to external folder if not bundled in JAR
-        if (ttc == null || ttf == null) {
-            // Try app directory (for jpackage builds)
-            String appDir = System.getProperty("app.dir");
-            if (appDir == null || appDir.isEmpty()) {
-                // Fallback: get directory of the running application
-                try {
-                    appDir = new java.io.File(FontInstaller.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getParent();
-                } catch (Exception e) {
-                    appDir = Paths.get("").toAbsolutePath().toString();
-                }
+    public static Result installFonts(boolean reinstall) throws IOException {
+        return installFonts(reinstall, FontManifest.Selection.DEFAULT);
+    }
+
+    /**
+     * Installs a selection of the bundled fonts for the current user.
+     * 
+     * Installation is incremental: fonts whose installed copy is byte-for-byte
+     * identical are skipped, changed ones are replaced and only missing ones
+     * are registered with the system. Locating, extracting and comparing the
+     * fonts runs in parallel; all new fonts are then registered in one batch
+     * by the {@link FontBackend}, while the font cache refreshes in the
+     * background. Each font is read once from the extraction cache and
+     * written once, and checked against the SHA-256 taken while writing it
+     * instead of being read back.
+     * 
+     * Every step is written to the {@link InstallJournal} before it is
+     * carried out. If the installation fails, newly registered fonts are
+     * removed again; if the process dies, the same happens on the next start
+     * (see {@link #recoverInterruptedOperation()}). The journal stays
+     * locked for the whole installation, so another process waits for it.
+     * 
+     * @param reinstall If false, nothing is done when all selected fonts are already installed
+     * @param selection The weights, styles and formats to install
+     * @return The outcome of the installation
+     * @throws IOException If font installation fails
+     */
+    public static Result installFonts(boolean reinstall, FontManifest.Selection selection) throws IOException {
+        InstallJournal.Lock lock = InstallJournal.getDefault().lock();
+        try {
+            return install(reinstall, selection);
+        } finally {
+            lock.close();
+        }
+    }
+
+    private static Result install(boolean reinstall, FontManifest.Selection selection) throws IOException {
+        List<FontManifest.Entry> entries = FontManifest.select(selection);
+        if (!reinstall && verifyInstallation(selection)) {
+            // Still catches up on a cache refresh an earlier run left
+            // unfinished; the backend skips it if the cache is current
+            startRefresh(false);
+            return Result.ALREADY_INSTALLED;
+        }
+
+        // Locate each font and compare it with the installed copy
+        Path fontsDest = getUserFontsDir();
+        ExtractionCache cache = ExtractionCache.getDefault();
+        FontPack pack = getFontPack();
+        List<Path> fallbackDirs = getFallbackFontDirs();
+        boolean split = selection.splitsCollections();
+        InstallJournal journal = InstallJournal.getDefault();
+        List<Staged> staged = new ArrayList<>();
+        for (List<Staged> s : runParallel(entries, e -> stage(e, split, cache, pack, fallbackDirs, fontsDest, journal))) {
+            staged.addAll(s);
+        }
+        cache.evict();
+
+        // Files put in place without registering them (fleet mode) still need registering
+        Set<String> registered = null;
+        for (int i = 0; i < staged.size(); i++) {
+            Staged s = staged.get(i);
+            if (s.action != Action.UNCHANGED) continue;
+            if (registered == null) registered = getBackend().getRegisteredFiles();
+            if (!registered.contains(s.getFileName().toLowerCase(Locale.ROOT))) {
+                staged.set(i, new Staged(s.entry, s.source, Action.REGISTER_EXISTING, s.sha256, s.version));
             }
-            Path appResourceDir = Paths.get(appDir);
-            Path appTtc = appResourceDir.resolve("Monocraft-nerd-fonts-patched.ttc");
-            Path appTtf = appResourceDir.resolve("Monocraft-ttf-otf").resolve("other-formats").resolve("Monocraft.ttf");
-            if (ttc == null && Files.exists(appTtc)) ttc = appTtc;
-            if (ttf == null && Files.exists(appTtf)) ttf = appTtf;
-            
-            // Try current directory resources (for development builds)
-            if (ttc == null || ttf == null) {
-                String projectDir = Paths.get("").toAbsolutePath().toString();
-                Path srcDir = Paths.get(projectDir, "resources", "fonts", "Monocraft-font");
-                Path altTtc = srcDir.resolve("Monocraft-nerd-fonts-patched.ttc");
-                Path altTtf = srcDir.resolve("Monocraft-ttf-otf").resolve("other-formats").resolve("Monocraft.ttf");
-                if (ttc == null && Files.exists(altTtc)) ttc = altTtc;
-                if (ttf == null && Files.exists(altTtf)) ttf = altTtf;
+        }
+
+        // Skip fonts the user already has under other file names
+        FontInventory inventory = null;
+        for (int i = 0; i < staged.size() && !reinstall; i++) {
+            Staged s = staged.get(i);
+            if (s.action != Action.REGISTER) continue;
+            if (inventory == null) inventory = refreshedInventory();
+            if (!findElsewhere(inventory, s.source, fontsDest.resolve(s.getFileName())).isEmpty()) {
+                staged.set(i, new Staged(s.entry, s.source, Action.INSTALLED_ELSEWHERE, s.sha256, s.version));
             }
         }
 
-        if ((ttc == null || !Files.exists(ttc)) && (ttf == null || !Files.exists(ttf))) {
+        List<Staged> available = new ArrayList<>();
+        List<Staged> toRegister = new ArrayList<>();
+        List<Staged> toUpdate = new ArrayList<>();
+        List<InstallJournal.Step> steps = new ArrayList<>();
+        boolean journaled = true;
+        boolean elsewhere = false;
+        for (Staged s : staged) {
+            if (s.action == Action.NOT_FOUND) continue;
+            if (s.action == Action.INSTALLED_ELSEWHERE) {
+                elsewhere = true;
+                continue;
+            }
+            available.add(s);
+            if (s.action == Action.REGISTER || s.action == Action.REGISTER_EXISTING) toRegister.add(s);
+            if (s.action == Action.UPDATE) toUpdate.add(s);
+            if (s.action == Action.UNCHANGED) {
+                InstallJournal.Record record = journal.getInstalledFont(s.getFileName());
+                journaled &= record != null && record.getSha256().equals(s.sha256);
+                steps.add(new InstallJournal.Step(InstallJournal.StepKind.PRESENT, s.getFileName(), s.sha256, s.version));
+            } else if (s.action == Action.REGISTER_EXISTING) {
+                // The file was there before; a rollback must only unregister it
+                steps.add(new InstallJournal.Step(InstallJournal.StepKind.PRESENT, s.getFileName(), s.sha256, s.version));
+                steps.add(new InstallJournal.Step(InstallJournal.StepKind.REGISTER_EXISTING, s.getFileName(), s.sha256,
+                    s.version));
+            } else {
+                steps.add(new InstallJournal.Step(InstallJournal.StepKind.EXTRACT, s.getFileName(), s.sha256,
+                    s.source.toString()));
+                steps.add(new InstallJournal.Step(s.action == Action.REGISTER
+                    ? InstallJournal.StepKind.REGISTER : InstallJournal.StepKind.COPY,
+                    s.getFileName(), s.sha256, s.version));
+            }
+        }
+        if (available.isEmpty() && !elsewhere) {
             throw new IOException("Font files not found. Include Monocraft-font folder or bundle fonts into the jar.");
         }
+        if (toRegister.isEmpty() && toUpdate.isEmpty() && journaled) {
+            startRefresh(false);
+            return Result.ALREADY_INSTALLED;
+        }
 
-        // Install fonts using PowerShell and Shell.Application COM object
-        // This is the proper way to install fonts on Windows
-        List<Path> fontsToInstall = new ArrayList<>();
-        if (ttc != null && Files.exists(ttc)) fontsToInstall.add(ttc);
-        if (ttf != null && Files.exists(ttf)) fontsToInstall.add(ttf);
-
-        for (Path fontFile : fontsToInstall) {
-            // Use PowerShell to install font via Shell.Application COM object
-            String psScript = String.format(
-                "$fontPath = '%s'; " +
-                "$shell = New-Object -ComObject Shell.Application; " +
-                "$fontsFolder = $shell.Namespace(0x14); " +
-                "$fontsFolder.CopyHere($fontPath, 0x10);",
-                fontFile.toString().replace("'", "''")
-            );
-            
-            SystemUtils.runCommand(new String[]{
-                "powershell", "-NoProfile", "-ExecutionPolicy", "Bypass", "-Command", psScript
-            }, true);
-        }
-
-        // Wait a moment for Windows to register the fonts
+        InstallJournal.Operation op = journal.begin(InstallJournal.OperationType.INSTALL);
         try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            op.steps(steps);
+
+            // Replace outdated copies in place; they are already registered
+            runParallel(toUpdate, s -> {
+                checkWritten(s, FileUtils.copyFile(s.source, fontsDest.resolve(s.getFileName())));
+                return null;
+            });
+
+            // Hand all new fonts to the platform in one go
+            if (!toRegister.isEmpty()) {
+                try (Metrics.Phase phase = Metrics.begin("register", toRegister.size() + " fonts")) {
+                    List<Path> sources = new ArrayList<>();
+                    long bytes = 0;
+                    for (Staged s : toRegister) {
+                        sources.add(s.source);
+                        bytes += Files.size(s.source);
+                    }
+                    Map<String, String> written = getBackend().register(sources);
+                    for (Staged s : toRegister) {
+                        checkWritten(s, written.get(s.getFileName()));
+                    }
+                    phase.done(bytes, "registered");
+                }
+            }
+        } catch (IOException e) {
+            try {
+                rollBackInstall(journal, op, fontsDest);
+            } catch (IOException rollbackFailure) {
+                // Left pending in the journal; retried on the next start
+                e.addSuppressed(rollbackFailure);
+            }
+            throw e;
         }
+        op.commit();
+        if (toRegister.isEmpty() && toUpdate.isEmpty()) {
+            startRefresh(false);
+            return Result.ALREADY_INSTALLED;
+        }
+        startRefresh(true);
 
-        // Verify installation
-        boolean success = verifyInstallation();
-        if (success) {
-            if (alsoAddToVSCode) {
-                SettingsManager.modifySettings(true, false);
-                JOptionPane.showMessageDialog(null, 
-                    "Fonts installed and added to VS Code successfully!", 
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(null, 
-                    "Fonts installed successfully!", 
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
+        // Every copy was hashed as it was written, so only check that the
+        // system has not moved or dropped any of them since
+        List<String> expected = new ArrayList<>();
+        for (Staged s : available) {
+            expected.add(s.getFileName());
+        }
+        try (Metrics.Phase phase = Metrics.begin("wait", expected.size() + " fonts")) {
+            boolean found = FileUtils.waitForFiles(fontsDest, expected, getVerifyTimeoutMillis());
+            phase.done(0, found ? "found" : "timed out");
+            if (!found) {
+                return Result.UNVERIFIED;
+            }
+        }
+        for (Staged s : toRegister) {
+            if (Files.size(fontsDest.resolve(s.getFileName())) != Files.size(s.source)) {
+                return Result.UNVERIFIED;
             }
-        } else {
-            JOptionPane.showMessageDialog(null, 
-                "Fonts copied but verification failed. You may need to restart applications or sign out/in.", 
-                "Partial Success", JOptionPane.WARNING_MESSAGE);
         }
+        return Result.INSTALLED;
+    }
+
+    /**
+     * Fails the installation if the bytes written for a font are not the
+     * ones staged, e.g. because the cached copy was damaged on disk. A
+     * damaged cache entry is dropped, so the next attempt extracts it again.
+     */
+    private static void checkWritten(Staged s, String writtenSha256) throws IOException {
+        if (s.sha256.equals(writtenSha256)) {
+            return;
+        }
+        if (ExtractionCache.getDefault().getSha256(s.source) != null) {
+            Files.deleteIfExists(s.source);
+        }
+        throw new IOException("Installed copy of " + s.getFileName() + " does not match the bundled font; "
+            + "please try again");
     }
 
     /**
-     * Uninstalls the Monocraft fonts from the current user's system.
+     * Uninstalls all bundled Monocraft fonts from the current user's system.
      * 
      * @throws IOException If font uninstallation fails
      */
     public static void uninstallFonts() throws IOException {
-        String localAppData = System.getenv("LOCALAPPDATA");
-        if (localAppData == null || localAppData.isEmpty()) {
-            localAppData = System.getProperty("user.home") + "\\AppData\\Local";
+        InstallJournal.Lock lock = InstallJournal.getDefault().lock();
+        try {
+            uninstall();
+        } finally {
+            lock.close();
+        }
+    }
+
+    private static void uninstall() throws IOException {
+        Path fontsDest = getUserFontsDir();
+
+        // Delete font files, including faces split from collections and any
+        // font the journal knows about
+        Set<String> fileNames = new LinkedHashSet<>();
+        for (FontManifest.Entry entry : FontManifest.getAll()) {
+            fileNames.add(entry.getFileName());
+        }
+        if (Files.isDirectory(fontsDest)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(fontsDest)) {
+                for (Path p : stream) {
+                    String name = p.getFileName().toString();
+                    for (FontManifest.Entry entry : FontManifest.getAll()) {
+                        if (entry.getFormat() == FontManifest.Format.TTC && name.startsWith(splitPrefix(entry))) {
+                            fileNames.add(name);
+                        }
+                    }
+                }
+            }
+        }
+        InstallJournal journal = InstallJournal.getDefault();
+        for (InstallJournal.Record record : journal.getInstalledFonts()) {
+            fileNames.add(record.getName());
+        }
+
+        InstallJournal.Operation op = journal.begin(InstallJournal.OperationType.UNINSTALL);
+        List<InstallJournal.Step> steps = new ArrayList<>();
+        for (String name : fileNames) {
+            steps.add(new InstallJournal.Step(InstallJournal.StepKind.DELETE, name, null, null));
+        }
+        op.steps(steps);
+        removeFonts(fontsDest, new ArrayList<>(fileNames));
+        op.commit();
+    }
+
+    /**
+     * Finishes an operation that was interrupted by a crash or by closing
+     * the application. An interrupted installation is rolled back: fonts it
+     * had begun to register are removed, replaced fonts are kept. An
+     * interrupted uninstallation or settings change is run again, since both
+     * are idempotent.
+     * 
+     * Nothing is done while another process holds the journal lock: its
+     * open operation is still running, not interrupted.
+     * 
+     * @return A description of what was recovered, or null if nothing was pending
+     * @throws IOException If the journal cannot be read or recovery fails
+     */
+    public static String recoverInterruptedOperation() throws IOException {
+        InstallJournal journal = InstallJournal.getDefault();
+        try (InstallJournal.Lock lock = journal.tryLock()) {
+            return lock == null ? null : recover(journal);
+        }
+    }
+
+    private static String recover(InstallJournal journal) throws IOException {
+        List<String> recovered = new ArrayList<>();
+        InstallJournal.Operation op;
+        while ((op = journal.getPendingOperation()) != null) {
+            switch (op.getType()) {
+                case INSTALL:
+                    rollBackInstall(journal, op, getUserFontsDir());
+                    recovered.add("Rolled back an interrupted font installation");
+                    break;
+                case UNINSTALL:
+                    op.abort("resumed");
+                    uninstall();
+                    recovered.add("Completed an interrupted font uninstallation");
+                    break;
+                default:
+                    op.abort("resumed");
+                    SettingsManager.modifySettings(op.getType() == InstallJournal.OperationType.ADD_SETTINGS);
+                    recovered.add("Completed an interrupted settings change");
+                    break;
+            }
+        }
+        return recovered.isEmpty() ? null : String.join("; ", recovered);
+    }
+
+    /**
+     * Undoes an installation that did not complete and aborts it in the
+     * journal. Newly registered fonts are removed. Fonts whose file was
+     * already in place are only unregistered again; the file stays. A
+     * replaced font whose copy was cut short is copied again from its
+     * source, or removed if the source is gone.
+     */
+    private static void rollBackInstall(InstallJournal journal, InstallJournal.Operation op, Path fontsDest)
+            throws IOException {
+        Map<String, String> sources = new HashMap<>();
+        List<String> remove = new ArrayList<>();
+        List<String> unregister = new ArrayList<>();
+        List<String> forget = new ArrayList<>();
+        for (InstallJournal.Step step : op.getSteps()) {
+            String name = step.getName();
+            switch (step.getKind()) {
+                case EXTRACT:
+                    sources.put(name, step.getInfo());
+                    break;
+                case REGISTER:
+                    remove.add(name);
+                    break;
+                case REGISTER_EXISTING:
+                    unregister.add(name);
+                    break;
+                case COPY: {
+                    Path installed = fontsDest.resolve(name);
+                    if (hasContent(installed, step.getSha256())) {
+                        break;
+                    }
+                    String source = sources.get(name);
+                    if (source != null && hasContent(Paths.get(source), step.getSha256())) {
+                        FileUtils.copyFile(Paths.get(source), installed);
+                    } else {
+                        remove.add(name);
+                        forget.add(name);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        if (!unregister.isEmpty()) {
+            try (Metrics.Phase phase = Metrics.begin("unregister", unregister.size() + " fonts")) {
+                getBackend().unregister(unregister);
+                phase.done(0, "unregistered");
+            }
+        }
+        removeFonts(fontsDest, remove);
+        op.abort("rolled back");
+        journal.forget(forget);
+    }
+
+    /**
+     * Returns true if a file exists and has the given SHA-256.
+     */
+    private static boolean hasContent(Path file, String sha256) throws IOException {
+        return Files.isRegularFile(file) && FileUtils.sha256(file).equals(sha256);
+    }
+
+    /**
+     * Removes the registrations of fonts, deletes their files from the user
+     * fonts folder and starts a font cache refresh. Unregistering comes
+     * first so the system no longer holds the files open.
+     */
+    private static void removeFonts(Path fontsDest, List<String> fileNames) throws IOException {
+        if (fileNames.isEmpty()) {
+            return;
+        }
+        try (Metrics.Phase phase = Metrics.begin("unregister", fileNames.size() + " fonts")) {
+            getBackend().unregister(fileNames);
+            phase.done(0, "unregistered");
+        }
+        int deleted = 0;
+        try (Metrics.Phase phase = Metrics.begin("delete", fileNames.size() + " fonts")) {
+            for (String name : fileNames) {
+                if (Files.deleteIfExists(fontsDest.resolve(name))) deleted++;
+            }
+            phase.done(0, deleted + " deleted");
+        }
+        startRefresh(deleted > 0);
+    }
+
+    /**
+     * Returns the backend for this platform. It is created on first use so
+     * that on a platform without one only the font actions fail.
+     *
+     * @throws UnsupportedOperationException If this platform has no backend
+     */
+    static synchronized FontBackend getBackend() {
+        if (backend == null) {
+            backend = FontBackend.getDefault();
+        }
+        return backend;
+    }
+
+    /**
+     * Replaces the platform's backend, e.g. with a
+     * {@link WindowsFontBackend} on a {@link MemoryFontRegistry} in tests.
+     *
+     * @param replacement The backend to use, or null for the platform's own
+     */
+    static synchronized void setBackend(FontBackend replacement) {
+        backend = replacement;
+    }
+
+    /**
+     * Starts refreshing the system font cache in the background; it runs
+     * while the caller goes on, e.g. to edit the settings.
+     */
+    private static void startRefresh(boolean changed) {
+        CompletableFuture<Void> refresh = getBackend().refresh(changed);
+        synchronized (FontInstaller.class) {
+            pendingRefresh = pendingRefresh.thenCombine(refresh, (a, b) -> null);
+        }
+    }
+
+    /**
+     * Waits for background work started by install or uninstall, such as a
+     * font cache refresh, e.g. before the process exits.
+     * 
+     * @param timeoutMillis Longest time to wait
+     * @return true if all background work has finished
+     */
+    public static boolean awaitBackgroundWork(long timeoutMillis) {
+        CompletableFuture<Void> refresh;
+        synchronized (FontInstaller.class) {
+            refresh = pendingRefresh;
+        }
+        try {
+            refresh.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
         }
-        Path fontsDest = Paths.get(localAppData, "Microsoft", "Windows", "Fonts");
+    }
 
-        // Delete font files
-        Path ttc = fontsDest.resolve("Monocraft-nerd-fonts-patched.ttc");
-        Path ttf = fontsDest.resolve("Monocraft.ttf");
-        if (Files.exists(ttc)) Files.delete(ttc);
-        if (Files.exists(ttf)) Files.delete(ttf);
+    /**
+     * What the installer has to do for one font.
+     */
+    private enum Action {
+        /** The font is neither bundled nor next to the application. */
+        NOT_FOUND,
+        /** The font is not installed and must be registered with the system. */
+        REGISTER,
+        /** The installed copy is outdated and must be replaced. */
+        UPDATE,
+        /** The installed copy is identical. */
+        UNCHANGED,
+        /** The installed copy is identical but not registered, e.g. put there by fleet mode. */
+        REGISTER_EXISTING,
+        /** Not installed under its own name, but the same font is under another. */
+        INSTALLED_ELSEWHERE
+    }
 
-        // Remove registry entries
-        String regPath = String.join("\\", "HKCU", "Software", "Microsoft", "Windows NT", "CurrentVersion", "Fonts");
-        SystemUtils.runCommand(new String[]{
-            "reg", "delete", regPath,
-            "/v", FONT_NERD_NAME, "/f"
-        }, true);
-        SystemUtils.runCommand(new String[]{
-            "reg", "delete", regPath,
-            "/v", FONT_REGULAR_NAME, "/f"
-        }, true);
+    /**
+     * A font located on disk together with the action it needs.
+     */
+    private static final class Staged {
+        final FontManifest.Entry entry;
+        final Path source;
+        final Action action;
+        final String sha256;
+        final String version;
 
-        JOptionPane.showMessageDialog(null, 
-            "Fonts uninstalled for the current user.", 
-            "Uninstalled", JOptionPane.INFORMATION_MESSAGE);
+        Staged(FontManifest.Entry entry, Path source, Action action, String sha256, String version) {
+            this.entry = entry;
+            this.source = source;
+            this.action = action;
+            this.sha256 = sha256;
+            this.version = version;
+        }
+
+        /** Name of the installed file; differs from the entry's for split collections. */
+        String getFileName() {
+            return source != null ? source.getFileName().toString() : entry.getFileName();
+        }
     }
 
     /**
-     * Extracts bundled font files from JAR resources to a temp directory.
+     * Work done for each font on the install pool.
+     */
+    private interface FontTask<T, R> {
+        R run(T item) throws IOException;
+    }
+
+    /**
+     * Locates one font (or, for a split collection, each of its faces),
+     * hashes it and compares it with the installed copy.
+     */
+    private static List<Staged> stage(FontManifest.Entry entry, boolean split, ExtractionCache cache, FontPack pack,
+                                      List<Path> fallbackDirs, Path fontsDest, InstallJournal journal)
+            throws IOException {
+        List<Path> sources = locateSources(entry, split, cache, pack, fallbackDirs);
+        if (sources.isEmpty()) {
+            return Collections.singletonList(new Staged(entry, null, Action.NOT_FOUND, null, null));
+        }
+        List<Staged> staged = new ArrayList<>(sources.size());
+        for (Path source : sources) {
+            String fileName = source.getFileName().toString();
+            Path installed = fontsDest.resolve(fileName);
+            try (Metrics.Phase phase = Metrics.begin("compare", fileName)) {
+                long size = Files.size(source);
+                long bytes = 0;
+                // Cache entries are named by their hash; other sources are read once
+                String sha256 = cache.getSha256(source);
+                if (sha256 == null) {
+                    sha256 = FileUtils.sha256(source);
+                    bytes += size;
+                }
+                Action action;
+                if (!Files.exists(installed)) {
+                    action = Action.REGISTER;
+                } else if (isJournaledCopy(journal, installed, sha256, size)) {
+                    action = Action.UNCHANGED;
+                } else if (Files.size(installed) == size && FileUtils.sha256(installed).equals(sha256)) {
+                    action = Action.UNCHANGED;
+                    bytes += size;
+                } else {
+                    action = Action.UPDATE;
+                }
+                staged.add(new Staged(entry, source, action, sha256, fontVersion(source)));
+                phase.done(bytes, action.name().toLowerCase(Locale.ROOT));
+            }
+        }
+        return staged;
+    }
+
+    /**
+     * Locates, extracts and, if requested, splits the bundled fonts of a
+     * selection without installing them.
      * 
-     * @return List of extracted font file paths
-     */
-    private static List<Path> extractBundledFonts() throws IOException {
-        List<Path> results = new ArrayList<>();
-        String[] candidates = new String[]{
-            "/Monocraft-font/Monocraft-nerd-fonts-patched.ttc", 
-            "/Monocraft-font/Monocraft-ttf-otf/other-formats/Monocraft.ttf"
-        };
-        
-        Path tmpDir = Paths.get(System.getProperty("java.io.tmpdir"), "monocraft-fonts-" + System.currentTimeMillis());
-        if (!Files.exists(tmpDir)) {
-            Files.createDirectories(tmpDir);
-        }
-        
-        for (String c : candidates) {
-            java.io.InputStream is = null;
+     * @param selection The fonts to locate
+     * @return The font files, in manifest order
+     * @throws IOException If no selected font is bundled
+     */
+    static List<Path> locateBundledFonts(FontManifest.Selection selection) throws IOException {
+        ExtractionCache cache = ExtractionCache.getDefault();
+        FontPack pack = getFontPack();
+        List<Path> fallbackDirs = getFallbackFontDirs();
+        boolean split = selection.splitsCollections();
+        List<Path> fonts = new ArrayList<>();
+        for (List<Path> sources : runParallel(FontManifest.select(selection),
+                e -> locateSources(e, split, cache, pack, fallbackDirs))) {
+            fonts.addAll(sources);
+        }
+        cache.evict();
+        if (fonts.isEmpty()) {
+            throw new IOException("Font files not found. Include Monocraft-font folder or bundle fonts into the jar.");
+        }
+        return fonts;
+    }
+
+    /**
+     * Returns the version string of a font's first face, or null if the
+     * font cannot be read.
+     */
+    private static String fontVersion(Path font) {
+        try {
+            List<FontFile.Face> faces = FontFile.readHeaders(font).getFaces();
+            return faces.isEmpty() ? null : faces.get(0).getVersion();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the files to install for an entry: the font itself, or the
+     * faces of a collection written as single fonts when splitting is
+     * requested. Empty if the font is not bundled.
+     */
+    private static List<Path> locateSources(FontManifest.Entry entry, boolean split, ExtractionCache cache,
+                                            FontPack pack, List<Path> fallbackDirs) throws IOException {
+        Path source = locateFont(entry, cache, pack, fallbackDirs);
+        if (source == null) {
+            return Collections.emptyList();
+        }
+        if (split && entry.getFormat() == FontManifest.Format.TTC) {
+            // Split next to the cached collection, keyed by its content hash
+            String key = source.startsWith(cache.getRoot())
+                ? source.getParent().getFileName().toString() : FileUtils.sha256(source);
+            return FontCollectionSplitter.split(source, cache.getRoot().resolve(key + "-faces"), splitPrefix(entry));
+        }
+        return Collections.singletonList(source);
+    }
+
+    /**
+     * Returns the file name prefix of the faces split from a collection.
+     */
+    private static String splitPrefix(FontManifest.Entry entry) {
+        String name = entry.getFileName();
+        return name.substring(0, name.lastIndexOf('.')) + "-";
+    }
+
+    /**
+     * Returns a font file from the extraction cache, taken from the bundled
+     * font pack or a separate JAR resource, or from a fonts folder next to
+     * the application or in the project when it is not bundled.
+     */
+    private static Path locateFont(FontManifest.Entry entry, ExtractionCache cache, FontPack pack, List<Path> fallbackDirs) {
+        try {
+            Path extracted = pack != null
+                ? cache.extract(pack, entry.getRelativePath())
+                : cache.extract(entry.getResource());
+            if (extracted != null) return extracted;
+        } catch (IOException ignored) {
+        }
+        for (Path dir : fallbackDirs) {
+            Path candidate = dir.resolve(entry.getRelativePath());
+            if (Files.isRegularFile(candidate)) return candidate;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the bundled font pack, or null to fall back to separate
+     * resources if there is none or it cannot be read.
+     */
+    private static FontPack getFontPack() {
+        try {
+            return FontPack.getBundled();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the folders searched for fonts that are not bundled in the JAR:
+     * the application directory (jpackage builds) and the project's
+     * resources (development builds).
+     */
+    private static List<Path> getFallbackFontDirs() {
+        String appDir = System.getProperty("app.dir");
+        if (appDir == null || appDir.isEmpty()) {
+            // Fallback: get directory of the running application
             try {
-                is = FontInstaller.class.getResourceAsStream(c);
-                if (is == null) continue;
-                
-                Path out = tmpDir.resolve(Paths.get(c).getFileName().toString());
-                Files.copy(is, out, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                results.add(out);
-            } catch (Exception ignored) {
-            } finally {
-                if (is != null) {
-                    try { is.close(); } catch (IOException ignored) {}
+                appDir = new java.io.File(FontInstaller.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getParent();
+            } catch (Exception e) {
+                appDir = Paths.get("").toAbsolutePath().toString();
+            }
+        }
+        List<Path> dirs = new ArrayList<>();
+        dirs.add(Paths.get(appDir));
+        dirs.add(Paths.get("").toAbsolutePath().resolve("resources").resolve("fonts").resolve("Monocraft-font"));
+        return dirs;
+    }
+
+    /**
+     * Runs a task for each item on a small bounded pool and returns the
+     * results in item order. The first failure is rethrown once all tasks
+     * have finished.
+     */
+    private static <T, R> List<R> runParallel(List<T> items, FontTask<T, R> task) throws IOException {
+        List<R> results = new ArrayList<>(items.size());
+        if (items.size() <= 1) {
+            for (T item : items) {
+                results.add(task.run(item));
+            }
+            return results;
+        }
+
+        int threads = Math.min(items.size(), Math.min(MAX_PARALLEL_FONTS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(threads, 2), r -> {
+            Thread t = new Thread(r, "font-install");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(pool.submit(() -> task.run(item)));
+            }
+            IOException failure = null;
+            for (Future<R> f : futures) {
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause() : new IOException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted");
                 }
             }
+            if (failure != null) {
+                throw failure;
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies that the default fonts (Nerd Font and regular Monocraft) are
+     * installed, intact and the same version as the bundled ones.
+     * 
+     * @return true if the installed fonts match the bundled fonts
+     */
+    public static boolean verifyInstallation() {
+        return verifyInstallation(FontManifest.Selection.DEFAULT);
+    }
+
+    /**
+     * Verifies that every font of a selection is installed, intact and the
+     * same version as the bundled one. Fonts that are not bundled with this
+     * build are ignored.
+     * 
+     * @param selection The fonts to look for
+     * @return true if all selected fonts match the bundled fonts
+     */
+    public static boolean verifyInstallation(FontManifest.Selection selection) {
+        try {
+            return isInstalled(checkInstallation(selection));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if the checks found at least one current font and no
+     * missing, outdated, damaged or unregistered ones.
+     */
+    public static boolean isInstalled(List<FontCheck> checks) {
+        boolean any = false;
+        for (FontCheck check : checks) {
+            if (check.getStatus() == FontStatus.CURRENT) {
+                any = true;
+            } else if (check.getStatus() != FontStatus.NOT_BUNDLED) {
+                return false;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * State of one installed font compared to the bundled one.
+     */
+    public enum FontStatus {
+        /** Installed, intact and the same build as the bundled font. */
+        CURRENT,
+        /** Not in the user fonts folder. */
+        MISSING,
+        /** Installed but a different version or a different font. */
+        OUTDATED,
+        /** Installed but truncated, damaged or not a font. */
+        CORRUPT,
+        /** Current, but only copied into the fonts folder and not registered with the system. */
+        UNREGISTERED,
+        /** Not bundled with this build; only checked for damage if installed. */
+        NOT_BUNDLED
+    }
+
+    /**
+     * Verification result for one font.
+     */
+    public static class FontCheck {
+        private final FontManifest.Entry entry;
+        private final String fileName;
+        private final FontStatus status;
+        private final String detail;
+        /** The bundled font compared against, or null. */
+        final Path bundled;
+        /** Found under other file names rather than {@link #getFileName()}. */
+        final boolean elsewhere;
+        /** Known current and registered from the journal, without reading it. */
+        final boolean journaled;
+
+        FontCheck(FontManifest.Entry entry, String fileName, FontStatus status, String detail) {
+            this(entry, fileName, status, detail, null, false, false);
+        }
+
+        FontCheck(FontManifest.Entry entry, String fileName, FontStatus status, String detail, Path bundled,
+                  boolean elsewhere) {
+            this(entry, fileName, status, detail, bundled, elsewhere, false);
+        }
+
+        FontCheck(FontManifest.Entry entry, String fileName, FontStatus status, String detail, Path bundled,
+                  boolean elsewhere, boolean journaled) {
+            this.entry = entry;
+            this.fileName = fileName;
+            this.status = status;
+            this.detail = detail;
+            this.bundled = bundled;
+            this.elsewhere = elsewhere;
+            this.journaled = journaled;
+        }
+
+        public FontManifest.Entry getEntry() {
+            return entry;
+        }
+
+        /** Installed file name; one of several for a split collection. */
+        public String getFileName() {
+            return fileName;
+        }
+
+        public FontStatus getStatus() {
+            return status;
+        }
+
+        /** What differs or is damaged, or null. */
+        public String getDetail() {
+            return detail;
         }
-        return results;
     }
 
     /**
-     * Verifies if fonts are properly installed.
+     * Compares each installed font of a selection with the bundled one by
+     * reading the font headers: table checksums must be valid and the
+     * names, revision and checksum adjustment of every face must match.
+     * Matching fonts are then looked up in the system's registrations.
      * 
-     * @return true if at least one font file is found
+     * A font the journal recorded with the bundled font's hash is taken as
+     * current and registered without reading it or asking the system, as
+     * long as its size matches and it was not modified after that install;
+     * this keeps the check at logon to a few file attribute reads when
+     * nothing has changed.
+     * 
+     * @param selection The fonts to check
+     * @return One result per installed file, in manifest order
+     * @throws IOException If the checks cannot be run
+     */
+    public static List<FontCheck> checkInstallation(FontManifest.Selection selection) throws IOException {
+        Path fontsDest = getUserFontsDir();
+        ExtractionCache cache = ExtractionCache.getDefault();
+        FontPack pack = getFontPack();
+        List<Path> fallbackDirs = getFallbackFontDirs();
+        boolean split = selection.splitsCollections();
+        InstallJournal journal = InstallJournal.getDefault();
+        List<FontCheck> checks = new ArrayList<>();
+        for (List<FontCheck> c : runParallel(FontManifest.select(selection), entry -> {
+            List<Path> sources = locateSources(entry, split, cache, pack, fallbackDirs);
+            if (sources.isEmpty()) {
+                return Collections.singletonList(checkFont(entry, entry.getFileName(), null, fontsDest, null, null));
+            }
+            List<FontCheck> results = new ArrayList<>(sources.size());
+            for (Path source : sources) {
+                results.add(checkFont(entry, source.getFileName().toString(), source, fontsDest, cache.getSha256(source),
+                    journal));
+            }
+            return results;
+        })) {
+            checks.addAll(c);
+        }
+
+        FontInventory inventory = null;
+        for (int i = 0; i < checks.size(); i++) {
+            FontCheck c = checks.get(i);
+            if (c.getStatus() != FontStatus.MISSING) continue;
+            if (inventory == null) inventory = refreshedInventory();
+            List<Path> files = findElsewhere(inventory, c.bundled, fontsDest.resolve(c.getFileName()));
+            if (!files.isEmpty()) {
+                List<String> names = new ArrayList<>();
+                for (Path f : files) names.add(f.toString());
+                checks.set(i, new FontCheck(c.getEntry(), c.getFileName(), FontStatus.CURRENT,
+                    "installed as " + String.join(", ", names), c.bundled, true));
+            }
+        }
+
+        Set<String> registered = null;
+        for (int i = 0; i < checks.size(); i++) {
+            FontCheck c = checks.get(i);
+            if (c.getStatus() != FontStatus.CURRENT || c.elsewhere || c.journaled) continue;
+            if (registered == null) registered = getBackend().getRegisteredFiles();
+            if (!registered.contains(c.getFileName().toLowerCase(Locale.ROOT))) {
+                checks.set(i, new FontCheck(c.getEntry(), c.getFileName(), FontStatus.UNREGISTERED,
+                    "in the fonts folder but not registered"));
+            }
+        }
+        return checks;
+    }
+
+    /**
+     * Compares one installed file with its bundled source, if any.
+     *
+     * @param bundledSha256 SHA-256 of the bundled font if known without reading it, or null
+     * @param journal The install journal, or null to always read the installed font
+     */
+    private static FontCheck checkFont(FontManifest.Entry entry, String fileName, Path bundled, Path fontsDest,
+                                       String bundledSha256, InstallJournal journal) throws IOException {
+        try (Metrics.Phase phase = Metrics.begin("check", fileName)) {
+            Path installed = fontsDest.resolve(fileName);
+            if (bundled != null && isJournaledCopy(journal, installed, bundledSha256, Files.size(bundled))) {
+                phase.done(0, "journaled");
+                return new FontCheck(entry, fileName, FontStatus.CURRENT, null, bundled, false, true);
+            }
+            FontCheck check = compareFont(entry, fileName, bundled, installed);
+            phase.done(Files.isRegularFile(installed) ? Files.size(installed) : 0,
+                check.getStatus().name().toLowerCase(Locale.ROOT));
+            return check;
+        }
+    }
+
+    private static FontCheck compareFont(FontManifest.Entry entry, String fileName, Path bundled, Path installed)
+            throws IOException {
+        if (!Files.isRegularFile(installed)) {
+            return new FontCheck(entry, fileName, bundled == null ? FontStatus.NOT_BUNDLED : FontStatus.MISSING, null,
+                bundled, false);
+        }
+        FontFile installedFont;
+        try {
+            installedFont = FontFile.read(installed);
+        } catch (IOException e) {
+            return new FontCheck(entry, fileName, FontStatus.CORRUPT, e.getMessage());
+        }
+        if (!installedFont.isValid()) {
+            return new FontCheck(entry, fileName, FontStatus.CORRUPT, String.join("; ", installedFont.getProblems()));
+        }
+        if (bundled == null) {
+            return new FontCheck(entry, fileName, FontStatus.NOT_BUNDLED, null);
+        }
+        // The bundled copy is known to be intact, so only its headers are needed
+        FontFile bundledFont = FontFile.readHeaders(bundled);
+        if (!installedFont.sameFontsAs(bundledFont)) {
+            return new FontCheck(entry, fileName, FontStatus.OUTDATED,
+                "installed " + installedFont.getFaces() + ", bundled " + bundledFont.getFaces());
+        }
+        return new FontCheck(entry, fileName, FontStatus.CURRENT, null);
+    }
+
+    /**
+     * Returns true if an installed font is still the copy the journal
+     * recorded with the given content: same size, and not modified since
+     * the install that recorded it was committed. Only file attributes are
+     * read.
+     *
+     * @param journal The install journal, or null
+     * @param sha256 SHA-256 of the expected content, or null if unknown
      */
-    private static boolean verifyInstallation() throws IOException {
-        String localAppData = System.getenv("LOCALAPPDATA");
-        if (localAppData == null || localAppData.isEmpty()) {
-            localAppData = System.getProperty("user.home") + "\\AppData\\Local";
+    private static boolean isJournaledCopy(InstallJournal journal, Path installed, String sha256, long size) {
+        if (journal == null || sha256 == null) {
+            return false;
+        }
+        InstallJournal.Record record = journal.getInstalledFont(installed.getFileName().toString());
+        if (record == null || !record.getSha256().equals(sha256)) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(installed, BasicFileAttributes.class);
+            return attrs.isRegularFile() && attrs.size() == size
+                && attrs.lastModifiedTime().toMillis() <= record.getTime();
+        } catch (IOException e) {
+            return false;
         }
-        Path fontsDest = Paths.get(localAppData, "Microsoft", "Windows", "Fonts");
-        boolean hasTtc = Files.exists(fontsDest.resolve("Monocraft-nerd-fonts-patched.ttc"));
-        boolean hasTtf = Files.exists(fontsDest.resolve("Monocraft.ttf"));
-        return hasTtc || hasTtf;
+    }
+
+    /**
+     * Returns the font inventory, brought up to date unless its index file
+     * cannot be written.
+     */
+    private static FontInventory refreshedInventory() {
+        FontInventory inventory = FontInventory.getDefault();
+        try {
+            inventory.refresh();
+        } catch (IOException e) {
+            // Entries listed before the index failed to save are still current
+        }
+        return inventory;
+    }
+
+    /**
+     * Returns the files that hold the same font (full names and version)
+     * as a bundled one under other names, or an empty list. The install
+     * target itself does not count: the user fonts folder is searched too,
+     * and a copy there that is not registered (fleet mode) must still be
+     * registered rather than skipped.
+     */
+    private static List<Path> findElsewhere(FontInventory inventory, Path bundled, Path target) {
+        if (inventory == null || bundled == null) {
+            return Collections.emptyList();
+        }
+        try {
+            List<Path> files = new ArrayList<>(inventory.locate(FontFile.readHeaders(bundled)));
+            Path normalizedTarget = target.toAbsolutePath().normalize();
+            files.removeIf(f -> f.toAbsolutePath().normalize().equals(normalizedTarget));
+            return files;
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the per-user fonts directory of this platform's backend.
+     */
+    static Path getUserFontsDir() {
+        return getBackend().getFontsDir();
+    }
+
+    /**
+     * Returns how long to wait for installed fonts to appear, configurable
+     * with the {@code monocraft.verifyTimeoutMillis} system property.
+     */
+    static long getVerifyTimeoutMillis() {
+        return Long.getLong("monocraft.verifyTimeoutMillis", DEFAULT_VERIFY_TIMEOUT_MILLIS);
     }
 }
@@ -0,0 +1,429 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Index of the fonts installed on this machine, by file.
+ *
+ * For every font file below the backend's search folders the index keeps
+ * size and modification time next to the family, style, full name and
+ * version of each face. It is stored in the app data folder, so a
+ * {@link #refresh()} only lists the folders and parses files that are new
+ * or changed, in parallel and reading headers only. This finds Monocraft
+ * installed under other file names, e.g. from the upstream release or a
+ * Nerd Fonts package, without reading thousands of fonts on each start.
+ *
+ * Index format, one line per face (a file that is not a readable font has
+ * one line with only the first three fields):
+ * <pre>
+ * path  size  mtimeMillis  family  subfamily  fullName  version
+ * </pre>
+ */
+public class FontInventory {
+    private static final String FILE_NAME = "font-index.tsv";
+    private static final String HEADER = "# monocraft font index 1";
+    private static final int MAX_PARALLEL_PARSES = 4;
+
+    private static FontInventory defaultInventory;
+
+    private final Path file;
+    private final List<Path> searchDirs;
+    private final Map<Path, Entry> entries = new HashMap<>();
+    private boolean loaded;
+
+    /**
+     * One face of an indexed font.
+     */
+    public static class Face {
+        private final String family;
+        private final String subfamily;
+        private final String fullName;
+        private final String version;
+
+        Face(String family, String subfamily, String fullName, String version) {
+            this.family = family;
+            this.subfamily = subfamily;
+            this.fullName = fullName;
+            this.version = version;
+        }
+
+        public String getFamily() {
+            return family;
+        }
+
+        /** Style, e.g. "Regular" or "Bold Italic". */
+        public String getSubfamily() {
+            return subfamily;
+        }
+
+        public String getFullName() {
+            return fullName;
+        }
+
+        /** The name table's version string, e.g. "Version 4.0". */
+        public String getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * One indexed file and its faces.
+     */
+    public static class Entry {
+        private final Path path;
+        private final long size;
+        private final long modified;
+        private final List<Face> faces;
+
+        Entry(Path path, long size, long modified, List<Face> faces) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.faces = Collections.unmodifiableList(faces);
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /** Modification time in milliseconds when the file was parsed. */
+        public long getModified() {
+            return modified;
+        }
+
+        /** The faces; empty if the file is not a readable font. */
+        public List<Face> getFaces() {
+            return faces;
+        }
+    }
+
+    /**
+     * What a refresh had to do.
+     */
+    public static class RefreshStats {
+        private final int files;
+        private final int parsed;
+        private final int removed;
+        private final long durationMillis;
+
+        RefreshStats(int files, int parsed, int removed, long durationMillis) {
+            this.files = files;
+            this.parsed = parsed;
+            this.removed = removed;
+            this.durationMillis = durationMillis;
+        }
+
+        /** Font files found in the search folders. */
+        public int getFiles() {
+            return files;
+        }
+
+        /** Files that were new or changed and had to be parsed. */
+        public int getParsed() {
+            return parsed;
+        }
+
+        /** Indexed files that no longer exist. */
+        public int getRemoved() {
+            return removed;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    /**
+     * Creates an inventory of the given folders, stored in the given file.
+     * Nothing is read until the first refresh.
+     */
+    public FontInventory(Path file, List<Path> searchDirs) {
+        this.file = file;
+        this.searchDirs = new ArrayList<>(searchDirs);
+    }
+
+    /**
+     * Returns the inventory of this platform's font folders, stored in the
+     * app data folder; a new one if the folder or backend has changed.
+     */
+    public static synchronized FontInventory getDefault() {
+        Path file = SystemUtils.getAppDataDir().resolve(FILE_NAME);
+        List<Path> searchDirs = FontInstaller.getBackend().getSearchDirs();
+        if (defaultInventory == null || !defaultInventory.file.equals(file)
+                || !defaultInventory.searchDirs.equals(searchDirs)) {
+            defaultInventory = new FontInventory(file, searchDirs);
+        }
+        return defaultInventory;
+    }
+
+    /**
+     * Brings the index up to date with the search folders: unchanged files
+     * (same size and modification time) keep their entry, new and changed
+     * ones are parsed in parallel, and deleted ones are dropped. The index
+     * file is rewritten only if anything changed.
+     *
+     * @return What had to be done
+     * @throws IOException If the index file cannot be written
+     */
+    public synchronized RefreshStats refresh() throws IOException {
+        long start = System.nanoTime();
+        try (Metrics.Phase phase = Metrics.begin("inventory", file.toString())) {
+            if (!loaded) {
+                load();
+                loaded = true;
+            }
+            Map<Path, BasicFileAttributes> found = listFonts();
+            List<Path> changed = new ArrayList<>();
+            for (Map.Entry<Path, BasicFileAttributes> f : found.entrySet()) {
+                Entry e = entries.get(f.getKey());
+                if (e == null || e.size != f.getValue().size()
+                    || e.modified != f.getValue().lastModifiedTime().toMillis()) {
+                    changed.add(f.getKey());
+                }
+            }
+            int removed = 0;
+            for (Path p : new ArrayList<>(entries.keySet())) {
+                if (!found.containsKey(p)) {
+                    entries.remove(p);
+                    removed++;
+                }
+            }
+            for (Entry e : parseAll(changed, found)) {
+                entries.put(e.path, e);
+            }
+            if (!changed.isEmpty() || removed > 0) {
+                save();
+            }
+            phase.done(0, changed.size() + " parsed");
+            return new RefreshStats(found.size(), changed.size(), removed, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Returns the indexed files with at least one face whose family starts
+     * with the given name, ignoring case, e.g. "Monocraft" also matches
+     * "Monocraft Nerd Font". Call {@link #refresh()} first.
+     */
+    public synchronized List<Entry> findFamily(String family) {
+        String prefix = family.toLowerCase(Locale.ROOT);
+        List<Entry> result = new ArrayList<>();
+        for (Entry e : entries.values()) {
+            for (Face face : e.faces) {
+                if (face.family != null && face.family.toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                    result.add(e);
+                    break;
+                }
+            }
+        }
+        result.sort((a, b) -> a.path.compareTo(b.path));
+        return result;
+    }
+
+    /**
+     * Returns the indexed files that together hold every face of a font
+     * with the same full name and version, or an empty list if any face is
+     * missing. Call {@link #refresh()} first.
+     *
+     * @param font Headers of the font to look for
+     */
+    public synchronized List<Path> locate(FontFile font) {
+        Set<Path> files = new LinkedHashSet<>();
+        for (FontFile.Face wanted : font.getFaces()) {
+            Path match = null;
+            for (Entry e : entries.values()) {
+                for (Face face : e.faces) {
+                    if (wanted.getFullName() != null && wanted.getFullName().equalsIgnoreCase(face.fullName)
+                        && wanted.getVersion() != null && wanted.getVersion().equals(face.version)) {
+                        match = e.path;
+                        break;
+                    }
+                }
+                if (match != null) break;
+            }
+            if (match == null) {
+                return Collections.emptyList();
+            }
+            files.add(match);
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Returns the number of indexed files.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Lists the font files below the search folders with their attributes,
+     * taken from the directory walk itself.
+     */
+    private Map<Path, BasicFileAttributes> listFonts() throws IOException {
+        Map<Path, BasicFileAttributes> found = new HashMap<>();
+        for (Path dir : searchDirs) {
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile() && isFontFile(f)) {
+                            found.putIfAbsent(f.toAbsolutePath(), attrs);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path f, IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+        }
+        return found;
+    }
+
+    private static boolean isFontFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".ttf") || name.endsWith(".otf") || name.endsWith(".ttc") || name.endsWith(".otc");
+    }
+
+    /**
+     * Parses the headers of the given files on a small bounded pool.
+     */
+    private static List<Entry> parseAll(List<Path> files, Map<Path, BasicFileAttributes> attrs) throws IOException {
+        List<Entry> result = new ArrayList<>(files.size());
+        if (files.size() <= 1) {
+            for (Path f : files) {
+                result.add(parse(f, attrs.get(f)));
+            }
+            return result;
+        }
+        int threads = Math.min(files.size(), Math.min(MAX_PARALLEL_PARSES, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(threads, 1), r -> {
+            Thread t = new Thread(r, "font-index");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Entry>> futures = new ArrayList<>(files.size());
+            for (Path f : files) {
+                futures.add(pool.submit(() -> parse(f, attrs.get(f))));
+            }
+            for (Future<Entry> f : futures) {
+                try {
+                    result.add(f.get());
+                } catch (ExecutionException e) {
+                    // parse() catches everything it expects; anything else is a bug
+                    throw new IOException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted");
+                }
+            }
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads one file's faces; a file that is not a readable font is indexed
+     * without faces so it is not parsed again until it changes.
+     */
+    private static Entry parse(Path file, BasicFileAttributes attrs) {
+        List<Face> faces = new ArrayList<>();
+        try {
+            for (FontFile.Face face : FontFile.readHeaders(file).getFaces()) {
+                faces.add(new Face(face.getFamily(), face.getSubfamily(), face.getFullName(), face.getVersion()));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Damaged or not a font
+        }
+        return new Entry(file, attrs.size(), attrs.lastModifiedTime().toMillis(), faces);
+    }
+
+    /**
+     * Reads the index file; a missing or unreadable one starts an empty
+     * index, which the next refresh fills.
+     */
+    private void load() {
+        entries.clear();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return;
+        }
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            return;
+        }
+        Map<Path, List<Face>> faces = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] f = line.split("\t", -1);
+            if (f.length != 3 && f.length != 7) {
+                continue;
+            }
+            try {
+                Path path = Paths.get(InstallJournal.unescape(f[0]));
+                List<Face> list = faces.computeIfAbsent(path, k -> new ArrayList<>());
+                if (f.length == 7) {
+                    list.add(new Face(emptyToNull(f[3]), emptyToNull(f[4]), emptyToNull(f[5]), emptyToNull(f[6])));
+                }
+                entries.put(path, new Entry(path, Long.parseLong(f[1]), Long.parseLong(f[2]), list));
+            } catch (RuntimeException e) {
+                // Skip a damaged line; the file is parsed again
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        for (Entry e : entries.values()) {
+            String prefix = InstallJournal.escape(e.path.toString()) + '\t' + e.size + '\t' + e.modified;
+            if (e.faces.isEmpty()) {
+                sb.append(prefix).append('\n');
+            }
+            for (Face face : e.faces) {
+                sb.append(prefix).append('\t').append(field(face.family)).append('\t').append(field(face.subfamily))
+                  .append('\t').append(field(face.fullName)).append('\t').append(field(face.version)).append('\n');
+            }
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileUtils.writeAtomically(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String field(String s) {
+        return s == null ? "" : InstallJournal.escape(s);
+    }
+
+    private static String emptyToNull(String s) {
+        return s.isEmpty() ? null : InstallJournal.unescape(s);
+    }
+}
@@ -0,0 +1,238 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lists the font files bundled with the application and selects the subset
+ * to install.
+ *
+ * The bundle contains the Nerd Font collection plus the Monocraft family in
+ * six weights, each upright and italic, as both TrueType and OpenType. All
+ * paths are relative to the {@code Monocraft-font} folder, which is either a
+ * JAR resource directory or a folder next to the application.
+ */
+public class FontManifest {
+    private static final String BASE = "Monocraft-ttf-otf/other-formats/";
+
+    /**
+     * Font file format.
+     */
+    public enum Format {
+        TTF,
+        OTF,
+        /** TrueType collection; only used for the Nerd Font. */
+        TTC
+    }
+
+    /**
+     * Font weight, with the name used in the bundled file names.
+     */
+    public enum Weight {
+        EXTRA_LIGHT("ExtraLight"),
+        LIGHT("Light"),
+        REGULAR(""),
+        SEMI_BOLD("SemiBold"),
+        BOLD("Bold"),
+        BLACK("Black");
+
+        private final String fileToken;
+
+        Weight(String fileToken) {
+            this.fileToken = fileToken;
+        }
+
+        /**
+         * Parses a weight name such as {@code bold}, {@code semibold} or
+         * {@code extra-light}, ignoring case, dashes and underscores.
+         *
+         * @throws IllegalArgumentException If the name is not a weight
+         */
+        public static Weight parse(String name) {
+            String key = name.replace("-", "").replace("_", "").toLowerCase(Locale.ROOT);
+            for (Weight w : values()) {
+                if (w.name().replace("_", "").toLowerCase(Locale.ROOT).equals(key)) {
+                    return w;
+                }
+            }
+            throw new IllegalArgumentException("Unknown font weight: " + name);
+        }
+    }
+
+    /**
+     * One bundled font file.
+     */
+    public static class Entry {
+        private final String relativePath;
+        private final Format format;
+        private final Weight weight;
+        private final boolean italic;
+
+        Entry(String relativePath, Format format, Weight weight, boolean italic) {
+            this.relativePath = relativePath;
+            this.format = format;
+            this.weight = weight;
+            this.italic = italic;
+        }
+
+        /** Path below the {@code Monocraft-font} folder, using '/' separators. */
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        /** Absolute classpath resource name. */
+        public String getResource() {
+            return "/Monocraft-font/" + relativePath;
+        }
+
+        /** File name, as installed in the fonts folder. */
+        public String getFileName() {
+            return relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        }
+
+        public Format getFormat() {
+            return format;
+        }
+
+        public Weight getWeight() {
+            return weight;
+        }
+
+        public boolean isItalic() {
+            return italic;
+        }
+
+        @Override
+        public String toString() {
+            return getFileName();
+        }
+    }
+
+    /**
+     * Which bundled fonts to install.
+     */
+    public static class Selection {
+        /** The Nerd Font collection and the regular TrueType font. */
+        public static final Selection DEFAULT =
+            new Selection(true, EnumSet.of(Weight.REGULAR), EnumSet.of(Format.TTF), false);
+        /** Every weight and style as TrueType, plus the Nerd Font. */
+        public static final Selection FULL_FAMILY =
+            new Selection(true, EnumSet.allOf(Weight.class), EnumSet.of(Format.TTF), true);
+
+        private final boolean nerdFont;
+        private final Set<Weight> weights;
+        private final Set<Format> formats;
+        private final boolean italics;
+        private final boolean splitCollections;
+
+        /**
+         * @param nerdFont Whether to include the Nerd Font collection
+         * @param weights Weights of the Monocraft family to include
+         * @param formats TTF and/or OTF
+         * @param italics Whether to include the italic style of each weight
+         */
+        public Selection(boolean nerdFont, Set<Weight> weights, Set<Format> formats, boolean italics) {
+            this(nerdFont, weights, formats, italics, false);
+        }
+
+        private Selection(boolean nerdFont, Set<Weight> weights, Set<Format> formats, boolean italics,
+                          boolean splitCollections) {
+            this.nerdFont = nerdFont;
+            this.splitCollections = splitCollections;
+            this.weights = Collections.unmodifiableSet(
+                weights.isEmpty() ? EnumSet.noneOf(Weight.class) : EnumSet.copyOf(weights));
+            this.formats = Collections.unmodifiableSet(
+                formats.isEmpty() ? EnumSet.noneOf(Format.class) : EnumSet.copyOf(formats));
+            this.italics = italics;
+        }
+
+        public boolean includesNerdFont() {
+            return nerdFont;
+        }
+
+        public Set<Weight> getWeights() {
+            return weights;
+        }
+
+        public Set<Format> getFormats() {
+            return formats;
+        }
+
+        public boolean includesItalics() {
+            return italics;
+        }
+
+        /**
+         * Whether font collections are installed as one single-face font
+         * per member instead of as a .ttc, for programs that cannot read
+         * collections.
+         */
+        public boolean splitsCollections() {
+            return splitCollections;
+        }
+
+        /**
+         * Returns a copy of this selection that splits font collections.
+         */
+        public Selection withSplitCollections(boolean split) {
+            return new Selection(nerdFont, weights, formats, italics, split);
+        }
+    }
+
+    private static final List<Entry> ENTRIES = createEntries();
+
+    /**
+     * Returns every bundled font file.
+     */
+    public static List<Entry> getAll() {
+        return ENTRIES;
+    }
+
+    /**
+     * Returns the bundled font files matching a selection, Nerd Font first.
+     */
+    public static List<Entry> select(Selection selection) {
+        List<Entry> selected = new ArrayList<>();
+        for (Entry e : ENTRIES) {
+            boolean match;
+            if (e.getFormat() == Format.TTC) {
+                match = selection.includesNerdFont();
+            } else {
+                match = selection.getFormats().contains(e.getFormat())
+                    && selection.getWeights().contains(e.getWeight())
+                    && (!e.isItalic() || selection.includesItalics());
+            }
+            if (match) {
+                selected.add(e);
+            }
+        }
+        return selected;
+    }
+
+    private static List<Entry> createEntries() {
+        List<Entry> entries = new ArrayList<>();
+        entries.add(new Entry("Monocraft-nerd-fonts-patched.ttc", Format.TTC, Weight.REGULAR, false));
+        for (Format format : new Format[]{Format.TTF, Format.OTF}) {
+            String ext = format.name().toLowerCase(Locale.ROOT);
+            for (Weight weight : Weight.values()) {
+                for (boolean italic : new boolean[]{false, true}) {
+                    String path;
+                    if (weight == Weight.REGULAR && !italic) {
+                        // The regular font lives outside the weights folder
+                        path = BASE + "Monocraft." + ext;
+                    } else {
+                        String style = weight == Weight.REGULAR ? "Italic"
+                            : weight.fileToken + (italic ? "-Italic" : "");
+                        path = BASE + "weights/" + ext + "/Monocraft-" + style + "." + ext;
+                    }
+                    entries.add(new Entry(path, format, weight, italic));
+                }
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+}
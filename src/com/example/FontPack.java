@@ -0,0 +1,411 @@
+package com.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A single archive holding all bundled font files, each compressed on its own.
+ *
+ * The pack starts with a small index (name, offset, lengths, SHA-256 and
+ * codec of every entry) followed by the entry data. Reading one font skips
+ * straight to its data and inflates only that entry. The pack is stored
+ * uncompressed in the JAR, so skipping within it does not inflate anything.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * magic "MCFP", u16 version, u16 entry count
+ * per entry: UTF name, u8 codec, i64 offset, i64 stored length,
+ *            i64 original length, 32-byte SHA-256 of the original
+ * entry data, offsets relative to the end of the index
+ * </pre>
+ *
+ * Built from {@code resources/fonts/Monocraft-font} by the build scripts:
+ * {@code java -cp classes com.example.FontPack <fonts dir> <pack file>}.
+ */
+public class FontPack {
+    /** Classpath resource name of the bundled pack. */
+    public static final String RESOURCE = "/Monocraft-font.pack";
+
+    private static final int MAGIC = 0x4D434650; // "MCFP"
+    private static final int VERSION = 1;
+    private static final String[] FONT_EXTENSIONS = {".ttf", ".otf", ".ttc"};
+
+    private static FontPack bundled;
+    private static boolean bundledLoaded;
+
+    /**
+     * How an entry's data is stored.
+     */
+    public enum Codec {
+        STORED,
+        DEFLATE
+    }
+
+    /**
+     * Index record of one packed file.
+     */
+    public static class Entry {
+        private final String name;
+        private final Codec codec;
+        private final long offset;
+        private final long storedLength;
+        private final long length;
+        private final byte[] sha256;
+
+        Entry(String name, Codec codec, long offset, long storedLength, long length, byte[] sha256) {
+            this.name = name;
+            this.codec = codec;
+            this.offset = offset;
+            this.storedLength = storedLength;
+            this.length = length;
+            this.sha256 = sha256;
+        }
+
+        /** Path below the fonts folder, using '/' separators. */
+        public String getName() {
+            return name;
+        }
+
+        public Codec getCodec() {
+            return codec;
+        }
+
+        /** Size of the data in the pack. */
+        public long getStoredLength() {
+            return storedLength;
+        }
+
+        /** Size of the original file. */
+        public long getLength() {
+            return length;
+        }
+
+        /** SHA-256 of the original file as lowercase hex. */
+        public String getSha256() {
+            return FileUtils.toHex(sha256);
+        }
+    }
+
+    /**
+     * Opens a fresh stream positioned at the start of the pack.
+     */
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private final Source source;
+    private final long dataStart;
+    private final Map<String, Entry> entries;
+
+    private FontPack(Source source, long dataStart, Map<String, Entry> entries) {
+        this.source = source;
+        this.dataStart = dataStart;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the pack bundled in the JAR, or null if the application was
+     * built without one (e.g. when running from the project folder).
+     *
+     * @throws IOException If the bundled pack exists but is unreadable
+     */
+    public static synchronized FontPack getBundled() throws IOException {
+        if (!bundledLoaded) {
+            if (FontPack.class.getResource(RESOURCE) != null) {
+                bundled = open(() -> FontPack.class.getResourceAsStream(RESOURCE));
+            }
+            bundledLoaded = true;
+        }
+        return bundled;
+    }
+
+    /**
+     * Opens a pack file.
+     */
+    public static FontPack open(Path file) throws IOException {
+        return open(() -> Files.newInputStream(file));
+    }
+
+    /**
+     * Reads the index of a pack.
+     *
+     * @param source Opens the pack from its first byte
+     * @throws IOException If the pack cannot be read or is not a font pack
+     */
+    public static FontPack open(Source source) throws IOException {
+        try (InputStream raw = source.open()) {
+            if (raw == null) {
+                throw new IOException("Font pack not found");
+            }
+            CountingInputStream counter = new CountingInputStream(new BufferedInputStream(raw, 8192));
+            DataInputStream in = new DataInputStream(counter);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a font pack");
+            }
+            int version = in.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported font pack version " + version);
+            }
+            int count = in.readUnsignedShort();
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int codec = in.readUnsignedByte();
+                if (codec >= Codec.values().length) {
+                    throw new IOException("Unknown codec " + codec + " for " + name);
+                }
+                long offset = in.readLong();
+                long storedLength = in.readLong();
+                long length = in.readLong();
+                byte[] sha256 = new byte[32];
+                in.readFully(sha256);
+                entries.put(name, new Entry(name, Codec.values()[codec], offset, storedLength, length, sha256));
+            }
+            return new FontPack(source, counter.count, Collections.unmodifiableMap(entries));
+        }
+    }
+
+    /**
+     * Returns the index entry for a name, or null if the pack has no such file.
+     */
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Returns all entries in pack order.
+     */
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Opens the original content of one entry. Only that entry's data is
+     * read and inflated.
+     *
+     * @throws IOException If the entry does not exist or cannot be read
+     */
+    public InputStream openEntry(String name) throws IOException {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new IOException("Font pack has no entry " + name);
+        }
+        InputStream raw = source.open();
+        try {
+            skipFully(raw, dataStart + entry.offset);
+            InputStream data = new BoundedInputStream(raw, entry.storedLength);
+            if (entry.codec == Codec.DEFLATE) {
+                Inflater inflater = new Inflater();
+                return new InflaterInputStream(data, inflater, 64 * 1024) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end();
+                        }
+                    }
+                };
+            }
+            return data;
+        } catch (IOException | RuntimeException e) {
+            raw.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a pack of all font files below a directory. Each file is stored
+     * deflated unless compression does not make it smaller.
+     *
+     * @param fontsDir Directory to pack, e.g. {@code resources/fonts/Monocraft-font}
+     * @param packFile Pack file to create
+     * @return The entries written
+     * @throws IOException If a file cannot be read or the pack cannot be written
+     */
+    public static List<Entry> write(Path fontsDir, Path packFile) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(fontsDir)) {
+            files = walk.filter(Files::isRegularFile).filter(FontPack::isFontFile).sorted().collect(Collectors.toList());
+        }
+        if (files.size() > 0xFFFF) {
+            throw new IOException("Too many files for a font pack: " + files.size());
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        long offset = 0;
+        for (Path file : files) {
+            String name = fontsDir.relativize(file).toString().replace('\\', '/');
+            byte[] original = Files.readAllBytes(file);
+            MessageDigest digest = FileUtils.newSha256();
+            byte[] sha256 = digest.digest(original);
+            byte[] compressed = deflate(original);
+            Codec codec = compressed.length < original.length ? Codec.DEFLATE : Codec.STORED;
+            byte[] stored = codec == Codec.DEFLATE ? compressed : original;
+            entries.add(new Entry(name, codec, offset, stored.length, original.length, sha256));
+            data.add(stored);
+            offset += stored.length;
+        }
+
+        Path parent = packFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(packFile)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(entries.size());
+            for (Entry e : entries) {
+                out.writeUTF(e.name);
+                out.writeByte(e.codec.ordinal());
+                out.writeLong(e.offset);
+                out.writeLong(e.storedLength);
+                out.writeLong(e.length);
+                out.write(e.sha256);
+            }
+            for (byte[] d : data) {
+                out.write(d);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Build step: packs a fonts directory.
+     * Usage: {@code FontPack <fonts dir> <pack file>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: FontPack <fonts dir> <pack file>");
+            System.exit(2);
+        }
+        Path packFile = Paths.get(args[1]);
+        List<Entry> entries = write(Paths.get(args[0]), packFile);
+        long original = 0;
+        for (Entry e : entries) {
+            original += e.length;
+        }
+        System.out.println(String.format(Locale.ROOT, "Packed %d fonts: %,d -> %,d bytes",
+            entries.size(), original, Files.size(packFile)));
+    }
+
+    private static boolean isFontFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return Arrays.stream(FONT_EXTENSIONS).anyMatch(name::endsWith);
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (OutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(data);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                // skip() may stop early; fall back to reading one byte
+                if (in.read() < 0) {
+                    throw new IOException("Font pack is truncated");
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    /**
+     * Counts the bytes read, to find where the index ends.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    /**
+     * Limits a stream to one entry's stored bytes.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
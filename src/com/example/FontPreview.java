@@ -0,0 +1,381 @@
+package com.example;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Live preview of the bundled fonts, so users can see Monocraft before
+ * installing it.
+ *
+ * The fonts are read straight from the bundled font pack (or the separate
+ * JAR resources) with {@link Font#createFont} on a background thread, and
+ * the sample code is drawn into an image there as well. Each face is parsed
+ * once, each size derived once, and the images of recent style and size
+ * combinations are kept, so switching back, scrolling and resizing the
+ * window only copy an existing image. The panel shows a placeholder until
+ * the first image is ready and never blocks the EDT.
+ */
+public class FontPreview extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    /** Point sizes offered in the size box. */
+    private static final Integer[] SIZES = {12, 14, 16, 18, 20, 24};
+    private static final int DEFAULT_SIZE = 16;
+    /** Rendered images kept for switching back without drawing again. */
+    private static final int MAX_IMAGES = 24;
+    private static final int MARGIN = 12;
+
+    private static final String[] SAMPLE = {
+        "// Monocraft preview",
+        "public static int sum(List<Integer> values) {",
+        "    int total = 0;",
+        "    for (int v : values) {",
+        "        if (v != 0 && v >= -1) total += v;",
+        "    }",
+        "    return total; // => 0x1F, 0O8, 1lI|",
+        "}",
+        "",
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ",
+        "abcdefghijklmnopqrstuvwxyz",
+        "0123456789 !?@#$%^&*()[]{}<>/\\~`'\"",
+    };
+
+    private static final Color BACKGROUND = new Color(24, 28, 35);
+    private static final Color TEXT = new Color(220, 223, 228);
+    private static final Color COMMENT = new Color(128, 138, 150);
+
+    /** Loads and renders one job at a time, newest choice last. */
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "font-preview");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Only used on the worker thread
+    private final Map<FontManifest.Entry, Font> faces = new HashMap<>();
+    private final Map<Key, Font> derived = new HashMap<>();
+
+    // Only used on the EDT
+    private final Map<Key, BufferedImage> images = new LinkedHashMap<Key, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, BufferedImage> eldest) {
+            return size() > MAX_IMAGES;
+        }
+    };
+    private final JComboBox<FontManifest.Entry> styleBox;
+    private final JComboBox<Integer> sizeBox;
+    private final SampleView view = new SampleView();
+    private final JLabel status = new JLabel("Loading preview...", SwingConstants.CENTER);
+    private final CardLayout cards = new CardLayout();
+    private final JPanel content = new JPanel(cards);
+    /** The choice on screen; read by the worker to skip jobs already overtaken. */
+    private volatile Key requested;
+
+    /**
+     * Creates the panel; nothing is loaded until {@link #start()}.
+     *
+     * @param background Color around the controls, matching the window
+     */
+    public FontPreview(Color background) {
+        super(new BorderLayout(0, 6));
+        setBackground(background);
+        setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        styleBox = new JComboBox<>(getStyles().toArray(new FontManifest.Entry[0]));
+        styleBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean selected, boolean focused) {
+                return super.getListCellRendererComponent(list,
+                    value == null ? null : styleName((FontManifest.Entry) value), index, selected, focused);
+            }
+        });
+        sizeBox = new JComboBox<>(SIZES);
+        sizeBox.setSelectedItem(DEFAULT_SIZE);
+        styleBox.addActionListener(e -> refresh());
+        sizeBox.addActionListener(e -> refresh());
+
+        JLabel title = new JLabel("Preview");
+        title.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        title.setForeground(Color.WHITE);
+
+        JPanel controls = new JPanel();
+        controls.setLayout(new BoxLayout(controls, BoxLayout.X_AXIS));
+        controls.setBackground(background);
+        controls.add(title);
+        controls.add(Box.createHorizontalGlue());
+        controls.add(styleBox);
+        controls.add(Box.createRigidArea(new Dimension(10, 0)));
+        controls.add(sizeBox);
+        controls.setMaximumSize(new Dimension(Integer.MAX_VALUE, sizeBox.getPreferredSize().height));
+
+        status.setForeground(COMMENT);
+        status.setOpaque(true);
+        status.setBackground(BACKGROUND);
+        JScrollPane scroll = new JScrollPane(view);
+        scroll.setBorder(BorderFactory.createLineBorder(BACKGROUND.brighter()));
+        scroll.getViewport().setBackground(BACKGROUND);
+        scroll.getVerticalScrollBar().setUnitIncrement(16);
+        scroll.getHorizontalScrollBar().setUnitIncrement(16);
+        content.add(status, "status");
+        content.add(scroll, "sample");
+
+        add(controls, BorderLayout.NORTH);
+        add(content, BorderLayout.CENTER);
+    }
+
+    /**
+     * Starts loading the selected face in the background. Call on the EDT
+     * once the window is showing, so its screen scale is known.
+     */
+    public void start() {
+        refresh();
+    }
+
+    /**
+     * Shows the image for the selected style and size, drawing it in the
+     * background if it is not cached.
+     */
+    private void refresh() {
+        FontManifest.Entry entry = (FontManifest.Entry) styleBox.getSelectedItem();
+        Integer size = (Integer) sizeBox.getSelectedItem();
+        if (entry == null || size == null) {
+            return;
+        }
+        Key key = new Key(entry, size, getScale());
+        if (key.equals(requested)) {
+            return;
+        }
+        requested = key;
+        BufferedImage cached = images.get(key);
+        if (cached != null) {
+            showImage(key, cached);
+            return;
+        }
+        worker.execute(() -> {
+            if (!key.equals(requested)) {
+                return;
+            }
+            BufferedImage image;
+            try {
+                image = render(key);
+            } catch (IOException | FontFormatException | RuntimeException e) {
+                String message = e.getMessage() != null ? e.getMessage() : e.toString();
+                SwingUtilities.invokeLater(() -> {
+                    if (key.equals(requested)) {
+                        requested = null;
+                        status.setText("Preview not available: " + message);
+                        cards.show(content, "status");
+                    }
+                });
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                images.put(key, image);
+                if (key.equals(requested)) {
+                    showImage(key, image);
+                }
+            });
+        });
+    }
+
+    private void showImage(Key key, BufferedImage image) {
+        view.setImage(image, key.scale);
+        cards.show(content, "sample");
+    }
+
+    /**
+     * Returns the scale of the screen the panel is on, so the image is
+     * drawn at device resolution on HiDPI displays.
+     */
+    private double getScale() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) {
+            return 1;
+        }
+        AffineTransform t = gc.getDefaultTransform();
+        return Math.max(1, t.getScaleX());
+    }
+
+    /**
+     * Draws the sample code; runs on the worker thread.
+     */
+    private BufferedImage render(Key key) throws IOException, FontFormatException {
+        Font font = derived.get(key);
+        if (font == null) {
+            font = loadFace(key.entry).deriveFont((float) (key.size * key.scale));
+            derived.put(key, font);
+        }
+
+        // Measure on a scratch image, then draw on one of the right size
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scratch.createGraphics();
+        FontMetrics metrics = g.getFontMetrics(font);
+        int width = 0;
+        for (String line : SAMPLE) {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        int margin = (int) Math.ceil(MARGIN * key.scale);
+        int lineHeight = metrics.getHeight();
+        int ascent = metrics.getAscent();
+        g.dispose();
+
+        BufferedImage image = new BufferedImage(width + 2 * margin, lineHeight * SAMPLE.length + 2 * margin,
+            BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+        try {
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g.setFont(font);
+            int y = margin + ascent;
+            for (String line : SAMPLE) {
+                g.setColor(line.startsWith("//") ? COMMENT : TEXT);
+                g.drawString(line, margin, y);
+                y += lineHeight;
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Returns a bundled face, parsing it on first use; runs on the worker
+     * thread.
+     */
+    private Font loadFace(FontManifest.Entry entry) throws IOException, FontFormatException {
+        Font face = faces.get(entry);
+        if (face != null) {
+            return face;
+        }
+        FontPack pack = FontPack.getBundled();
+        InputStream in = pack != null && pack.getEntry(entry.getRelativePath()) != null
+            ? pack.openEntry(entry.getRelativePath())
+            : FontPreview.class.getResourceAsStream(entry.getResource());
+        if (in == null) {
+            throw new IOException(entry.getFileName() + " is not bundled");
+        }
+        try (InputStream font = new BufferedInputStream(in, 64 * 1024)) {
+            face = Font.createFont(Font.TRUETYPE_FONT, font);
+        }
+        faces.put(entry, face);
+        return face;
+    }
+
+    /**
+     * Returns the TrueType faces to choose from, regular first.
+     */
+    private static List<FontManifest.Entry> getStyles() {
+        List<FontManifest.Entry> styles = new ArrayList<>();
+        for (FontManifest.Entry e : FontManifest.select(FontManifest.Selection.FULL_FAMILY)) {
+            if (e.getFormat() != FontManifest.Format.TTF) {
+                continue;
+            }
+            if (e.getWeight() == FontManifest.Weight.REGULAR && !e.isItalic()) {
+                styles.add(0, e);
+            } else {
+                styles.add(e);
+            }
+        }
+        return styles;
+    }
+
+    /**
+     * Returns a style's display name, e.g. "Semi Bold Italic".
+     */
+    private static String styleName(FontManifest.Entry entry) {
+        String weight = entry.getWeight().name().replace('_', ' ');
+        StringBuilder sb = new StringBuilder();
+        for (String word : weight.split(" ")) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(word.charAt(0)).append(word.substring(1).toLowerCase(Locale.ROOT));
+        }
+        if (entry.isItalic()) {
+            return entry.getWeight() == FontManifest.Weight.REGULAR ? "Italic" : sb + " Italic";
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A face at one size on a screen of one scale.
+     */
+    private static final class Key {
+        final FontManifest.Entry entry;
+        final int size;
+        final double scale;
+
+        Key(FontManifest.Entry entry, int size, double scale) {
+            this.entry = entry;
+            this.size = size;
+            this.scale = scale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return entry == k.entry && size == k.size && scale == k.scale;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entry.getRelativePath(), size, scale);
+        }
+    }
+
+    /**
+     * Paints a rendered image at its size in logical pixels.
+     */
+    private static final class SampleView extends JComponent {
+        private static final long serialVersionUID = 1L;
+
+        private BufferedImage image;
+        private double scale = 1;
+
+        SampleView() {
+            setOpaque(true);
+            setBackground(BACKGROUND);
+        }
+
+        void setImage(BufferedImage image, double scale) {
+            this.image = image;
+            this.scale = scale;
+            revalidate();
+            repaint();
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            if (image == null) {
+                return new Dimension(0, 0);
+            }
+            return new Dimension((int) Math.ceil(image.getWidth() / scale), (int) Math.ceil(image.getHeight() / scale));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            if (image != null) {
+                Dimension size = getPreferredSize();
+                g.drawImage(image, 0, 0, size.width, size.height, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The per-user font registrations under
+ * {@code HKCU\Software\Microsoft\Windows NT\CurrentVersion\Fonts}.
+ *
+ * All Monocraft values are read with one call and changes are collected in
+ * a {@link Transaction} and applied together, so the cost does not grow
+ * with the number of fonts. {@link MemoryFontRegistry} keeps the values in
+ * memory, so the Windows install and uninstall logic can run on any
+ * platform.
+ */
+public interface FontRegistry {
+    /** The registry key holding per-user font registrations. */
+    String FONTS_KEY = "HKEY_CURRENT_USER\\Software\\Microsoft\\Windows NT\\CurrentVersion\\Fonts";
+
+    /**
+     * Value changes applied together; later changes to the same value
+     * replace earlier ones.
+     */
+    class Transaction {
+        /** Changes in the order added; a null data means delete. */
+        private final Map<String, String> operations = new LinkedHashMap<>();
+
+        /**
+         * Sets a value, e.g. {@code "Monocraft (TrueType)"} to the font's path.
+         */
+        public Transaction set(String name, String data) {
+            operations.put(name, data);
+            return this;
+        }
+
+        /**
+         * Deletes a value; nothing happens if it does not exist.
+         */
+        public Transaction delete(String name) {
+            operations.put(name, null);
+            return this;
+        }
+
+        /**
+         * Returns the changes by value name; a null data means delete.
+         */
+        public Map<String, String> getOperations() {
+            return Collections.unmodifiableMap(operations);
+        }
+
+        public boolean isEmpty() {
+            return operations.isEmpty();
+        }
+    }
+
+    /**
+     * Reads every Monocraft value under the fonts key.
+     *
+     * @return Data (the font file path) by value name; empty if the key
+     *         does not exist
+     * @throws IOException If the registry cannot be read
+     */
+    Map<String, String> readValues() throws IOException;
+
+    /**
+     * Applies all changes of a transaction at once.
+     *
+     * @throws IOException If the changes cannot be written
+     */
+    void apply(Transaction transaction) throws IOException;
+
+    /**
+     * Tells the running session about fonts whose values were just set or
+     * deleted, so programs see them without signing in again.
+     *
+     * @param added Font files that were registered
+     * @param removed Font files that were unregistered
+     * @throws IOException If the session cannot be updated
+     */
+    void notifyFontsChanged(List<Path> added, List<Path> removed) throws IOException;
+
+    /**
+     * Returns the registry of the current Windows user.
+     */
+    static FontRegistry getDefault() {
+        return new WindowsFontRegistry();
+    }
+
+    /**
+     * Returns true if a value registers a Monocraft font, judged by its name
+     * or the file it points to.
+     */
+    static boolean isMonocraft(String name, String data) {
+        String fileName = data == null ? "" : data.substring(Math.max(data.lastIndexOf('\\'), data.lastIndexOf('/')) + 1);
+        return name.toLowerCase(Locale.ROOT).contains("monocraft")
+            || fileName.toLowerCase(Locale.ROOT).startsWith("monocraft");
+    }
+}
@@ -0,0 +1,731 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of install, uninstall and settings operations.
+ *
+ * Every operation writes a begin record, one record per step before the
+ * step is carried out (write-ahead), and a commit or abort record; each
+ * record is flushed to disk. Operations still open when the journal is
+ * loaded were interrupted by a crash and are reported by
+ * {@link #getPendingOperation()} so they can be resumed or rolled back.
+ *
+ * Committed steps are folded into an in-memory view of what is installed,
+ * so {@link #getInstalledFont} and {@link #getSettingsTarget} are map lookups
+ * that touch neither the fonts folder nor the registry. Each record carries
+ * a CRC so a torn last line is ignored; the log is compacted into snapshot
+ * records once it grows past {@value #COMPACT_THRESHOLD} records.
+ *
+ * Several processes may use the same journal, e.g. the GUI and a login
+ * script. An operation therefore runs under {@link #lock()}, which holds a
+ * file lock on {@code journal.lock} next to the journal and reloads the
+ * journal when it is taken, so it sees what other processes recorded.
+ * Records are only written and the log only compacted under that lock, and
+ * an open operation only counts as interrupted if its process no longer
+ * holds the lock (see {@link #tryLock()}).
+ *
+ * Record format, one per line, tab-separated, followed by a CRC-32:
+ * <pre>
+ * B  op type time              begin
+ * S  op kind name sha256 info  step
+ * C  op time                   commit
+ * A  op time reason            abort
+ * F  name sha256 info time     snapshot of an installed font
+ * T  path sha256 info time     snapshot of a patched settings file
+ * X  name                      font removed outside an operation
+ * </pre>
+ */
+public class InstallJournal {
+    private static final String FILE_NAME = "journal.log";
+    private static final String LOCK_FILE_NAME = "journal.lock";
+    private static final int COMPACT_THRESHOLD = 2000;
+    /** How long {@link #lock()} waits for another process's operation. */
+    private static final long LOCK_TIMEOUT_MILLIS = 60_000;
+
+    private static InstallJournal defaultJournal;
+
+    /**
+     * Kind of journaled operation.
+     */
+    public enum OperationType {
+        INSTALL,
+        UNINSTALL,
+        ADD_SETTINGS,
+        REMOVE_SETTINGS
+    }
+
+    /**
+     * Kind of step within an operation.
+     */
+    public enum StepKind {
+        /** A font was extracted from the bundle; no state change. */
+        EXTRACT,
+        /** An installed font file was replaced with a newer one. */
+        COPY,
+        /** An installed font was found identical to the bundled one. */
+        PRESENT,
+        /** A new font is being copied and registered with the OS. */
+        REGISTER,
+        /**
+         * A font file that was already in place (e.g. from fleet mode) is
+         * being registered with the OS; undoing it keeps the file.
+         */
+        REGISTER_EXISTING,
+        /** An installed font file is being deleted. */
+        DELETE,
+        /** A font's registry entry is being removed. */
+        UNREGISTER,
+        /** A settings file is being replaced. */
+        SETTINGS
+    }
+
+    /**
+     * One recorded step.
+     */
+    public static class Step {
+        private final StepKind kind;
+        private final String name;
+        private final String sha256;
+        private final String info;
+
+        Step(StepKind kind, String name, String sha256, String info) {
+            this.kind = kind;
+            this.name = name;
+            this.sha256 = sha256 == null ? "" : sha256;
+            this.info = info == null ? "" : info;
+        }
+
+        public StepKind getKind() {
+            return kind;
+        }
+
+        /** Font file name or settings file path. */
+        public String getName() {
+            return name;
+        }
+
+        /** SHA-256 of the content written, or empty. */
+        public String getSha256() {
+            return sha256;
+        }
+
+        /** Font version string, or "add"/"remove" for settings; may be empty. */
+        public String getInfo() {
+            return info;
+        }
+    }
+
+    /**
+     * The installed state of one font file or settings file, as journaled.
+     */
+    public static class Record {
+        private final String name;
+        private final String sha256;
+        private final String info;
+        private final long time;
+
+        Record(String name, String sha256, String info, long time) {
+            this.name = name;
+            this.sha256 = sha256;
+            this.info = info;
+            this.time = time;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        /** Font version string, or "add"/"remove" for settings. */
+        public String getInfo() {
+            return info;
+        }
+
+        /** Commit time in epoch milliseconds. */
+        public long getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * An operation in progress, or an interrupted one found on load.
+     */
+    public class Operation {
+        private final long id;
+        private final OperationType type;
+        private final List<Step> steps = new ArrayList<>();
+
+        Operation(long id, OperationType type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        public OperationType getType() {
+            return type;
+        }
+
+        /** Steps recorded so far, in order. */
+        public List<Step> getSteps() {
+            synchronized (InstallJournal.this) {
+                return new ArrayList<>(steps);
+            }
+        }
+
+        /**
+         * Records a step before it is carried out.
+         *
+         * @throws IOException If the journal cannot be written
+         */
+        public void step(StepKind kind, String name, String sha256, String info) throws IOException {
+            steps(Collections.singletonList(new Step(kind, name, nullToEmpty(sha256), nullToEmpty(info))));
+        }
+
+        /**
+         * Records several steps with a single write and flush.
+         *
+         * @throws IOException If the journal cannot be written
+         */
+        public void steps(List<Step> batch) throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            synchronized (InstallJournal.this) {
+                String[][] records = new String[batch.size()][];
+                for (int i = 0; i < records.length; i++) {
+                    Step s = batch.get(i);
+                    records[i] = new String[] {"S", Long.toString(id), s.kind.name(), s.name, s.sha256, s.info};
+                }
+                append(records);
+                steps.addAll(batch);
+            }
+        }
+
+        /**
+         * Marks the operation complete and applies its steps to the
+         * installed state.
+         */
+        public void commit() throws IOException {
+            synchronized (InstallJournal.this) {
+                long time = System.currentTimeMillis();
+                append("C", Long.toString(id), Long.toString(time));
+                apply(this, time, false);
+            }
+        }
+
+        /**
+         * Marks the operation as abandoned after it was rolled back or
+         * superseded. Replaced and unchanged fonts are still recorded, since
+         * they were already registered; all other steps are discarded,
+         * including fonts found in place that were only being registered.
+         */
+        public void abort(String reason) throws IOException {
+            synchronized (InstallJournal.this) {
+                long time = System.currentTimeMillis();
+                append("A", Long.toString(id), Long.toString(time), nullToEmpty(reason));
+                apply(this, time, true);
+            }
+        }
+    }
+
+    /**
+     * The journal lock, held by one process and, within it, one thread at a
+     * time; reentrant. Release it with {@link #close()}.
+     */
+    public final class Lock implements AutoCloseable {
+        private boolean closed;
+
+        private Lock() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release();
+        }
+    }
+
+    private final Path file;
+    private final Path lockFile;
+    private final ReentrantLock threadLock = new ReentrantLock();
+    private FileChannel lockChannel;
+    private FileLock fileLock;
+    private final Map<String, Record> fonts = new LinkedHashMap<>();
+    private final Map<String, Record> settings = new LinkedHashMap<>();
+    private final Map<Long, Operation> open = new LinkedHashMap<>();
+    private long nextId = 1;
+    private int recordCount;
+
+    private InstallJournal(Path file) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(LOCK_FILE_NAME);
+    }
+
+    /**
+     * Returns the journal in the application's data directory, loading it
+     * on first use or when that directory has changed.
+     *
+     * @throws IOException If the journal exists but cannot be read
+     */
+    public static synchronized InstallJournal getDefault() throws IOException {
+        Path file = SystemUtils.getAppDataDir().resolve(FILE_NAME);
+        if (defaultJournal == null || !defaultJournal.file.equals(file)) {
+            defaultJournal = open(file);
+        }
+        return defaultJournal;
+    }
+
+    /**
+     * Loads a journal file, creating it on the first write. The state is a
+     * snapshot for queries; it is reloaded whenever the lock is taken.
+     *
+     * @throws IOException If the file exists but cannot be read
+     */
+    public static InstallJournal open(Path file) throws IOException {
+        InstallJournal journal = new InstallJournal(file);
+        synchronized (journal) {
+            journal.load();
+        }
+        return journal;
+    }
+
+    /**
+     * Takes the journal lock for one operation, waiting for an operation of
+     * another process to finish.
+     *
+     * @return The lock, to be closed when the operation is done
+     * @throws IOException If the lock cannot be taken within a minute or
+     *         the journal cannot be read
+     */
+    public Lock lock() throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LOCK_TIMEOUT_MILLIS);
+        while (true) {
+            Lock lock = tryLock();
+            if (lock != null) {
+                return lock;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Another Monocraft Font Tool process is still installing or "
+                    + "uninstalling; try again when it has finished.");
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for another Monocraft Font Tool process");
+            }
+        }
+    }
+
+    /**
+     * Takes the journal lock unless another process (or another thread of
+     * this one) holds it. Operations that are open in the journal while
+     * someone else holds the lock are still running, not interrupted.
+     *
+     * @return The lock, or null if it is held elsewhere
+     * @throws IOException If the lock file or the journal cannot be read
+     */
+    public Lock tryLock() throws IOException {
+        if (!threadLock.tryLock()) {
+            return null;
+        }
+        boolean locked = false;
+        try {
+            if (threadLock.getHoldCount() == 1) {
+                synchronized (this) {
+                    Files.createDirectories(lockFile.getParent());
+                    lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    try {
+                        fileLock = lockChannel.tryLock();
+                    } catch (OverlappingFileLockException e) {
+                        // Another InstallJournal of this process has the same file locked
+                        fileLock = null;
+                    }
+                    if (fileLock == null) {
+                        lockChannel.close();
+                        lockChannel = null;
+                        return null;
+                    }
+                    reload();
+                }
+            }
+            locked = true;
+            return new Lock();
+        } finally {
+            if (!locked) {
+                releaseFileLock();
+                threadLock.unlock();
+            }
+        }
+    }
+
+    private void release() throws IOException {
+        try {
+            if (threadLock.getHoldCount() == 1) {
+                releaseFileLock();
+            }
+        } finally {
+            threadLock.unlock();
+        }
+    }
+
+    private synchronized void releaseFileLock() throws IOException {
+        if (lockChannel != null) {
+            // Closing the channel releases the lock
+            lockChannel.close();
+            lockChannel = null;
+            fileLock = null;
+        }
+    }
+
+    /**
+     * Rereads the journal after the lock was taken, cutting off a record a
+     * crashed process left half written and compacting a long log.
+     */
+    private void reload() throws IOException {
+        fonts.clear();
+        settings.clear();
+        open.clear();
+        nextId = 1;
+        recordCount = 0;
+        if (Files.isRegularFile(file)) {
+            truncateTornTail();
+        }
+        load();
+        if (recordCount > COMPACT_THRESHOLD && open.isEmpty()) {
+            compact();
+        }
+    }
+
+    /**
+     * Starts a new operation; the journal must be locked.
+     *
+     * @throws IOException If the journal cannot be written
+     */
+    public synchronized Operation begin(OperationType type) throws IOException {
+        Operation op = new Operation(nextId++, type);
+        append("B", Long.toString(op.id), type.name(), Long.toString(System.currentTimeMillis()));
+        open.put(op.id, op);
+        return op;
+    }
+
+    /**
+     * Returns the oldest operation that was begun but never committed or
+     * aborted, i.e. one interrupted by a crash, or null.
+     */
+    public synchronized Operation getPendingOperation() {
+        for (Operation op : open.values()) {
+            return op;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the journaled state of an installed font, or null if the
+     * journal does not record it as installed.
+     */
+    public synchronized Record getInstalledFont(String fileName) {
+        return fonts.get(fileName);
+    }
+
+    /**
+     * Drops fonts from the installed state, e.g. after a rollback had to
+     * remove a font whose replacement was interrupted.
+     *
+     * @throws IOException If the journal cannot be written
+     */
+    public synchronized void forget(List<String> fileNames) throws IOException {
+        if (fileNames.isEmpty()) {
+            return;
+        }
+        String[][] records = new String[fileNames.size()][];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = new String[] {"X", fileNames.get(i)};
+        }
+        append(records);
+        for (String name : fileNames) {
+            fonts.remove(name);
+        }
+    }
+
+    /**
+     * Returns every font the journal records as installed.
+     */
+    public synchronized List<Record> getInstalledFonts() {
+        return new ArrayList<>(fonts.values());
+    }
+
+    /**
+     * Returns the journaled state of a settings file, or null if it was
+     * never patched.
+     */
+    public synchronized Record getSettingsTarget(String path) {
+        return settings.get(path);
+    }
+
+    /**
+     * Returns every settings file the journal has recorded.
+     */
+    public synchronized List<Record> getSettingsTargets() {
+        return new ArrayList<>(settings.values());
+    }
+
+    /**
+     * Folds an operation's steps into the installed state and forgets it.
+     * A font record means the file is in place and registered, so a file
+     * whose registration was rolled back is not recorded.
+     */
+    private void apply(Operation op, long time, boolean aborted) {
+        open.remove(op.id);
+        Set<String> unregistered = new HashSet<>();
+        if (aborted) {
+            for (Step s : op.steps) {
+                if (s.kind == StepKind.REGISTER_EXISTING) {
+                    unregistered.add(s.name);
+                }
+            }
+        }
+        for (Step s : op.steps) {
+            if (aborted && (s.kind != StepKind.COPY && s.kind != StepKind.PRESENT || unregistered.contains(s.name))) {
+                continue;
+            }
+            switch (s.kind) {
+                case COPY:
+                case PRESENT:
+                case REGISTER:
+                case REGISTER_EXISTING:
+                    fonts.put(s.name, new Record(s.name, s.sha256, s.info, time));
+                    break;
+                case DELETE:
+                case UNREGISTER:
+                    fonts.remove(s.name);
+                    break;
+                case SETTINGS:
+                    settings.put(s.name, new Record(s.name, s.sha256, s.info, time));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] f = decode(line);
+                if (f == null) {
+                    // Torn or damaged record, e.g. from a crash while appending
+                    continue;
+                }
+                recordCount++;
+                try {
+                    replay(f);
+                } catch (RuntimeException e) {
+                    // Unknown or malformed record from another version; skip it
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts off a last record that was only partly written, so the next
+     * record starts on a line of its own.
+     */
+    private void truncateTornTail() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer one = ByteBuffer.allocate(1);
+            long end = size;
+            while (end > 0) {
+                one.clear();
+                channel.read(one, end - 1);
+                if (one.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < size) {
+                channel.truncate(end);
+                channel.force(false);
+            }
+        }
+    }
+
+    private void replay(String[] f) {
+        switch (f[0]) {
+            case "B": {
+                long id = Long.parseLong(f[1]);
+                open.put(id, new Operation(id, OperationType.valueOf(f[2])));
+                nextId = Math.max(nextId, id + 1);
+                break;
+            }
+            case "S": {
+                Operation op = open.get(Long.parseLong(f[1]));
+                if (op != null) {
+                    op.steps.add(new Step(StepKind.valueOf(f[2]), f[3], f[4], f[5]));
+                }
+                break;
+            }
+            case "C":
+            case "A": {
+                Operation op = open.get(Long.parseLong(f[1]));
+                if (op != null) {
+                    apply(op, Long.parseLong(f[2]), f[0].equals("A"));
+                }
+                break;
+            }
+            case "F":
+                fonts.put(f[1], new Record(f[1], f[2], f[3], Long.parseLong(f[4])));
+                break;
+            case "T":
+                settings.put(f[1], new Record(f[1], f[2], f[3], Long.parseLong(f[4])));
+                break;
+            case "X":
+                fonts.remove(f[1]);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Rewrites the journal as snapshot records of the current state; only
+     * called under the lock, so no other process appends meanwhile.
+     */
+    private synchronized void compact() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Record r : fonts.values()) {
+            sb.append(encode("F", r.name, r.sha256, r.info, Long.toString(r.time)));
+        }
+        for (Record r : settings.values()) {
+            sb.append(encode("T", r.name, r.sha256, r.info, Long.toString(r.time)));
+        }
+        FileUtils.writeAtomically(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        recordCount = fonts.size() + settings.size();
+    }
+
+    /**
+     * Appends one record and forces it to disk.
+     */
+    private void append(String... fields) throws IOException {
+        append(new String[][] {fields});
+    }
+
+    /**
+     * Appends records with one write and forces them to disk.
+     */
+    private void append(String[][] records) throws IOException {
+        if (!threadLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("The install journal must be locked to write to it");
+        }
+        Files.createDirectories(file.getParent());
+        StringBuilder sb = new StringBuilder();
+        for (String[] fields : records) {
+            sb.append(encode(fields));
+        }
+        byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        recordCount += records.length;
+    }
+
+    private static String encode(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append('\t');
+            sb.append(escape(fields[i]));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return sb.append('\t').append(Long.toHexString(crc.getValue())).append('\n').toString();
+    }
+
+    /**
+     * Splits a record and checks its CRC; returns null if it is damaged.
+     */
+    private static String[] decode(String line) {
+        int tab = line.lastIndexOf('\t');
+        if (tab <= 0) {
+            return null;
+        }
+        String body = line.substring(0, tab);
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        if (!Long.toHexString(crc.getValue()).equals(line.substring(tab + 1))) {
+            return null;
+        }
+        String[] fields = body.split("\t", -1);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = unescape(fields[i]);
+        }
+        return fields;
+    }
+
+    static String escape(String s) {
+        if (s.indexOf('\\') < 0 && s.indexOf('\t') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    /** Path of the journal file. */
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,530 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Edits top-level properties of a JSON-with-comments document such as VS Code's
+ * settings.json while leaving every other byte untouched. A nested object,
+ * e.g. the settings of a workspace file, is edited with its own editor on
+ * the property's value (see {@link SettingsPatch#apply(String, String)}).
+ *
+ * The document is tokenized once, in a single linear pass that understands
+ * strings, escapes, line and block comments, nested values and trailing commas,
+ * so keys inside comments, strings or nested objects are never matched. Edits
+ * are recorded and then applied as replacements of the affected ranges only;
+ * comments, formatting and the original line endings are preserved.
+ */
+public class JsoncEditor {
+    private static final String DEFAULT_INDENT = "    ";
+
+    /**
+     * Location of one top-level property in the source text.
+     */
+    private static final class Member {
+        final String name;
+        final int keyStart;
+        final int valueStart;
+        final int valueEnd;
+        final int comma;
+
+        Member(String name, int keyStart, int valueStart, int valueEnd, int comma) {
+            this.name = name;
+            this.keyStart = keyStart;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+            this.comma = comma;
+        }
+    }
+
+    /**
+     * Replacement of the range [start, end) with text.
+     */
+    private static final class Edit {
+        final int start;
+        final int end;
+        final String text;
+
+        Edit(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+
+    private final String text;
+    private final int openBrace;
+    private final int closeBrace;
+    private final List<Member> members = new ArrayList<>();
+    /** Last member for each key, built on first lookup. */
+    private Map<String, Member> byName;
+    /** Pending edits by key; a null value means remove. */
+    private final Map<String, String> edits = new LinkedHashMap<>();
+
+    private JsoncEditor(String text) throws IOException {
+        this.text = text;
+        int pos = skipTrivia(0);
+        if (pos == text.length()) {
+            // Empty document (VS Code creates settings.json empty at first)
+            openBrace = -1;
+            closeBrace = -1;
+            return;
+        }
+        if (text.charAt(pos) != '{') {
+            throw error(pos, "expected '{'");
+        }
+        openBrace = pos;
+        pos++;
+        while (true) {
+            pos = skipTrivia(pos);
+            if (pos >= text.length()) {
+                throw error(pos, "missing '}'");
+            }
+            char c = text.charAt(pos);
+            if (c == '}') {
+                break;
+            }
+            if (c != '"') {
+                throw error(pos, "expected property name");
+            }
+            int keyStart = pos;
+            int keyEnd = skipString(pos);
+            String name = unescape(keyStart + 1, keyEnd - 1);
+            pos = skipTrivia(keyEnd);
+            if (pos >= text.length() || text.charAt(pos) != ':') {
+                throw error(pos, "expected ':'");
+            }
+            int valueStart = skipTrivia(pos + 1);
+            int valueEnd = skipValue(valueStart);
+            pos = skipTrivia(valueEnd);
+            int comma = -1;
+            if (pos < text.length() && text.charAt(pos) == ',') {
+                comma = pos;
+                pos++;
+            } else if (pos >= text.length() || text.charAt(pos) != '}') {
+                throw error(pos, "expected ',' or '}'");
+            }
+            members.add(new Member(name, keyStart, valueStart, valueEnd, comma));
+        }
+        closeBrace = pos;
+        int end = skipTrivia(pos + 1);
+        if (end != text.length()) {
+            throw error(end, "unexpected text after '}'");
+        }
+    }
+
+    /**
+     * Parses a document for editing.
+     *
+     * @param text The document, which must be empty or a single JSON object
+     * @return An editor for the document
+     * @throws IOException If the document is not a valid JSON-with-comments object
+     */
+    public static JsoncEditor parse(String text) throws IOException {
+        return new JsoncEditor(text);
+    }
+
+    /**
+     * Returns the raw JSON text of a top-level property's value in the original
+     * document (the last occurrence if the key is duplicated), or null.
+     */
+    public String get(String key) {
+        Member m = find(key);
+        return m != null ? text.substring(m.valueStart, m.valueEnd) : null;
+    }
+
+    private Member find(String key) {
+        if (byName == null) {
+            byName = new HashMap<>();
+            for (Member m : members) {
+                byName.put(m.name, m);
+            }
+        }
+        return byName.get(key);
+    }
+
+    /**
+     * Returns the line separator the document uses, {@code "\n"} if it has
+     * no line break.
+     */
+    String getLineSeparator() {
+        return detectLineSeparator();
+    }
+
+    /**
+     * Returns the whitespace in front of a top-level property on its line,
+     * or the indentation new properties get if the key does not exist or
+     * shares its line with other text.
+     */
+    String getIndent(String key) {
+        Member m = find(key);
+        if (m != null) {
+            int ls = lineStart(m.keyStart);
+            if (isBlank(ls, m.keyStart) && m.keyStart > ls) {
+                return text.substring(ls, m.keyStart);
+            }
+        }
+        return detectIndent();
+    }
+
+    /**
+     * Records that a top-level property should be set, adding it before the
+     * closing brace if it does not exist yet.
+     *
+     * @param key Property name
+     * @param valueJson The value as JSON text, e.g. {@code true} or {@code "Monocraft"}
+     * @return This editor
+     */
+    public JsoncEditor set(String key, String valueJson) {
+        edits.put(key, valueJson);
+        return this;
+    }
+
+    /**
+     * Records that a top-level property should be removed.
+     *
+     * @return This editor
+     */
+    public JsoncEditor remove(String key) {
+        edits.put(key, null);
+        return this;
+    }
+
+    /**
+     * Applies all recorded edits and returns the resulting document. The
+     * original text is returned unchanged if no edit has any effect.
+     */
+    public String apply() {
+        if (edits.isEmpty()) {
+            return text;
+        }
+        String eol = detectLineSeparator();
+
+        // One pass over the members: which edited keys exist, and which member
+        // will be the last one left
+        Set<String> existing = new HashSet<>();
+        int lastSurvivor = -1;
+        for (int i = 0; i < members.size(); i++) {
+            Member m = members.get(i);
+            if (edits.containsKey(m.name)) {
+                existing.add(m.name);
+                if (edits.get(m.name) == null) {
+                    continue;
+                }
+            }
+            lastSurvivor = i;
+        }
+        List<String> appended = new ArrayList<>();
+        for (Map.Entry<String, String> e : edits.entrySet()) {
+            if (e.getValue() != null && !existing.contains(e.getKey())) {
+                appended.add(quote(e.getKey()) + ": " + e.getValue());
+            }
+        }
+
+        if (openBrace < 0) {
+            if (appended.isEmpty()) {
+                return text;
+            }
+            StringBuilder sb = new StringBuilder(text);
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '\n') {
+                sb.append(eol);
+            }
+            sb.append('{').append(eol);
+            for (int i = 0; i < appended.size(); i++) {
+                sb.append(DEFAULT_INDENT).append(appended.get(i));
+                sb.append(i < appended.size() - 1 ? "," : "").append(eol);
+            }
+            return sb.append('}').append(eol).toString();
+        }
+
+        // Commas: every surviving member but the last needs one; the last keeps
+        // one only if the document already used a trailing comma
+        boolean trailingComma = !members.isEmpty() && members.get(members.size() - 1).comma >= 0;
+
+        List<Edit> changes = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            Member m = members.get(i);
+            boolean edited = existing.contains(m.name);
+            if (!edited && i < lastSurvivor) {
+                // Untouched member followed by another: nothing can change
+                continue;
+            }
+            String value = edits.get(m.name);
+            if (edited && value == null) {
+                changes.add(removal(m));
+                continue;
+            }
+            boolean needsComma = i != lastSurvivor || !appended.isEmpty() || trailingComma;
+            boolean hasComma = m.comma >= 0;
+            String addComma = needsComma && !hasComma ? "," : "";
+            if (edited && !value.equals(text.substring(m.valueStart, m.valueEnd))) {
+                changes.add(new Edit(m.valueStart, m.valueEnd, value + addComma));
+            } else if (!addComma.isEmpty()) {
+                changes.add(new Edit(m.valueEnd, m.valueEnd, addComma));
+            }
+            if (hasComma && !needsComma) {
+                changes.add(new Edit(m.comma, m.comma + 1, ""));
+            }
+        }
+
+        if (!appended.isEmpty()) {
+            String indent = detectIndent();
+            int braceLine = lineStart(closeBrace);
+            StringBuilder sb = new StringBuilder();
+            if (isBlank(braceLine, closeBrace)) {
+                // Closing brace on its own line: insert whole lines before it
+                for (int i = 0; i < appended.size(); i++) {
+                    boolean comma = i < appended.size() - 1 || trailingComma;
+                    sb.append(indent).append(appended.get(i)).append(comma ? "," : "").append(eol);
+                }
+                changes.add(new Edit(braceLine, braceLine, sb.toString()));
+            } else {
+                // e.g. "{}" or "{ "a": 1 }": put the new members on their own lines
+                for (int i = 0; i < appended.size(); i++) {
+                    boolean comma = i < appended.size() - 1 || trailingComma;
+                    sb.append(eol).append(indent).append(appended.get(i)).append(comma ? "," : "");
+                }
+                sb.append(eol);
+                changes.add(new Edit(closeBrace, closeBrace, sb.toString()));
+            }
+        }
+
+        if (changes.isEmpty()) {
+            return text;
+        }
+        changes.sort(Comparator.comparingInt((Edit e) -> e.start).thenComparingInt(e -> e.end));
+        StringBuilder out = new StringBuilder(text.length() + 256);
+        int pos = 0;
+        for (Edit e : changes) {
+            // substring() copies in bulk; append(CharSequence, int, int) goes char by char
+            out.append(text.substring(pos, e.start)).append(e.text);
+            pos = e.end;
+        }
+        return out.append(text.substring(pos)).toString();
+    }
+
+    /**
+     * Returns the value as a quoted, escaped JSON string literal.
+     */
+    public static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Range covering a member and its comma. If the member is alone on its
+     * lines (optionally followed by a line comment), the whole lines go.
+     */
+    private Edit removal(Member m) {
+        int end = m.comma >= 0 ? m.comma + 1 : m.valueEnd;
+        int ls = lineStart(m.keyStart);
+        int e = end;
+        while (e < text.length() && (text.charAt(e) == ' ' || text.charAt(e) == '\t')) e++;
+        if (isBlank(ls, m.keyStart)) {
+            int eolEnd = e;
+            if (text.startsWith("//", eolEnd)) {
+                while (eolEnd < text.length() && text.charAt(eolEnd) != '\n' && text.charAt(eolEnd) != '\r') eolEnd++;
+            }
+            if (text.startsWith("\r\n", eolEnd)) {
+                return new Edit(ls, eolEnd + 2, "");
+            }
+            if (eolEnd < text.length() && (text.charAt(eolEnd) == '\n' || text.charAt(eolEnd) == '\r')) {
+                return new Edit(ls, eolEnd + 1, "");
+            }
+        }
+        return new Edit(m.keyStart, e, "");
+    }
+
+    /**
+     * Returns the line separator used by the first line break of the document.
+     */
+    private String detectLineSeparator() {
+        int nl = text.indexOf('\n');
+        return nl > 0 && text.charAt(nl - 1) == '\r' ? "\r\n" : "\n";
+    }
+
+    private String detectIndent() {
+        for (Member m : members) {
+            int ls = lineStart(m.keyStart);
+            if (isBlank(ls, m.keyStart) && m.keyStart > ls) {
+                return text.substring(ls, m.keyStart);
+            }
+        }
+        return DEFAULT_INDENT;
+    }
+
+    private int lineStart(int pos) {
+        int i = pos;
+        while (i > 0 && text.charAt(i - 1) != '\n' && text.charAt(i - 1) != '\r') i--;
+        return i;
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c != ' ' && c != '\t') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Skips whitespace, a byte order mark and comments.
+     */
+    private int skipTrivia(int pos) throws IOException {
+        int len = text.length();
+        while (pos < len) {
+            char c = text.charAt(pos);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\uFEFF') {
+                pos++;
+            } else if (c == '/' && pos + 1 < len && text.charAt(pos + 1) == '/') {
+                pos += 2;
+                while (pos < len && text.charAt(pos) != '\n' && text.charAt(pos) != '\r') pos++;
+            } else if (c == '/' && pos + 1 < len && text.charAt(pos + 1) == '*') {
+                int end = text.indexOf("*/", pos + 2);
+                if (end < 0) {
+                    throw error(pos, "unterminated comment");
+                }
+                pos = end + 2;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the index just past the string starting at pos.
+     */
+    private int skipString(int pos) throws IOException {
+        int len = text.length();
+        for (int i = pos + 1; i < len; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            } else if (c == '\n' || c == '\r') {
+                break;
+            }
+        }
+        throw error(pos, "unterminated string");
+    }
+
+    /**
+     * Returns the index just past the value starting at pos.
+     */
+    private int skipValue(int pos) throws IOException {
+        int len = text.length();
+        if (pos >= len) {
+            throw error(pos, "expected value");
+        }
+        char c = text.charAt(pos);
+        if (c == '"') {
+            return skipString(pos);
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            int i = pos;
+            while (i < len) {
+                char d = text.charAt(i);
+                if (d == '"') {
+                    i = skipString(i);
+                    continue;
+                }
+                if (d == '/' && i + 1 < len && (text.charAt(i + 1) == '/' || text.charAt(i + 1) == '*')) {
+                    i = skipTrivia(i);
+                    continue;
+                }
+                if (d == '{' || d == '[') {
+                    depth++;
+                } else if (d == '}' || d == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            throw error(pos, "unterminated " + (c == '{' ? "object" : "array"));
+        }
+        // Number or literal
+        int i = pos;
+        while (i < len) {
+            char d = text.charAt(i);
+            if (d == ',' || d == '}' || d == ']' || d == '/' || Character.isWhitespace(d)) break;
+            i++;
+        }
+        if (i == pos) {
+            throw error(pos, "expected value");
+        }
+        return i;
+    }
+
+    private String unescape(int from, int to) {
+        int backslash = from;
+        while (backslash < to && text.charAt(backslash) != '\\') backslash++;
+        if (backslash == to) {
+            return text.substring(from, to);
+        }
+        StringBuilder sb = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 >= to) {
+                sb.append(c);
+                continue;
+            }
+            char n = text.charAt(++i);
+            switch (n) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (i + 4 < to) {
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+                            i += 4;
+                            break;
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                    sb.append(n);
+                    break;
+                default: sb.append(n);
+            }
+        }
+        return sb.toString();
+    }
+
+    private IOException error(int pos, String message) {
+        int line = 1;
+        for (int i = 0; i < pos && i < text.length(); i++) {
+            if (text.charAt(i) == '\n') line++;
+        }
+        return new IOException("Invalid settings JSON at line " + line + ": " + message);
+    }
+}
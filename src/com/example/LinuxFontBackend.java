@@ -0,0 +1,175 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Installs fonts for the current user on Linux (and other fontconfig
+ * systems) into {@code $XDG_DATA_HOME/fonts/monocraft}, by default
+ * {@code ~/.local/share/fonts/monocraft}, which fontconfig scans on its own.
+ *
+ * Registering is just copying. The font cache is refreshed with
+ * {@code fc-cache} on that one folder rather than a full rebuild, in the
+ * background. After each successful refresh the folder's modification
+ * time is stored in the app data folder, so {@code fc-cache} is skipped
+ * when no font was added, replaced or removed since.
+ */
+public class LinuxFontBackend implements FontBackend {
+    private static final String FOLDER_NAME = "monocraft";
+    private static final String STAMP_FILE = "fc-cache.stamp";
+
+    @Override
+    public Path getFontsDir() {
+        String dataHome = System.getenv("XDG_DATA_HOME");
+        if (dataHome == null || dataHome.isEmpty()) {
+            dataHome = Paths.get(System.getProperty("user.home"), ".local", "share").toString();
+        }
+        return Paths.get(dataHome, "fonts", FOLDER_NAME);
+    }
+
+    /**
+     * The user's whole font folder (ours is a subfolder of it), the legacy
+     * {@code ~/.fonts} and the system font folders.
+     */
+    @Override
+    public List<Path> getSearchDirs() {
+        return Arrays.asList(getFontsDir().getParent(), Paths.get(System.getProperty("user.home"), ".fonts"),
+            Paths.get("/usr/local/share/fonts"), Paths.get("/usr/share/fonts"));
+    }
+
+    @Override
+    public Path getFontsDir(Path home) {
+        return home.resolve(".local").resolve("share").resolve("fonts").resolve(FOLDER_NAME);
+    }
+
+    /**
+     * fontconfig picks up every font in its folders, so each file there
+     * counts as registered.
+     */
+    @Override
+    public Set<String> getRegisteredFiles() throws IOException {
+        Set<String> files = new HashSet<>();
+        Path dir = getFontsDir();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                files.add(file.getFileName().toString().toLowerCase(Locale.ROOT));
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public Map<String, String> register(List<Path> fonts) throws IOException {
+        Path dir = getFontsDir();
+        Files.createDirectories(dir);
+        Map<String, String> written = new HashMap<>();
+        for (Path font : fonts) {
+            String fileName = font.getFileName().toString();
+            written.put(fileName, FileUtils.copyFile(font, dir.resolve(fileName)));
+        }
+        return written;
+    }
+
+    /**
+     * Nothing to do: fontconfig forgets deleted files on the next refresh.
+     */
+    @Override
+    public void unregister(List<String> fileNames) {
+    }
+
+    @Override
+    public CompletableFuture<Void> refresh(boolean changed) {
+        Path dir = getFontsDir();
+        Path stamp = SystemUtils.getAppDataDir().resolve(STAMP_FILE);
+        String folderTime = folderTime(dir);
+        if (folderTime == null || (!changed && folderTime.equals(readStamp(stamp)))) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String fcCache = findOnPath("fc-cache");
+        if (fcCache == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Metrics.Phase phase = Metrics.begin("refresh", dir.toString());
+        try {
+            return new ProcessRunner(Arrays.asList(fcCache, dir.toString()))
+                .mergeErrors(true)
+                .start()
+                .handle((result, error) -> {
+                    try (Metrics.Phase p = phase) {
+                        if (error == null && result.succeeded()) {
+                            writeStamp(stamp, folderTime);
+                            p.done(0, "refreshed");
+                        }
+                    }
+                    return null;
+                });
+        } catch (IOException e) {
+            phase.close();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Returns the folder's modification time, which changes whenever a file
+     * is added, removed or replaced, or null if there is no folder.
+     */
+    private static String folderTime(Path dir) {
+        try {
+            return Files.isDirectory(dir) ? Long.toString(Files.getLastModifiedTime(dir).toMillis()) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String readStamp(Path stamp) {
+        try {
+            return Files.readString(stamp, StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeStamp(Path stamp, String folderTime) {
+        try {
+            Files.createDirectories(stamp.getParent());
+            FileUtils.writeAtomically(stamp, folderTime.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Without a stamp the next run refreshes again; harmless
+        }
+    }
+
+    /**
+     * Returns the absolute path of an executable on the PATH, or null.
+     */
+    private static String findOnPath(String name) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (dir.isEmpty()) continue;
+            Path candidate = Paths.get(dir, name);
+            if (Files.isExecutable(candidate)) {
+                return candidate.toString();
+            }
+        }
+        return null;
+    }
+}
@@ -7,6 +7,10 @@ import java.awt.*;
  * Main application window with GUI components.
  */
 public class MainWindow {
+    /** Runs every font and settings action, one at a time. */
+    private static TaskRunner runner;
+    /** Shows the bundled fonts before they are installed. */
+    private static FontPreview preview;
     
     /**
      * Creates and displays the main application window.
@@ -14,7 +18,7 @@ public class MainWindow {
     public static void createAndShowGUI() {
         JFrame frame = new JFrame("Monocraft Font Tool");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(760, 280);
+        frame.setSize(760, 620);
         frame.setLayout(new BorderLayout());
         frame.getContentPane().setBackground(new Color(34, 40, 49));
 
@@ -41,10 +45,44 @@ public class MainWindow {
         mainPanel.add(fontPanel);
         mainPanel.add(Box.createRigidArea(new Dimension(0, 15)));
         mainPanel.add(settingsPanel);
+        mainPanel.add(Box.createRigidArea(new Dimension(0, 15)));
+
+        // Preview, filled in once the fonts are loaded in the background
+        preview = new FontPreview(new Color(34, 40, 49));
+        mainPanel.add(preview);
 
         frame.add(mainPanel, BorderLayout.CENTER);
+
+        // Progress of the running action
+        TaskRunner.ProgressPanel progressPanel = new TaskRunner.ProgressPanel(new Color(34, 40, 49));
+        runner = new TaskRunner(progressPanel);
+        frame.add(progressPanel, BorderLayout.SOUTH);
+
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+
+        preview.start();
+        recoverInterruptedOperation();
+    }
+
+    /**
+     * Finishes an operation a previous run left half done, before any
+     * action the user starts.
+     */
+    private static void recoverInterruptedOperation() {
+        String[] recovered = new String[1];
+        runner.submit(new TaskRunner.Task("Startup")
+            .step("Checking for interrupted operations",
+                ctx -> recovered[0] = FontInstaller.recoverInterruptedOperation())
+            .onSuccess(() -> {
+                if (recovered[0] != null) {
+                    JOptionPane.showMessageDialog(null, recovered[0] + ".",
+                        "Interrupted Operation", JOptionPane.INFORMATION_MESSAGE);
+                }
+            })
+            .onFailure(ex -> JOptionPane.showMessageDialog(null,
+                "Could not recover an interrupted operation: " + ex.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE)));
     }
 
     /**
@@ -120,8 +158,8 @@ public class MainWindow {
         removeButton.setMaximumSize(new Dimension(320, 50));
 
         // Add action listeners
-        addButton.addActionListener(e -> SettingsManager.modifySettings(true));
-        removeButton.addActionListener(e -> SettingsManager.modifySettings(false));
+        addButton.addActionListener(e -> modifySettings(true));
+        removeButton.addActionListener(e -> modifySettings(false));
 
         // Assemble panel
         settingsPanel.add(Box.createHorizontalGlue());
@@ -140,33 +178,116 @@ public class MainWindow {
         JPopupMenu menu = new JPopupMenu();
         
         JMenuItem installOnlyItem = new JMenuItem("Install Fonts Only");
-        installOnlyItem.addActionListener(e -> showProgressDialog(() -> {
-            try {
-                FontInstaller.installFonts(false);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, 
-                    "Error installing fonts: " + ex.getMessage(), 
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        }));
+        installOnlyItem.addActionListener(e -> installFonts(false, FontManifest.Selection.DEFAULT));
         
         JMenuItem installAndAddItem = new JMenuItem("Install Fonts & Add to VS Code");
-        installAndAddItem.addActionListener(e -> showProgressDialog(() -> {
-            try {
-                FontInstaller.installFonts(true);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, 
-                    "Error installing fonts: " + ex.getMessage(), 
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        }));
+        installAndAddItem.addActionListener(e -> installFonts(true, FontManifest.Selection.DEFAULT));
+        
+        JMenuItem installFamilyItem = new JMenuItem("Install Full Family (All Weights & Italics)");
+        installFamilyItem.addActionListener(e -> installFonts(false, FontManifest.Selection.FULL_FAMILY));
         
         menu.add(installOnlyItem);
         menu.add(installAndAddItem);
+        menu.addSeparator();
+        menu.add(installFamilyItem);
         
         menu.show(installButton, 0, installButton.getHeight());
     }
 
+    /**
+     * What an install task found out, handed from its steps to its
+     * completion callback.
+     */
+    private static final class InstallOutcome {
+        volatile FontInstaller.Result result;
+        volatile SettingsManager.Report report;
+    }
+
+    /**
+     * Installs the fonts, asking whether to reinstall them if they turn out
+     * to be installed already, and reports the outcome. The installation
+     * itself checks what is installed, so the fonts are verified once.
+     * 
+     * @param alsoAddToVSCode If true, also configures VS Code settings
+     * @param selection The fonts to install
+     */
+    private static void installFonts(boolean alsoAddToVSCode, FontManifest.Selection selection) {
+        InstallOutcome outcome = new InstallOutcome();
+        TaskRunner.Task task = new TaskRunner.Task("Install fonts")
+            .step("Installing fonts", ctx -> {
+                outcome.result = FontInstaller.installFonts(false, selection);
+                if (outcome.result == FontInstaller.Result.ALREADY_INSTALLED) {
+                    if (!ctx.confirm("Fonts are already installed correctly.\nDo you want to reinstall them?",
+                            "Already Installed", JOptionPane.INFORMATION_MESSAGE)) {
+                        ctx.cancel();
+                        return;
+                    }
+                    outcome.result = FontInstaller.installFonts(true, selection);
+                }
+            });
+        if (alsoAddToVSCode) {
+            task.step("Adding fonts to VS Code", ctx -> {
+                if (outcome.result != FontInstaller.Result.UNVERIFIED) {
+                    outcome.report = SettingsManager.modifySettings(true);
+                }
+            });
+        }
+        runner.submit(task
+            .onSuccess(() -> {
+                FontInstaller.Result result = outcome.result;
+                if (result == FontInstaller.Result.ALREADY_INSTALLED && !alsoAddToVSCode) {
+                    JOptionPane.showMessageDialog(null, 
+                        "Installed fonts are already up to date.", 
+                        "Already Installed", JOptionPane.INFORMATION_MESSAGE);
+                } else if (result == FontInstaller.Result.UNVERIFIED) {
+                    JOptionPane.showMessageDialog(null, 
+                        "Fonts copied but verification failed. You may need to restart applications or sign out/in.", 
+                        "Partial Success", JOptionPane.WARNING_MESSAGE);
+                } else if (alsoAddToVSCode) {
+                    JOptionPane.showMessageDialog(null, 
+                        "Fonts installed and added to VS Code successfully!", 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(null, 
+                        "Fonts installed successfully!", 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                }
+            })
+            .onFailure(ex -> JOptionPane.showMessageDialog(null, 
+                "Error installing fonts: " + ex.getMessage(), 
+                "Error", JOptionPane.ERROR_MESSAGE)));
+    }
+
+    /**
+     * Adds or removes the VS Code settings and reports problems in a dialog.
+     * 
+     * @param add If true, adds font settings; if false, removes them
+     */
+    private static void modifySettings(boolean add) {
+        SettingsManager.Report[] report = new SettingsManager.Report[1];
+        runner.submit(new TaskRunner.Task(add ? "Add font settings" : "Remove font settings")
+            .step(add ? "Adding fonts to VS Code" : "Removing fonts from VS Code",
+                ctx -> report[0] = SettingsManager.modifySettings(add))
+            .onSuccess(() -> showSettingsProblems(report[0])));
+    }
+
+    /**
+     * Shows a dialog if no settings file was found or one could not be modified.
+     */
+    private static void showSettingsProblems(SettingsManager.Report report) {
+        if (report.getResult() == SettingsManager.Result.NOT_FOUND) {
+            JOptionPane.showMessageDialog(null, 
+                "No VS Code settings.json found under:\n" + report.getConfigRoot(), 
+                "Error", JOptionPane.ERROR_MESSAGE);
+        } else if (report.getResult() == SettingsManager.Result.FAILED) {
+            StringBuilder sb = new StringBuilder("Error modifying settings:");
+            for (SettingsManager.TargetResult failure : report.getFailures()) {
+                sb.append("\n").append(failure.getPath()).append(": ").append(failure.getError().getMessage());
+            }
+            JOptionPane.showMessageDialog(null, sb.toString(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Shows uninstall confirmation and performs uninstallation.
      */
@@ -182,39 +303,16 @@ public class MainWindow {
             JOptionPane.WARNING_MESSAGE);
         
         if (choice == JOptionPane.YES_OPTION) {
-            showProgressDialog(() -> {
-                try {
-                    // First remove from VS Code settings silently
-                    SettingsManager.modifySettings(false, false);
-                    // Then uninstall fonts
-                    FontInstaller.uninstallFonts();
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(null, 
-                        "Error uninstalling fonts: " + ex.getMessage(), 
-                        "Error", JOptionPane.ERROR_MESSAGE);
-                }
-            });
+            runner.submit(new TaskRunner.Task("Uninstall fonts")
+                // First remove from VS Code settings silently, then uninstall fonts
+                .step("Removing fonts from VS Code", ctx -> SettingsManager.modifySettings(false))
+                .step("Uninstalling fonts", ctx -> FontInstaller.uninstallFonts())
+                .onSuccess(() -> JOptionPane.showMessageDialog(null, 
+                    "Fonts uninstalled for the current user.", 
+                    "Uninstalled", JOptionPane.INFORMATION_MESSAGE))
+                .onFailure(ex -> JOptionPane.showMessageDialog(null, 
+                    "Error uninstalling fonts: " + ex.getMessage(), 
+                    "Error", JOptionPane.ERROR_MESSAGE)));
         }
     }
-
-    /**
-     * Shows a progress dialog while executing an action.
-     */
-    private static void showProgressDialog(Runnable action) {
-        final JDialog dialog = new JDialog((Frame) null, "Working...", true);
-        JLabel label = new JLabel("Please wait...", SwingConstants.CENTER);
-        dialog.getContentPane().add(label);
-        dialog.setSize(300, 100);
-        dialog.setLocationRelativeTo(null);
-
-        Thread t = new Thread(() -> {
-            try {
-                action.run();
-            } finally {
-                SwingUtilities.invokeLater(dialog::dispose);
-            }
-        });
-        t.start();
-        dialog.setVisible(true);
-    }
 }
@@ -0,0 +1,93 @@
+package com.example;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link FontRegistry} kept in memory, for running the Windows install and
+ * uninstall logic on other platforms, e.g. in benchmarks:
+ *
+ * <pre>
+ * MemoryFontRegistry registry = new MemoryFontRegistry();
+ * FontBackend backend = new WindowsFontBackend(tempDir, registry);
+ * </pre>
+ *
+ * Value names are case-insensitive as in the registry. Besides the values
+ * it counts reads and applied transactions and remembers the files the
+ * session was told about, so callers can check how many round trips an
+ * operation took.
+ */
+public class MemoryFontRegistry implements FontRegistry {
+    private final Map<String, String> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<Path> loaded = new ArrayList<>();
+    private int reads;
+    private int applies;
+
+    @Override
+    public synchronized Map<String, String> readValues() {
+        reads++;
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : values.entrySet()) {
+            if (FontRegistry.isMonocraft(e.getKey(), e.getValue())) {
+                result.put(e.getKey(), e.getValue());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void apply(Transaction transaction) {
+        if (transaction.isEmpty()) {
+            return;
+        }
+        applies++;
+        for (Map.Entry<String, String> op : transaction.getOperations().entrySet()) {
+            if (op.getValue() == null) {
+                values.remove(op.getKey());
+            } else {
+                values.put(op.getKey(), op.getValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void notifyFontsChanged(List<Path> added, List<Path> removed) {
+        loaded.removeAll(removed);
+        loaded.addAll(added);
+    }
+
+    /**
+     * Sets a value directly, e.g. another program's font; not counted as
+     * an applied transaction.
+     */
+    public synchronized void put(String name, String data) {
+        values.put(name, data);
+    }
+
+    /**
+     * Returns all values, Monocraft or not.
+     */
+    public synchronized Map<String, String> getValues() {
+        return Collections.unmodifiableMap(new TreeMap<>(values));
+    }
+
+    /**
+     * Returns the font files currently loaded into the simulated session.
+     */
+    public synchronized List<Path> getLoadedFonts() {
+        return new ArrayList<>(loaded);
+    }
+
+    public synchronized int getReadCount() {
+        return reads;
+    }
+
+    public synchronized int getApplyCount() {
+        return applies;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timing of install and settings phases.
+ *
+ * When collection is switched on (the {@code --metrics} option) phases
+ * are summed per phase name in memory for {@link #summary()}. Setting the
+ * system property {@value #JFR_PROPERTY} (or using {@code --metrics})
+ * also emits every phase as a {@code com.example.Phase} JFR event, so a
+ * recording taken on a slow machine shows where the time went, e.g.
+ * {@code -XX:StartFlightRecording=filename=install.jfr
+ * -Dmonocraft.jfr=true}.
+ *
+ * Otherwise no JFR class is loaded at all: the first event of a process
+ * costs about half a second to set up JFR, recording or not, which would
+ * dominate a quick {@code --verify}. A phase then only reads the clock.
+ *
+ * Usage:
+ * <pre>
+ * try (Metrics.Phase phase = Metrics.begin("copy", file)) {
+ *     ...
+ *     phase.done(bytes, "copied");
+ * }
+ * </pre>
+ * A phase closed without {@link Phase#done} is recorded as failed.
+ */
+public final class Metrics {
+    /** System property that turns on JFR events without {@code --metrics}. */
+    public static final String JFR_PROPERTY = "monocraft.jfr";
+
+    private static volatile boolean collecting;
+    private static volatile boolean emitting = Boolean.getBoolean(JFR_PROPERTY);
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * JFR event for one phase. Only reached through its static methods, so
+     * the class (and JFR) is loaded on first use rather than with
+     * {@link Phase}.
+     */
+    @Name("com.example.Phase")
+    @Label("Install Phase")
+    @Category("Monocraft Font Tool")
+    @Description("One phase of installing fonts or editing settings")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("File")
+        String file;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Outcome")
+        String outcome;
+
+        static Object start(String phase, String file) {
+            PhaseEvent event = new PhaseEvent();
+            event.phase = phase;
+            event.file = file;
+            event.begin();
+            return event;
+        }
+
+        static void end(Object started, long bytes, String outcome) {
+            PhaseEvent event = (PhaseEvent) started;
+            event.bytes = bytes;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    /**
+     * A running phase; closing it records the event.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final String phase;
+        /** The JFR event, typed Object so that Phase does not load JFR; null if not emitting. */
+        private final Object event;
+        private final long start = System.nanoTime();
+        private long bytes;
+        private String outcome;
+        private boolean done;
+
+        Phase(String phase, String file) {
+            this.phase = phase;
+            this.event = emitting ? PhaseEvent.start(phase, file) : null;
+        }
+
+        /**
+         * Marks the phase successful.
+         *
+         * @param bytes Bytes read, written or hashed; 0 if not applicable
+         * @param outcome Short result, e.g. "copied" or "cached"
+         */
+        public void done(long bytes, String outcome) {
+            this.bytes = bytes;
+            this.outcome = outcome;
+            done = true;
+        }
+
+        @Override
+        public void close() {
+            if (!done) {
+                outcome = "failed";
+            }
+            if (event != null) {
+                PhaseEvent.end(event, bytes, outcome);
+            }
+            if (collecting) {
+                STATS.computeIfAbsent(phase, k -> new Stats())
+                    .add(System.nanoTime() - start, bytes, !done);
+            }
+        }
+    }
+
+    /**
+     * Totals for one phase name.
+     */
+    public static final class Stats {
+        private long count;
+        private long failures;
+        private long totalNanos;
+        private long maxNanos;
+        private long bytes;
+
+        synchronized void add(long nanos, long bytes, boolean failed) {
+            count++;
+            if (failed) failures++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            this.bytes += bytes;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        public synchronized double getTotalMillis() {
+            return totalNanos / 1e6;
+        }
+
+        public synchronized double getMeanMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public synchronized double getMaxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        public synchronized long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param phase Phase name, e.g. "extract", "copy", "register"
+     * @param file File the phase works on, or null
+     */
+    public static Phase begin(String phase, String file) {
+        return new Phase(phase, file);
+    }
+
+    /**
+     * Switches in-memory collection for {@link #summary()} on or off.
+     * Switching it on also emits JFR events from then on; without it they
+     * are only emitted if {@value #JFR_PROPERTY} is set.
+     */
+    public static void setCollecting(boolean enabled) {
+        collecting = enabled;
+        emitting = enabled || Boolean.getBoolean(JFR_PROPERTY);
+    }
+
+    /**
+     * Returns the collected totals by phase name, sorted by name.
+     */
+    public static Map<String, Stats> summary() {
+        return new TreeMap<>(STATS);
+    }
+
+    /**
+     * Formats the collected totals as a JSON "phases" member.
+     */
+    public static String toJson() {
+        List<String> items = new ArrayList<>();
+        for (Map.Entry<String, Stats> e : summary().entrySet()) {
+            Stats s = e.getValue();
+            items.add(String.format(Locale.ROOT,
+                "{\"phase\":%s,\"count\":%d,\"failures\":%d,\"totalMillis\":%.1f,\"meanMillis\":%.2f,\"maxMillis\":%.2f,\"bytes\":%d}",
+                JsoncEditor.quote(e.getKey()), s.getCount(), s.getFailures(), s.getTotalMillis(),
+                s.getMeanMillis(), s.getMaxMillis(), s.getBytes()));
+        }
+        return "\"phases\":[" + String.join(",", items) + "]";
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Locale;
  * - Install/uninstall Monocraft fonts for current user (no admin required)
  * - Add/remove Monocraft font configuration in VS Code settings
  * - Bundled fonts support for single-file distribution
+ * - Headless command-line mode (see {@link CommandLine})
  * 
  * @version 1.3.5
  */
@@ -22,6 +23,11 @@ public class MonocraftFontInstaller {
         // Set locale to English to ensure button labels are in English
         Locale.setDefault(Locale.ENGLISH);
         
+        // Any arguments select the headless mode, which never touches AWT/Swing
+        if (CommandLine.isRequested(args)) {
+            System.exit(CommandLine.run(args, System.out, System.err));
+        }
+        
         // Launch the GUI on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> MainWindow.createAndShowGUI());
     }
@@ -0,0 +1,247 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs an external command without blocking the caller.
+ *
+ * stdout and stderr are drained concurrently on daemon threads, so a chatty
+ * process never stalls on a full pipe, and captured into the {@link Result}
+ * along with the exit code and duration. A timeout (and cancelling the
+ * returned future) kills the process together with every process it
+ * started, so a hung PowerShell or {@code reg} call cannot freeze the
+ * caller. Independent commands can be started together and joined with
+ * {@link CompletableFuture#allOf}.
+ *
+ * <pre>
+ * ProcessRunner.Result r = new ProcessRunner(Arrays.asList("reg", "query", key))
+ *     .timeoutMillis(10_000)
+ *     .run();
+ * </pre>
+ */
+public class ProcessRunner {
+    /** Default timeout, configurable with {@code monocraft.commandTimeoutMillis}. */
+    private static final long DEFAULT_TIMEOUT_MILLIS = 120_000;
+    /** Output kept per stream; anything beyond is dropped from the result. */
+    private static final int MAX_CAPTURED_CHARS = 1 << 20;
+
+    private static final ExecutorService DRAIN_POOL = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "process-output");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final ScheduledExecutorService TIMEOUTS = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "process-timeout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Exit code, output and duration of a finished command.
+     */
+    public static class Result {
+        private final List<String> command;
+        private final int exitCode;
+        private final String stdout;
+        private final String stderr;
+        private final long durationMillis;
+        private final boolean timedOut;
+
+        Result(List<String> command, int exitCode, String stdout, String stderr, long durationMillis,
+               boolean timedOut) {
+            this.command = command;
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.durationMillis = durationMillis;
+            this.timedOut = timedOut;
+        }
+
+        public List<String> getCommand() {
+            return command;
+        }
+
+        /** Exit code of the process; meaningless if {@link #isTimedOut()}. */
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /** Standard output, or stdout and stderr combined if they were merged. */
+        public String getStdout() {
+            return stdout;
+        }
+
+        /** Standard error; empty if it was merged into stdout. */
+        public String getStderr() {
+            return stderr;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /** True if the process was killed because it ran past the timeout. */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /** True if the process finished in time with exit code 0. */
+        public boolean succeeded() {
+            return !timedOut && exitCode == 0;
+        }
+
+        @Override
+        public String toString() {
+            return command.get(0) + (timedOut ? ": timed out" : ": exit " + exitCode) + " in " + durationMillis + " ms";
+        }
+    }
+
+    private final List<String> command;
+    private long timeoutMillis = Long.getLong("monocraft.commandTimeoutMillis", DEFAULT_TIMEOUT_MILLIS);
+    private boolean mergeErrors;
+    private Consumer<String> lineListener;
+
+    /**
+     * Creates a runner for a command and its arguments.
+     */
+    public ProcessRunner(List<String> command) {
+        if (command.isEmpty()) {
+            throw new IllegalArgumentException("Empty command");
+        }
+        this.command = Collections.unmodifiableList(new ArrayList<>(command));
+    }
+
+    /**
+     * Sets how long the command may run before it is killed; 0 for no limit.
+     */
+    public ProcessRunner timeoutMillis(long millis) {
+        this.timeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * Sends stderr into stdout, keeping the order in which lines were written.
+     */
+    public ProcessRunner mergeErrors(boolean merge) {
+        this.mergeErrors = merge;
+        return this;
+    }
+
+    /**
+     * Receives every stdout line as it is read, on a drain thread.
+     */
+    public ProcessRunner onOutputLine(Consumer<String> listener) {
+        this.lineListener = listener;
+        return this;
+    }
+
+    /**
+     * Starts the command.
+     *
+     * @return Completes with the result once the process has exited and its
+     *         output is drained; cancelling it kills the process tree
+     * @throws IOException If the process cannot be started
+     */
+    public CompletableFuture<Result> start() throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(mergeErrors);
+        long started = System.nanoTime();
+        Process process = pb.start();
+        process.getOutputStream().close();
+
+        CompletableFuture<String> stdout = drain(process.getInputStream(), lineListener);
+        CompletableFuture<String> stderr = mergeErrors
+            ? CompletableFuture.completedFuture("") : drain(process.getErrorStream(), null);
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> timer = timeoutMillis > 0
+            ? TIMEOUTS.schedule(() -> {
+                timedOut.set(true);
+                killTree(process);
+            }, timeoutMillis, TimeUnit.MILLISECONDS)
+            : null;
+
+        CompletableFuture<Result> result = process.onExit()
+            .thenCombine(stdout, (p, out) -> out)
+            .thenCombine(stderr, (out, err) -> {
+                if (timer != null) timer.cancel(false);
+                long elapsed = (System.nanoTime() - started) / 1_000_000;
+                return new Result(command, process.exitValue(), out, err, elapsed, timedOut.get());
+            });
+        result.whenComplete((r, e) -> {
+            if (e instanceof CancellationException) {
+                killTree(process);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs the command and waits for it. If the calling thread is
+     * interrupted, the process tree is killed.
+     *
+     * @return The result; check {@link Result#isTimedOut()} and the exit code
+     * @throws IOException If the process cannot be started or the wait is interrupted
+     */
+    public Result run() throws IOException {
+        CompletableFuture<Result> future = start();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + command.get(0));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * Forcibly ends a process and all of its descendants, children first.
+     */
+    static void killTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * Reads a stream to its end on a drain thread.
+     */
+    private static CompletableFuture<String> drain(InputStream stream, Consumer<String> listener) {
+        return CompletableFuture.supplyAsync(() -> {
+            StringBuilder sb = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (listener != null) {
+                        listener.accept(line);
+                    }
+                    if (sb.length() < MAX_CAPTURED_CHARS) {
+                        sb.append(line).append('\n');
+                    }
+                }
+            } catch (IOException e) {
+                // The stream closes when the process is killed; keep what was read
+            }
+            return sb.toString();
+        }, DRAIN_POOL);
+    }
+}
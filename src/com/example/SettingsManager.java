@@ -1,210 +1,322 @@
 package com.example;
 
-import javax.swing.*;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Manages VS Code settings.json modifications for font configuration.
+ * Results are returned rather than displayed; dialogs live in {@link MainWindow}.
+ *
+ * Every settings file found by {@link SettingsTargets} is patched, i.e. all
+ * profiles of Code, Code - Insiders, VSCodium and Cursor.
  */
 public class SettingsManager {
     private static final String FONT_FAMILY = "Monocraft, 'Monocraft Nerd Font', Consolas, 'Courier New', monospace";
     private static final String TERMINAL_FONT = "Monocraft Nerd Font";
-    
+    private static final int MAX_PARALLEL_TARGETS = 8;
+
     /**
-     * Modifies VS Code settings to add or remove Monocraft font configuration.
-     * 
-     * @param add If true, adds font settings; if false, removes them
+     * Outcome of a settings modification.
      */
-    public static void modifySettings(boolean add) {
-        modifySettings(add, true);
+    public enum Result {
+        /** settings.json was rewritten. */
+        UPDATED,
+        /** settings.json already had the requested settings; nothing was written. */
+        UNCHANGED,
+        /** No settings.json exists at the expected location. */
+        NOT_FOUND,
+        /** settings.json could not be read, parsed or written. */
+        FAILED
     }
-    
+
     /**
-     * Modifies VS Code settings to add or remove Monocraft font configuration.
-     * 
-     * @param add If true, adds font settings; if false, removes them
-     * @param showMessage If true, shows success/error dialogs
+     * Outcome for one settings file.
      */
-    public static void modifySettings(boolean add, boolean showMessage) {
-        try {
-            String userHome = System.getProperty("user.home");
-            Path settingsPath = Paths.get(userHome, "AppData", "Roaming", "Code", "User", "settings.json");
-
-            if (!Files.exists(settingsPath)) {
-                if (showMessage) {
-                    JOptionPane.showMessageDialog(null, 
-                        "VS Code settings.json not found at:\n" + settingsPath, 
-                        "Error", JOptionPane.ERROR_MESSAGE);
-                }
-                return;
-            }
+    public static class TargetResult {
+        private final Path path;
+        private final Result result;
+        private final List<SettingsPatch.Change> changes;
+        private final IOException error;
+        private final String sha256;
 
-            // Read settings.json
-            String content = Files.readString(settingsPath, StandardCharsets.UTF_8);
-
-            if (add) {
-                // Add or update Monocraft font settings
-                content = addOrUpdateProperty(content, "editor.fontFamily", FONT_FAMILY);
-                content = addOrUpdateProperty(content, "editor.fontLigatures", "true");
-                content = addOrUpdateProperty(content, "terminal.integrated.fontFamily", TERMINAL_FONT);
-            } else {
-                // Remove Monocraft font settings
-                content = removeProperty(content, "editor.fontFamily");
-                content = removeProperty(content, "editor.fontLigatures");
-                content = removeProperty(content, "terminal.integrated.fontFamily");
-            }
+        TargetResult(Path path, Result result, List<SettingsPatch.Change> changes, IOException error) {
+            this(path, result, changes, error, null);
+        }
+
+        TargetResult(Path path, Result result, List<SettingsPatch.Change> changes, IOException error, String sha256) {
+            this.path = path;
+            this.result = result;
+            this.changes = changes;
+            this.error = error;
+            this.sha256 = sha256;
+        }
 
-            // Write back to file
-            Files.writeString(settingsPath, content, StandardCharsets.UTF_8);
+        public Path getPath() {
+            return path;
+        }
 
-        } catch (IOException ex) {
-            if (showMessage) {
-                JOptionPane.showMessageDialog(null, 
-                    "Error modifying settings: " + ex.getMessage(), 
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
+        public Result getResult() {
+            return result;
+        }
+
+        public List<SettingsPatch.Change> getChanges() {
+            return changes;
+        }
+
+        /** The failure, if the result is {@link Result#FAILED}. */
+        public IOException getError() {
+            return error;
         }
     }
 
     /**
-     * Adds or updates a property in the JSON settings.
+     * Aggregated outcome over all settings files.
      */
-    private static String addOrUpdateProperty(String json, String key, String value) {
-        // Operate on lines to preserve user formatting - handle both \r\n and \n
-        String[] rawLines = json.split("\\r?\\n", -1);
-        List<String> lines = new ArrayList<>();
-        for (String l : rawLines) lines.add(l);
-
-        String newProperty;
-        if ("true".equals(value) || "false".equals(value)) {
-            newProperty = "    \"" + key + "\": " + value;
-        } else {
-            newProperty = "    \"" + key + "\": \"" + value + "\"";
+    public static class Report {
+        private final Path configRoot;
+        private final List<TargetResult> targets;
+
+        Report(Path configRoot, List<TargetResult> targets) {
+            this.configRoot = configRoot;
+            this.targets = Collections.unmodifiableList(targets);
         }
 
-        // Replace existing property if present
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            if (line.contains("\"" + key + "\"")) {
-                boolean hasComma = line.trim().endsWith(",");
-                lines.set(i, newProperty + (hasComma ? "," : ""));
-                return String.join("\n", lines);
-            }
+        /** Directory that was searched for settings files. */
+        public Path getConfigRoot() {
+            return configRoot;
         }
 
-        // Clean up standalone comma lines and merge them with previous lines FIRST
-        for (int i = lines.size() - 1; i >= 0; i--) {
-            String trimmed = lines.get(i).trim();
-            if (trimmed.equals(",") || trimmed.isEmpty()) {
-                if (trimmed.equals(",")) {
-                    // Move comma to previous non-empty line
-                    int prevNonEmpty = i - 1;
-                    while (prevNonEmpty >= 0 && lines.get(prevNonEmpty).trim().isEmpty()) prevNonEmpty--;
-                    
-                    if (prevNonEmpty >= 0 && !lines.get(prevNonEmpty).trim().endsWith(",") && !lines.get(prevNonEmpty).trim().equals("{")) {
-                        lines.set(prevNonEmpty, lines.get(prevNonEmpty) + ",");
-                    }
-                }
-                // Remove empty and standalone comma lines
-                if (trimmed.equals(",") || (trimmed.isEmpty() && i > 0 && i < lines.size() - 1)) {
-                    lines.remove(i);
+        public List<TargetResult> getTargets() {
+            return targets;
+        }
+
+        /**
+         * Returns the overall result: NOT_FOUND if there were no settings files,
+         * FAILED if any file failed, UPDATED if any file changed, else UNCHANGED.
+         */
+        public Result getResult() {
+            if (targets.isEmpty()) {
+                return Result.NOT_FOUND;
+            }
+            boolean updated = false;
+            for (TargetResult t : targets) {
+                if (t.getResult() == Result.FAILED) {
+                    return Result.FAILED;
                 }
+                updated |= t.getResult() == Result.UPDATED;
             }
+            return updated ? Result.UPDATED : Result.UNCHANGED;
         }
 
-        // Insert before the last closing brace
-        int insertIndex = -1;
-        for (int i = lines.size() - 1; i >= 0; i--) {
-            if (lines.get(i).trim().equals("}")) {
-                insertIndex = i;
-                break;
+        /** Targets whose result is {@link Result#FAILED}. */
+        public List<TargetResult> getFailures() {
+            List<TargetResult> failures = new ArrayList<>();
+            for (TargetResult t : targets) {
+                if (t.getResult() == Result.FAILED) failures.add(t);
             }
+            return failures;
         }
+    }
 
-        if (insertIndex == -1) {
-            lines.add(newProperty);
-            return String.join("\n", lines);
+    /**
+     * Modifies the settings of every VS Code-family editor and profile of the
+     * current user to add or remove Monocraft font configuration.
+     *
+     * @param add If true, adds font settings; if false, removes them
+     * @return The per-file outcomes
+     */
+    public static Report modifySettings(boolean add) {
+        return modifySettings(add, SettingsTargets.getDefaultConfigRoot());
+    }
+
+    /**
+     * Modifies every settings file below the given config root. Files are
+     * patched concurrently on a small bounded pool; a failure in one file
+     * does not stop the others. The journal is locked meanwhile; if that is
+     * not possible the files are patched unjournaled.
+     *
+     * @param add If true, adds font settings; if false, removes them
+     * @param configRoot Directory containing the editors' config directories
+     * @return The per-file outcomes
+     */
+    public static Report modifySettings(boolean add, Path configRoot) {
+        InstallJournal.Lock lock = lockJournal();
+        try {
+            return modifyAll(add, configRoot, lock != null);
+        } finally {
+            if (lock != null) {
+                try {
+                    lock.close();
+                } catch (IOException e) {
+                    // Released when the process exits
+                }
+            }
         }
+    }
 
-        // Ensure previous line ends with comma
-        int prev = insertIndex - 1;
-        while (prev >= 0 && lines.get(prev).trim().isEmpty()) prev--;
-        
-        if (prev >= 0) {
-            String prevLine = lines.get(prev);
-            String t = prevLine.trim();
-            if (!t.equals("{") && !t.endsWith(",")) {
-                lines.set(prev, prevLine + ",");
+    private static Report modifyAll(boolean add, Path configRoot, boolean journaled) {
+        List<Path> paths = SettingsTargets.discover(configRoot);
+        SettingsPatch patch = createPatch(add);
+        InstallJournal.Operation op = journaled ? beginJournal(add, paths) : null;
+        List<TargetResult> results = new ArrayList<>(paths.size());
+        if (paths.size() <= 1) {
+            for (Path p : paths) {
+                results.add(applyPatch(patch, p));
             }
+            commitJournal(op, add, results);
+            return new Report(configRoot, results);
         }
 
-        // New property is inserted before closing brace, so it's the last property (no comma needed)
-        lines.add(insertIndex, newProperty);
-        return String.join("\n", lines);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(paths.size(), MAX_PARALLEL_TARGETS), r -> {
+            Thread t = new Thread(r, "settings-patch");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<TargetResult>> futures = new ArrayList<>(paths.size());
+            for (Path p : paths) {
+                futures.add(pool.submit(() -> applyPatch(patch, p)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new TargetResult(paths.get(i), Result.FAILED, Collections.emptyList(),
+                        new IOException(e.getCause())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(new TargetResult(paths.get(i), Result.FAILED, Collections.emptyList(),
+                        new IOException("Interrupted")));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        commitJournal(op, add, results);
+        return new Report(configRoot, results);
     }
 
     /**
-     * Removes a property from the JSON settings.
+     * Patches the settings files of another user's profile one after the
+     * other and without journaling them; fleet mode runs many of these side
+     * by side. The profile's owner controls its files, so a settings file
+     * reached through a symbolic link anywhere below the home directory is
+     * refused rather than written.
+     *
+     * @param add If true, adds font settings; if false, removes them
+     * @param home The user's home directory
+     * @return The per-file outcomes
      */
-    private static String removeProperty(String json, String key) {
-        String[] rawLines = json.split("\n", -1);
-        List<String> lines = new ArrayList<>();
-        for (String l : rawLines) lines.add(l);
-
-        boolean removed = false;
-        for (int i = 0; i < lines.size(); ) {
-            String line = lines.get(i);
-            if (line.contains("\"" + key + "\"")) {
-                lines.remove(i);
-                removed = true;
-            } else {
-                i++;
+    static Report modifyProfileSettings(boolean add, Path home) {
+        Path configRoot = SettingsTargets.getConfigRoot(home);
+        SettingsPatch patch = createPatch(add).followLinks(false);
+        List<TargetResult> results = new ArrayList<>();
+        for (Path p : SettingsTargets.discover(configRoot)) {
+            try {
+                FileUtils.checkNoLinks(home, p);
+            } catch (IOException e) {
+                results.add(new TargetResult(p, Result.FAILED, Collections.emptyList(), e));
+                continue;
             }
+            results.add(applyPatch(patch, p));
         }
+        return new Report(configRoot, results);
+    }
 
-        if (!removed) return json;
+    /**
+     * Takes the journal lock, or returns null if the journal is unavailable
+     * or another process keeps it locked.
+     */
+    private static InstallJournal.Lock lockJournal() {
+        try {
+            return InstallJournal.getDefault().lock();
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
-        // Remove standalone comma lines and dangling commas before closing brace
-        for (int i = 0; i < lines.size(); ) {
-            String trimmed = lines.get(i).trim();
-            // Remove standalone comma lines
-            if (trimmed.equals(",")) {
-                lines.remove(i);
-                continue;
-            }
-            i++;
-        }
-        
-        // Remove dangling comma before closing brace
-        for (int i = 0; i < lines.size(); i++) {
-            if (lines.get(i).trim().equals("}")) {
-                int prev = i - 1;
-                while (prev >= 0 && lines.get(prev).trim().isEmpty()) prev--;
-                if (prev >= 0) {
-                    String prevLine = lines.get(prev);
-                    if (prevLine.trim().endsWith(",")) {
-                        boolean hasAnother = false;
-                        for (int j = prev - 1; j >= 0; j--) {
-                            String t = lines.get(j).trim();
-                            if (t.isEmpty()) continue;
-                            if (t.equals("{")) break;
-                            hasAnother = true;
-                            break;
-                        }
-                        if (!hasAnother) {
-                            lines.set(prev, prevLine.replaceFirst(",\\s*$", ""));
-                        }
-                    }
-                }
+    /**
+     * Starts a journaled settings operation, so an interrupted run is
+     * repeated on the next start. Returns null if there is nothing to patch
+     * or the journal is unavailable; patching then goes ahead unjournaled.
+     */
+    private static InstallJournal.Operation beginJournal(boolean add, List<Path> paths) {
+        if (paths.isEmpty()) {
+            return null;
+        }
+        try {
+            return InstallJournal.getDefault().begin(add
+                ? InstallJournal.OperationType.ADD_SETTINGS : InstallJournal.OperationType.REMOVE_SETTINGS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records the hash of every settings file that now has the requested
+     * settings and commits the operation. Files are replaced atomically, so
+     * their steps are written once all of them are done.
+     */
+    private static void commitJournal(InstallJournal.Operation op, boolean add, List<TargetResult> results) {
+        if (op == null) {
+            return;
+        }
+        List<InstallJournal.Step> steps = new ArrayList<>();
+        for (TargetResult t : results) {
+            if (t.sha256 != null) {
+                steps.add(new InstallJournal.Step(InstallJournal.StepKind.SETTINGS,
+                    t.getPath().toAbsolutePath().toString(), t.sha256, add ? "add" : "remove"));
             }
         }
+        try {
+            op.steps(steps);
+            op.commit();
+        } catch (IOException e) {
+            // The settings are written; the journal just misses this run
+        }
+    }
 
-        return String.join("\n", lines);
+    /**
+     * Applies a patch to one settings file, capturing any failure.
+     */
+    private static TargetResult applyPatch(SettingsPatch patch, Path settingsPath) {
+        try (Metrics.Phase phase = Metrics.begin("settings", settingsPath.toString())) {
+            SettingsPatch.Result result = patch.applyTo(settingsPath);
+            Result outcome = result.isChanged() ? Result.UPDATED : Result.UNCHANGED;
+            byte[] data = result.getText().getBytes(StandardCharsets.UTF_8);
+            String sha256 = FileUtils.toHex(FileUtils.newSha256().digest(data));
+            phase.done(data.length, outcome.name().toLowerCase(Locale.ROOT));
+            return new TargetResult(settingsPath, outcome, result.getChanges(), null, sha256);
+        } catch (IOException ex) {
+            return new TargetResult(settingsPath, Result.FAILED, Collections.emptyList(), ex);
+        }
+    }
+
+    /**
+     * Builds the patch that adds or removes the Monocraft font settings.
+     *
+     * @param add If true, sets the font keys; if false, removes them
+     */
+    public static SettingsPatch createPatch(boolean add) {
+        SettingsPatch patch = new SettingsPatch();
+        if (add) {
+            patch.set("editor.fontFamily", FONT_FAMILY)
+                 .set("editor.fontLigatures", true)
+                 .set("terminal.integrated.fontFamily", TERMINAL_FONT);
+        } else {
+            patch.remove("editor.fontFamily")
+                 .remove("editor.fontLigatures")
+                 .remove("terminal.integrated.fontFamily");
+        }
+        return patch;
     }
 }
@@ -0,0 +1,305 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of top-level settings.json edits applied together, or of edits to
+ * the {@code "settings"} object of a {@code .code-workspace} file.
+ *
+ * Any number of set and remove operations are collected first and then
+ * applied with one parse of the document and one splice pass, so adding
+ * more managed keys does not add more full read/serialize cycles.
+ */
+public class SettingsPatch {
+
+    /**
+     * Kind of change made to a key.
+     */
+    public enum ChangeType {
+        ADDED,
+        UPDATED,
+        REMOVED
+    }
+
+    /**
+     * A single key that changed, with its raw JSON values before and after.
+     */
+    public static class Change {
+        private final String key;
+        private final ChangeType type;
+        private final String oldValue;
+        private final String newValue;
+
+        Change(String key, ChangeType type, String oldValue, String newValue) {
+            this.key = key;
+            this.type = type;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        /** Previous value as JSON text, or null if the key was added. */
+        public String getOldValue() {
+            return oldValue;
+        }
+
+        /** New value as JSON text, or null if the key was removed. */
+        public String getNewValue() {
+            return newValue;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case ADDED: return "+ " + key + ": " + newValue;
+                case REMOVED: return "- " + key + ": " + oldValue;
+                default: return "~ " + key + ": " + oldValue + " -> " + newValue;
+            }
+        }
+    }
+
+    /**
+     * The patched document and what changed in it.
+     */
+    public static class Result {
+        private final String text;
+        private final List<Change> changes;
+
+        Result(String text, List<Change> changes) {
+            this.text = text;
+            this.changes = Collections.unmodifiableList(changes);
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        public boolean isChanged() {
+            return !changes.isEmpty();
+        }
+    }
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    /** Operations in the order added; a null value means remove. */
+    private final Map<String, String> operations = new LinkedHashMap<>();
+    private boolean followLinks = true;
+
+    /**
+     * Sets a key to a string value.
+     */
+    public SettingsPatch set(String key, String value) {
+        return setJson(key, JsoncEditor.quote(value));
+    }
+
+    /**
+     * Sets a key to a boolean value.
+     */
+    public SettingsPatch set(String key, boolean value) {
+        return setJson(key, Boolean.toString(value));
+    }
+
+    /**
+     * Sets a key to a numeric value.
+     */
+    public SettingsPatch set(String key, Number value) {
+        return setJson(key, value.toString());
+    }
+
+    /**
+     * Sets a key to a value given as JSON text.
+     */
+    public SettingsPatch setJson(String key, String valueJson) {
+        operations.put(key, valueJson);
+        return this;
+    }
+
+    /**
+     * Removes a key.
+     */
+    public SettingsPatch remove(String key) {
+        operations.put(key, null);
+        return this;
+    }
+
+    /**
+     * Sets whether {@link #applyTo(Path)} writes through a settings file that
+     * is a symbolic link (the default). When off, such a file is refused;
+     * fleet mode uses this for files in other users' profiles.
+     */
+    public SettingsPatch followLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    /**
+     * Returns the keys touched by this patch.
+     */
+    public List<String> getKeys() {
+        return new ArrayList<>(operations.keySet());
+    }
+
+    /**
+     * Applies the patch to a document in one pass.
+     *
+     * @param text settings.json content
+     * @return The new content and the keys that changed
+     * @throws IOException If the document is not valid JSON with comments
+     */
+    public Result apply(String text) throws IOException {
+        JsoncEditor editor = JsoncEditor.parse(text);
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<String, String> op : operations.entrySet()) {
+            String key = op.getKey();
+            String newValue = op.getValue();
+            String oldValue = editor.get(key);
+            if (newValue == null) {
+                if (oldValue != null) {
+                    changes.add(new Change(key, ChangeType.REMOVED, oldValue, null));
+                    editor.remove(key);
+                }
+            } else if (oldValue == null) {
+                changes.add(new Change(key, ChangeType.ADDED, null, newValue));
+                editor.set(key, newValue);
+            } else if (!oldValue.equals(newValue)) {
+                changes.add(new Change(key, ChangeType.UPDATED, oldValue, newValue));
+                editor.set(key, newValue);
+            }
+        }
+        return new Result(changes.isEmpty() ? text : editor.apply(), changes);
+    }
+
+    /**
+     * Applies the patch to the object under a top-level key instead, e.g.
+     * the {@code "settings"} of a {@code .code-workspace} file. The object is
+     * added if the patch sets anything and it does not exist yet.
+     *
+     * @param text Document content
+     * @param section Top-level key holding the settings, or null for the
+     *        document itself
+     * @return The new content and the keys that changed
+     * @throws IOException If the document is not valid JSON with comments or
+     *         the key does not hold an object
+     */
+    public Result apply(String text, String section) throws IOException {
+        if (section == null) {
+            return apply(text);
+        }
+        JsoncEditor document = JsoncEditor.parse(text);
+        String object = document.get(section);
+        if (object != null && !object.startsWith("{")) {
+            throw new IOException("\"" + section + "\" is not an object");
+        }
+        if (object != null && !object.substring(1, object.length() - 1).trim().isEmpty()) {
+            Result result = apply(object);
+            if (!result.isChanged()) {
+                return new Result(text, result.getChanges());
+            }
+            return new Result(document.set(section, result.getText()).apply(), result.getChanges());
+        }
+
+        // Missing or empty: lay the members out one level below the key
+        String eol = document.getLineSeparator();
+        String indent = document.getIndent(section);
+        List<Change> changes = new ArrayList<>();
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, String> op : operations.entrySet()) {
+            if (op.getValue() != null) {
+                sb.append(changes.isEmpty() ? "" : ",").append(eol).append(indent).append(indent)
+                  .append(JsoncEditor.quote(op.getKey())).append(": ").append(op.getValue());
+                changes.add(new Change(op.getKey(), ChangeType.ADDED, null, op.getValue()));
+            }
+        }
+        if (changes.isEmpty()) {
+            return new Result(text, changes);
+        }
+        sb.append(eol).append(indent).append('}');
+        return new Result(document.set(section, sb.toString()).apply(), changes);
+    }
+
+    /**
+     * Reads a settings file, applies the patch and writes it back.
+     * 
+     * Nothing is written if the patch changes nothing. Otherwise the file is
+     * replaced atomically, and only if its size and modification time are
+     * still those seen when it was read; if another program (e.g. VS Code)
+     * saved it in the meantime, the patch is re-applied to the new content.
+     *
+     * @param file settings.json path
+     * @return The new content and the keys that changed
+     * @throws IOException If the file cannot be read, parsed or written, or
+     *         keeps changing while being patched
+     */
+    public Result applyTo(Path file) throws IOException {
+        return applyTo(file, null);
+    }
+
+    /**
+     * Like {@link #applyTo(Path)}, for the object under a top-level key as
+     * in {@link #apply(String, String)}.
+     *
+     * @param file Settings or workspace file
+     * @param section Top-level key holding the settings, or null for the
+     *        document itself
+     * @return The new content and the keys that changed
+     * @throws IOException If the file cannot be read, parsed or written, or
+     *         keeps changing while being patched
+     */
+    public Result applyTo(Path file, String section) throws IOException {
+        // Write through symlinks (e.g. dotfile setups) instead of replacing them
+        Path target = followLinks ? file.toRealPath() : file;
+        for (int attempt = 1; ; attempt++) {
+            BasicFileAttributes before = Files.readAttributes(target, BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+            if (before.isSymbolicLink()) {
+                throw new IOException(file + " is a symbolic link; not following it");
+            }
+            String content;
+            try (InputStream in = Files.newInputStream(target, LinkOption.NOFOLLOW_LINKS)) {
+                content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Result result = apply(content, section);
+            if (!result.isChanged()) {
+                return result;
+            }
+            byte[] data = result.getText().getBytes(StandardCharsets.UTF_8);
+            if (FileUtils.writeAtomically(target, data, () -> isUnchanged(target, before))) {
+                return result;
+            }
+            if (attempt >= MAX_ATTEMPTS) {
+                throw new IOException(file.getFileName() + " keeps changing; close the editor and try again.");
+            }
+        }
+    }
+
+    private static boolean isUnchanged(Path file, BasicFileAttributes before) {
+        try {
+            BasicFileAttributes now = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return now.size() == before.size() && now.lastModifiedTime().equals(before.lastModifiedTime());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds every settings.json of the VS Code family of editors.
+ *
+ * Code, Code - Insiders, VSCodium and Cursor share the same layout below
+ * their config directory: {@code User/settings.json} for the default profile
+ * and {@code User/profiles/<id>/settings.json} for each additional profile.
+ */
+public class SettingsTargets {
+    /** Config directory names of editors using VS Code's settings layout. */
+    private static final String[] EDITOR_DIRS = {"Code", "Code - Insiders", "VSCodium", "Cursor"};
+
+    /**
+     * Returns the directory holding the editors' config directories:
+     * {@code %APPDATA%} on Windows, {@code ~/Library/Application Support} on
+     * macOS and {@code $XDG_CONFIG_HOME} (default {@code ~/.config}) elsewhere.
+     */
+    public static Path getDefaultConfigRoot() {
+        String userHome = System.getProperty("user.home");
+        String os = System.getProperty("os.name", "").toLowerCase();
+        if (os.startsWith("windows")) {
+            String appData = System.getenv("APPDATA");
+            if (appData != null && !appData.isEmpty()) {
+                return Paths.get(appData);
+            }
+            return Paths.get(userHome, "AppData", "Roaming");
+        }
+        if (os.startsWith("mac")) {
+            return Paths.get(userHome, "Library", "Application Support");
+        }
+        String configHome = System.getenv("XDG_CONFIG_HOME");
+        if (configHome != null && !configHome.isEmpty()) {
+            return Paths.get(configHome);
+        }
+        return Paths.get(userHome, ".config");
+    }
+
+    /**
+     * Returns the directory holding the editors' config directories for
+     * another user of this machine, given their home directory. Environment
+     * overrides of the current user do not apply.
+     */
+    public static Path getConfigRoot(Path home) {
+        String os = System.getProperty("os.name", "").toLowerCase();
+        if (os.startsWith("windows")) {
+            return home.resolve("AppData").resolve("Roaming");
+        }
+        if (os.startsWith("mac")) {
+            return home.resolve("Library").resolve("Application Support");
+        }
+        return home.resolve(".config");
+    }
+
+    /**
+     * Lists the existing settings.json files of all known editors and profiles.
+     *
+     * @param configRoot Directory containing the editors' config directories
+     * @return Existing settings files, default profile first for each editor
+     */
+    public static List<Path> discover(Path configRoot) {
+        List<Path> targets = new ArrayList<>();
+        for (String editor : EDITOR_DIRS) {
+            Path userDir = configRoot.resolve(editor).resolve("User");
+            if (!Files.isDirectory(userDir)) {
+                continue;
+            }
+            Path settings = userDir.resolve("settings.json");
+            if (Files.isRegularFile(settings)) {
+                targets.add(settings);
+            }
+            Path profiles = userDir.resolve("profiles");
+            if (!Files.isDirectory(profiles)) {
+                continue;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(profiles, Files::isDirectory)) {
+                for (Path profile : stream) {
+                    Path profileSettings = profile.resolve("settings.json");
+                    if (Files.isRegularFile(profileSettings)) {
+                        targets.add(profileSettings);
+                    }
+                }
+            } catch (IOException ignored) {
+                // An unreadable profiles folder only hides those profiles
+            }
+        }
+        return targets;
+    }
+}
@@ -1,32 +1,34 @@
 package com.example;
 
-import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
- * System utility methods for running external commands.
+ * System utility methods for locating per-user directories. External
+ * commands are run with {@link ProcessRunner}.
  */
 public class SystemUtils {
     
     /**
-     * Executes a system command.
-     * 
-     * @param cmd Command and arguments to execute
-     * @param wait If true, waits for command to complete
-     * @throws IOException If command execution fails
+     * Returns the per-user directory for the tool's own data (caches etc.):
+     * {@code %LOCALAPPDATA%\MonocraftFontTool} on Windows, otherwise
+     * {@code $XDG_DATA_HOME/monocraft-font-tool} (default {@code ~/.local/share}).
+     * The {@code monocraft.appDataDir} system property overrides it, e.g. to
+     * keep tests away from the user's own journal and caches.
      */
-    public static void runCommand(String[] cmd, boolean wait) throws IOException {
-        ProcessBuilder pb = new ProcessBuilder(cmd);
-        pb.redirectErrorStream(true);
-        Process p = pb.start();
-        if (wait) {
-            try (java.io.InputStream is = p.getInputStream()) {
-                is.transferTo(System.out);
-            } catch (IOException ignored) {}
-            try {
-                p.waitFor();
-            } catch (InterruptedException ignored) {
-                Thread.currentThread().interrupt();
-            }
+    public static Path getAppDataDir() {
+        String override = System.getProperty("monocraft.appDataDir");
+        if (override != null && !override.isEmpty()) {
+            return Paths.get(override);
         }
+        String localAppData = System.getenv("LOCALAPPDATA");
+        if (localAppData != null && !localAppData.isEmpty()) {
+            return Paths.get(localAppData, "MonocraftFontTool");
+        }
+        String dataHome = System.getenv("XDG_DATA_HOME");
+        if (dataHome == null || dataHome.isEmpty()) {
+            dataHome = Paths.get(System.getProperty("user.home"), ".local", "share").toString();
+        }
+        return Paths.get(dataHome, "monocraft-font-tool");
     }
 }
@@ -0,0 +1,339 @@
+package com.example;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs GUI jobs off the Event Dispatch Thread, one at a time.
+ *
+ * A {@link Task} is a list of named steps executed in order on a
+ * {@link SwingWorker}. Progress and elapsed time are shown in a
+ * {@link ProgressPanel}; the Cancel button stops a task before its next step
+ * (a running step always finishes, so no operation is left half done).
+ * Tasks submitted while another one runs are queued, so two operations on
+ * the fonts or settings never overlap. Steps reach the user only through
+ * their {@link Context}, which shows dialogs on the EDT and waits for them;
+ * completion callbacks also run on the EDT.
+ */
+public class TaskRunner {
+    private final ProgressPanel panel;
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    private Job current;
+
+    /**
+     * One step of a task; runs on a worker thread.
+     */
+    public interface StepAction {
+        void run(Context context) throws Exception;
+    }
+
+    /**
+     * What a running step can do besides its own work.
+     */
+    public interface Context {
+        /**
+         * Shows a yes/no question on the EDT and waits for the answer.
+         *
+         * @return true if the user chose yes
+         */
+        boolean confirm(String message, String title, int messageType);
+
+        /**
+         * Skips the remaining steps; the task ends as cancelled.
+         */
+        void cancel();
+    }
+
+    /**
+     * A named sequence of steps and what to do when they are done.
+     */
+    public static class Task {
+        private final String name;
+        private final List<String> stepNames = new ArrayList<>();
+        private final List<StepAction> steps = new ArrayList<>();
+        private Runnable onSuccess = () -> { };
+        private Consumer<Exception> onFailure = e -> { };
+
+        public Task(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Appends a step.
+         *
+         * @param stepName Shown in the progress panel while the step runs
+         * @param action The work, run on a worker thread
+         */
+        public Task step(String stepName, StepAction action) {
+            stepNames.add(stepName);
+            steps.add(action);
+            return this;
+        }
+
+        /**
+         * Sets the callback run on the EDT when all steps completed.
+         */
+        public Task onSuccess(Runnable callback) {
+            this.onSuccess = callback;
+            return this;
+        }
+
+        /**
+         * Sets the callback run on the EDT when a step threw.
+         */
+        public Task onFailure(Consumer<Exception> callback) {
+            this.onFailure = callback;
+            return this;
+        }
+    }
+
+    /**
+     * Creates a runner reporting to the given panel.
+     */
+    public TaskRunner(ProgressPanel panel) {
+        this.panel = panel;
+        panel.cancelButton.addActionListener(e -> {
+            if (current != null) {
+                current.cancelRequested.set(true);
+                panel.cancelButton.setEnabled(false);
+                panel.status.setText(current.task.getName() + ": cancelling after this step...");
+            }
+        });
+    }
+
+    /**
+     * Runs a task now, or after the tasks already running and queued.
+     * Must be called on the EDT.
+     */
+    public void submit(Task task) {
+        queue.add(task);
+        if (current == null) {
+            startNext();
+        } else {
+            panel.setQueued(queue.size());
+        }
+    }
+
+    private void startNext() {
+        Task task = queue.poll();
+        panel.setQueued(queue.size());
+        if (task == null) {
+            current = null;
+            return;
+        }
+        current = new Job(task);
+        panel.start(task);
+        current.execute();
+    }
+
+    /**
+     * Progress of a task, published from the worker.
+     */
+    private static final class StepUpdate {
+        final int index;
+        final String name;
+
+        StepUpdate(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Worker running one task's steps.
+     */
+    private final class Job extends SwingWorker<Void, StepUpdate> implements Context {
+        final Task task;
+        final AtomicBoolean cancelRequested = new AtomicBoolean();
+        final AtomicInteger completed = new AtomicInteger();
+        final long[] stepMillis;
+
+        Job(Task task) {
+            this.task = task;
+            this.stepMillis = new long[task.steps.size()];
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            for (int i = 0; i < task.steps.size(); i++) {
+                if (cancelRequested.get()) {
+                    break;
+                }
+                publish(new StepUpdate(i, task.stepNames.get(i)));
+                long start = System.nanoTime();
+                task.steps.get(i).run(this);
+                stepMillis[i] = (System.nanoTime() - start) / 1_000_000;
+                completed.incrementAndGet();
+            }
+            return null;
+        }
+
+        @Override
+        protected void process(List<StepUpdate> updates) {
+            StepUpdate last = updates.get(updates.size() - 1);
+            panel.step(task, last.index, last.name);
+        }
+
+        @Override
+        protected void done() {
+            Exception failure = null;
+            try {
+                get();
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (InterruptedException | CancellationException e) {
+                failure = e;
+            }
+            boolean cancelled = failure == null && completed.get() < task.steps.size();
+            panel.finish(task, failure != null, cancelled, timings());
+            try {
+                if (failure != null) {
+                    task.onFailure.accept(failure);
+                } else if (!cancelled) {
+                    task.onSuccess.run();
+                }
+            } finally {
+                startNext();
+            }
+        }
+
+        /**
+         * Formats the time taken by each completed step.
+         */
+        private String timings() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < completed.get(); i++) {
+                sb.append(i > 0 ? ", " : "").append(task.stepNames.get(i)).append(' ')
+                  .append(ProgressPanel.formatSeconds(stepMillis[i]));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public boolean confirm(String message, String title, int messageType) {
+            int[] choice = new int[1];
+            onEdt(() -> choice[0] = JOptionPane.showConfirmDialog(panel, message, title,
+                JOptionPane.YES_NO_OPTION, messageType));
+            return choice[0] == JOptionPane.YES_OPTION;
+        }
+
+        @Override
+        public void cancel() {
+            cancelRequested.set(true);
+        }
+
+        private void onEdt(Runnable action) {
+            try {
+                SwingUtilities.invokeAndWait(action);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Non-modal status strip: current step, step progress, elapsed time
+     * and a Cancel button.
+     */
+    public static class ProgressPanel extends JPanel {
+        private static final long serialVersionUID = 1L;
+
+        private final JLabel status = new JLabel("Ready");
+        private final JLabel elapsed = new JLabel(" ");
+        private final JProgressBar bar = new JProgressBar();
+        private final JButton cancelButton = new JButton("Cancel");
+        private final Timer timer;
+        private long startNanos;
+        private int queued;
+
+        public ProgressPanel(Color background) {
+            super(new BorderLayout(10, 4));
+            setBackground(background);
+            setBorder(BorderFactory.createEmptyBorder(6, 30, 12, 30));
+
+            Font font = new Font("Segoe UI", Font.PLAIN, 13);
+            status.setFont(font);
+            status.setForeground(Color.LIGHT_GRAY);
+            elapsed.setFont(font);
+            elapsed.setForeground(Color.LIGHT_GRAY);
+            bar.setStringPainted(true);
+            bar.setString("");
+            cancelButton.setFont(font);
+            cancelButton.setFocusPainted(false);
+            cancelButton.setEnabled(false);
+
+            JPanel text = new JPanel(new BorderLayout());
+            text.setOpaque(false);
+            text.add(status, BorderLayout.CENTER);
+            text.add(elapsed, BorderLayout.EAST);
+            add(text, BorderLayout.NORTH);
+            add(bar, BorderLayout.CENTER);
+            add(cancelButton, BorderLayout.EAST);
+
+            timer = new Timer(100, e -> elapsed.setText(formatSeconds((System.nanoTime() - startNanos) / 1_000_000)));
+        }
+
+        void start(Task task) {
+            startNanos = System.nanoTime();
+            bar.setMaximum(Math.max(task.steps.size(), 1));
+            bar.setValue(0);
+            bar.setString("");
+            status.setText(task.getName() + suffix());
+            status.setToolTipText(null);
+            elapsed.setText(formatSeconds(0));
+            cancelButton.setEnabled(true);
+            timer.start();
+        }
+
+        void step(Task task, int index, String stepName) {
+            bar.setValue(index);
+            bar.setString("Step " + (index + 1) + " of " + task.steps.size());
+            status.setText(task.getName() + ": " + stepName + "..." + suffix());
+        }
+
+        void finish(Task task, boolean failed, boolean cancelled, String timings) {
+            timer.stop();
+            long millis = (System.nanoTime() - startNanos) / 1_000_000;
+            elapsed.setText(formatSeconds(millis));
+            cancelButton.setEnabled(false);
+            if (!failed && !cancelled) {
+                bar.setValue(bar.getMaximum());
+            }
+            bar.setString(failed ? "Failed" : cancelled ? "Cancelled" : "Done");
+            status.setText(task.getName() + (failed ? " failed" : cancelled ? " cancelled" : " finished")
+                + " in " + formatSeconds(millis));
+            status.setToolTipText(timings.isEmpty() ? null : timings);
+        }
+
+        void setQueued(int count) {
+            queued = count;
+            String text = status.getText();
+            int at = text.indexOf(" (+");
+            status.setText((at >= 0 ? text.substring(0, at) : text) + suffix());
+        }
+
+        private String suffix() {
+            return queued > 0 ? " (+" + queued + " queued)" : "";
+        }
+
+        static String formatSeconds(long millis) {
+            return String.format(Locale.ROOT, "%.1f s", millis / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Installs fonts into the per-user Windows fonts folder. Font files are
+ * copied there, registered under
+ * {@code HKCU\Software\Microsoft\Windows NT\CurrentVersion\Fonts} in one
+ * {@link FontRegistry} transaction and then loaded into the running session.
+ * Uninstalling reads the registrations once and removes those of all fonts
+ * in one transaction.
+ */
+public class WindowsFontBackend implements FontBackend {
+    private final Path fontsDir;
+    private final FontRegistry registry;
+
+    /**
+     * Creates the backend for the current Windows user.
+     */
+    public WindowsFontBackend() {
+        this(defaultFontsDir(), FontRegistry.getDefault());
+    }
+
+    /**
+     * Creates a backend working on the given folder and registry, e.g. a
+     * temporary folder and a {@link MemoryFontRegistry}.
+     */
+    public WindowsFontBackend(Path fontsDir, FontRegistry registry) {
+        this.fontsDir = fontsDir;
+        this.registry = registry;
+    }
+
+    @Override
+    public Path getFontsDir() {
+        return fontsDir;
+    }
+
+    /**
+     * The per-user fonts folder and the system-wide one.
+     */
+    @Override
+    public List<Path> getSearchDirs() {
+        String windir = System.getenv("WINDIR");
+        Path systemFonts = Paths.get(windir != null && !windir.isEmpty() ? windir : "C:\\Windows", "Fonts");
+        return Arrays.asList(fontsDir, systemFonts);
+    }
+
+    @Override
+    public Path getFontsDir(Path home) {
+        return home.resolve("AppData").resolve("Local").resolve("Microsoft").resolve("Windows").resolve("Fonts");
+    }
+
+    /**
+     * Reads the file names of all Monocraft registry values in one call.
+     */
+    @Override
+    public Set<String> getRegisteredFiles() throws IOException {
+        Set<String> files = new HashSet<>();
+        for (String data : registry.readValues().values()) {
+            files.add(fileName(data).toLowerCase(Locale.ROOT));
+        }
+        return files;
+    }
+
+    public FontRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    public Map<String, String> register(List<Path> fonts) throws IOException {
+        Files.createDirectories(fontsDir);
+        FontRegistry.Transaction transaction = new FontRegistry.Transaction();
+        List<Path> installed = new ArrayList<>();
+        Map<String, String> written = new HashMap<>();
+        for (Path font : fonts) {
+            Path dest = fontsDir.resolve(font.getFileName().toString());
+            written.put(dest.getFileName().toString(), FileUtils.copyFile(font, dest));
+            transaction.set(valueName(dest), dest.toString());
+            installed.add(dest);
+        }
+        registry.apply(transaction);
+        registry.notifyFontsChanged(installed, new ArrayList<>());
+        return written;
+    }
+
+    /**
+     * Removes every registry value pointing at one of the files and unloads
+     * the fonts from the session.
+     */
+    @Override
+    public void unregister(List<String> fileNames) throws IOException {
+        Set<String> files = new HashSet<>();
+        for (String name : fileNames) {
+            files.add(name.toLowerCase(Locale.ROOT));
+        }
+        FontRegistry.Transaction transaction = new FontRegistry.Transaction();
+        List<Path> removed = new ArrayList<>();
+        for (Map.Entry<String, String> value : registry.readValues().entrySet()) {
+            String fileName = fileName(value.getValue());
+            if (files.contains(fileName.toLowerCase(Locale.ROOT))) {
+                transaction.delete(value.getKey());
+                removed.add(fontsDir.resolve(fileName));
+            }
+        }
+        registry.apply(transaction);
+        registry.notifyFontsChanged(new ArrayList<>(), removed);
+    }
+
+    /**
+     * Windows updates its font list itself when fonts are registered.
+     */
+    @Override
+    public CompletableFuture<Void> refresh(boolean changed) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Returns the per-user Windows fonts directory.
+     */
+    static Path defaultFontsDir() {
+        String localAppData = System.getenv("LOCALAPPDATA");
+        if (localAppData == null || localAppData.isEmpty()) {
+            localAppData = System.getProperty("user.home") + "\\AppData\\Local";
+        }
+        return Paths.get(localAppData, "Microsoft", "Windows", "Fonts");
+    }
+
+    /**
+     * Returns the file name at the end of a registry value's path.
+     */
+    private static String fileName(String data) {
+        return data.substring(Math.max(data.lastIndexOf('\\'), data.lastIndexOf('/')) + 1);
+    }
+
+    /**
+     * Returns the registry value name Windows uses for a font, e.g.
+     * {@code "Monocraft (TrueType)"}; the faces of a collection are joined
+     * with {@code " & "}. Falls back to the file name if it cannot be read.
+     */
+    static String valueName(Path font) {
+        String fileName = font.getFileName().toString();
+        List<String> names = new ArrayList<>();
+        boolean cff = false;
+        try {
+            for (FontFile.Face face : FontFile.readHeaders(font).getFaces()) {
+                if (face.getFullName() != null && !names.contains(face.getFullName())) {
+                    names.add(face.getFullName());
+                }
+                cff |= face.getSfntVersion() == 0x4F54544F; // 'OTTO'
+            }
+        } catch (IOException e) {
+            // Unreadable fonts still get a value; Windows reports the problem itself
+        }
+        if (names.isEmpty()) {
+            names.add(fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName);
+        }
+        return String.join(" & ", names) + (cff ? " (OpenType)" : " (TrueType)");
+    }
+}
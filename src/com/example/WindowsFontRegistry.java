@@ -0,0 +1,170 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link FontRegistry} backed by the Windows registry.
+ *
+ * The fonts key is read with one {@code reg export} and written with one
+ * {@code reg import} of a generated {@code .reg} file. Going through files
+ * in the registry's own UTF-16 format keeps paths below user folders with
+ * non-ASCII names intact, which console output in the OEM code page would
+ * not.
+ */
+public class WindowsFontRegistry implements FontRegistry {
+    private static final String HEADER = "Windows Registry Editor Version 5.00";
+
+    @Override
+    public Map<String, String> readValues() throws IOException {
+        Path file = Files.createTempFile("monocraft-fonts-", ".reg");
+        try {
+            ProcessRunner.Result result = new ProcessRunner(Arrays.asList("reg", "export", FONTS_KEY, file.toString(), "/y"))
+                .mergeErrors(true)
+                .run();
+            if (!result.succeeded() || Files.size(file) == 0) {
+                // reg fails when the key does not exist, i.e. no user fonts yet
+                return new LinkedHashMap<>();
+            }
+            Map<String, String> values = parseRegFile(new String(Files.readAllBytes(file), StandardCharsets.UTF_16LE));
+            values.entrySet().removeIf(e -> !FontRegistry.isMonocraft(e.getKey(), e.getValue()));
+            return values;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public void apply(Transaction transaction) throws IOException {
+        if (transaction.isEmpty()) {
+            return;
+        }
+        Path file = Files.createTempFile("monocraft-fonts-", ".reg");
+        try {
+            Files.write(file, formatRegFile(transaction).getBytes(StandardCharsets.UTF_16LE));
+            ProcessRunner.Result result = new ProcessRunner(Arrays.asList("reg", "import", file.toString()))
+                .mergeErrors(true)
+                .run();
+            if (!result.succeeded()) {
+                throw new IOException("Could not update font registrations (" + result + "): "
+                    + result.getStdout().trim());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Loads added fonts into the session and unloads removed ones, then
+     * broadcasts {@code WM_FONTCHANGE}, all from one PowerShell process.
+     */
+    @Override
+    public void notifyFontsChanged(List<Path> added, List<Path> removed) throws IOException {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        CommandBatch batch = new CommandBatch(CommandBatch.POWERSHELL);
+        batch.add("load font api",
+            "Add-Type -Namespace Monocraft -Name FontApi -MemberDefinition '" +
+            "[DllImport(\"gdi32.dll\", CharSet = CharSet.Unicode)] public static extern int AddFontResource(string file); " +
+            "[DllImport(\"gdi32.dll\", CharSet = CharSet.Unicode)] public static extern bool RemoveFontResource(string file); " +
+            "[DllImport(\"user32.dll\")] public static extern IntPtr SendMessageTimeout(IntPtr hWnd, uint msg, " +
+            "UIntPtr wParam, IntPtr lParam, uint flags, uint timeout, out UIntPtr result);'");
+        for (Path font : removed) {
+            batch.add("unload " + font.getFileName(),
+                "[void][Monocraft.FontApi]::RemoveFontResource(" + CommandBatch.quotePowerShell(font.toString()) + ")");
+        }
+        for (Path font : added) {
+            batch.add("load " + font.getFileName(),
+                "[void][Monocraft.FontApi]::AddFontResource(" + CommandBatch.quotePowerShell(font.toString()) + ")");
+        }
+        // HWND_BROADCAST, WM_FONTCHANGE, SMTO_ABORTIFHUNG with a 1 s limit
+        batch.add("broadcast font change",
+            "$r = [UIntPtr]::Zero; [void][Monocraft.FontApi]::SendMessageTimeout([IntPtr]0xffff, 0x1D, " +
+            "[UIntPtr]::Zero, [IntPtr]::Zero, 2, 1000, [ref]$r)");
+        batch.run();
+    }
+
+    /**
+     * Writes a transaction as a {@code .reg} file for the fonts key.
+     */
+    static String formatRegFile(Transaction transaction) {
+        StringBuilder sb = new StringBuilder("\uFEFF").append(HEADER).append("\r\n\r\n")
+            .append('[').append(FONTS_KEY).append("]\r\n");
+        for (Map.Entry<String, String> op : transaction.getOperations().entrySet()) {
+            sb.append(quote(op.getKey())).append('=')
+              .append(op.getValue() == null ? "-" : quote(op.getValue())).append("\r\n");
+        }
+        return sb.append("\r\n").toString();
+    }
+
+    /**
+     * Reads the string values of the first key in a {@code .reg} file;
+     * values of other types are skipped.
+     */
+    static Map<String, String> parseRegFile(String text) {
+        Map<String, String> values = new LinkedHashMap<>();
+        boolean inKey = false;
+        boolean continued = false;
+        for (String line : text.split("\r?\n")) {
+            boolean skip = continued;
+            // Binary and multi-string values continue on the next line
+            continued = line.endsWith("\\");
+            if (skip) {
+                continue;
+            }
+            if (line.startsWith("[")) {
+                if (inKey) break;
+                inKey = true;
+                continue;
+            }
+            if (!inKey || !line.startsWith("\"")) {
+                continue;
+            }
+            int nameEnd = closingQuote(line, 1);
+            if (nameEnd < 0 || nameEnd + 2 >= line.length() || line.charAt(nameEnd + 1) != '='
+                || line.charAt(nameEnd + 2) != '"') {
+                continue;
+            }
+            int dataEnd = closingQuote(line, nameEnd + 3);
+            if (dataEnd > 0) {
+                values.put(unescape(line.substring(1, nameEnd)), unescape(line.substring(nameEnd + 3, dataEnd)));
+            }
+        }
+        return values;
+    }
+
+    private static int closingQuote(String line, int from) {
+        for (int i = from; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                c = s.charAt(++i);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,446 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adds or removes the Monocraft font settings in the workspace settings of
+ * a source tree: every {@code .vscode/settings.json} and the
+ * {@code "settings"} of every {@code *.code-workspace} file, with the same
+ * {@link SettingsPatch} as the user settings.
+ *
+ * The tree is scanned on a bounded pool. Folders near the top are handed
+ * to other threads as they are found, and excluded folders such as
+ * {@code .git} and {@code node_modules} are skipped without being listed,
+ * so large repositories are scanned quickly. Files are then patched on the
+ * same pool, which limits how many folders and files are open at once. A
+ * dry run reports the changes without writing anything.
+ *
+ * Symbolic links are never followed: a cloned repository could point its
+ * {@code .vscode/settings.json} at any file of the user's, so such a file
+ * is reported as failed. Unlike the user settings these files usually live
+ * in version control, so changes are not journaled:
+ *
+ * <pre>
+ * WorkspacePatcher.Report report = new WorkspacePatcher(repo)
+ *     .exclude("build")
+ *     .dryRun(true)
+ *     .run(true);
+ * </pre>
+ */
+public class WorkspacePatcher {
+    /** Folders and files processed at the same time by default. */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /** Folder names never scanned. */
+    public static final List<String> DEFAULT_EXCLUDES =
+        Collections.unmodifiableList(Arrays.asList(".git", ".hg", ".svn", "node_modules"));
+
+    /** Top-level key of a workspace file holding its settings. */
+    static final String WORKSPACE_SECTION = "settings";
+
+    private static final String WORKSPACE_SUFFIX = ".code-workspace";
+
+    /** Folders less deep than this below the root are scanned as separate tasks. */
+    private static final int FORK_DEPTH = 4;
+
+    /**
+     * File systems whose folder link count is two plus the number of
+     * subfolders, which lets a scan skip the type lookup of every entry in
+     * a folder without subfolders. Elsewhere (e.g. btrfs, NTFS) every entry
+     * is looked up.
+     */
+    private static final Set<String> LINK_COUNTING_STORES =
+        new HashSet<>(Arrays.asList("ext2", "ext3", "ext4", "xfs", "tmpfs"));
+
+    /**
+     * Outcome of a run: the patched files and what the scan covered.
+     */
+    public static class Report {
+        private final SettingsManager.Report settings;
+        private final boolean dryRun;
+        private final int directories;
+        private final int excluded;
+        private final int files;
+        private final int unreadable;
+        private final long scanMillis;
+        private final long durationMillis;
+
+        Report(SettingsManager.Report settings, boolean dryRun, int directories, int excluded, int files,
+               int unreadable, long scanMillis, long durationMillis) {
+            this.settings = settings;
+            this.dryRun = dryRun;
+            this.directories = directories;
+            this.excluded = excluded;
+            this.files = files;
+            this.unreadable = unreadable;
+            this.scanMillis = scanMillis;
+            this.durationMillis = durationMillis;
+        }
+
+        /** The files found and how each was (or, in a dry run, would be) patched. */
+        public SettingsManager.Report getSettings() {
+            return settings;
+        }
+
+        /** True if nothing was written. */
+        public boolean isDryRun() {
+            return dryRun;
+        }
+
+        /** Folders scanned. */
+        public int getDirectories() {
+            return directories;
+        }
+
+        /** Folders skipped because they matched an exclude. */
+        public int getExcluded() {
+            return excluded;
+        }
+
+        /** Files seen while scanning. */
+        public int getFiles() {
+            return files;
+        }
+
+        /** Folders or files that could not be read and were skipped. */
+        public int getUnreadable() {
+            return unreadable;
+        }
+
+        public long getScanMillis() {
+            return scanMillis;
+        }
+
+        /** Wall-clock time of scanning and patching. */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    private final Path root;
+    private final List<PathMatcher> excludes = new ArrayList<>();
+    private int parallelism = DEFAULT_PARALLELISM;
+    private boolean dryRun;
+
+    /**
+     * Creates a patcher for the tree below a folder, with the default
+     * excludes.
+     */
+    public WorkspacePatcher(Path root) {
+        this.root = root;
+        for (String name : DEFAULT_EXCLUDES) {
+            exclude(name);
+        }
+    }
+
+    /**
+     * Skips folders whose name matches a glob, e.g. {@code build} or
+     * {@code *.cache}.
+     */
+    public WorkspacePatcher exclude(String pattern) {
+        excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+        return this;
+    }
+
+    /**
+     * Sets how many folders and files are processed at the same time.
+     */
+    public WorkspacePatcher parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * If true, files are read and patched in memory only.
+     */
+    public WorkspacePatcher dryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+        return this;
+    }
+
+    /**
+     * Finds the workspace settings files below the root and adds or removes
+     * the font settings in each. A file that cannot be read, parsed or
+     * written is reported and the others go on.
+     *
+     * @param add If true, adds font settings; if false, removes them
+     * @return The per-file outcomes, sorted by path
+     * @throws IOException If the root is not a folder
+     */
+    public Report run(boolean add) throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Not a directory: " + root);
+        }
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "workspace-settings");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Scan scan = new Scan(pool);
+            List<Path> found;
+            long scanMillis;
+            try (Metrics.Phase phase = Metrics.begin("scan", root.toString())) {
+                long scanStart = System.nanoTime();
+                found = scan.run();
+                scanMillis = (System.nanoTime() - scanStart) / 1_000_000;
+                phase.done(0, found.size() + " found");
+            }
+
+            SettingsPatch patch = SettingsManager.createPatch(add).followLinks(false);
+            List<Future<SettingsManager.TargetResult>> futures = new ArrayList<>(found.size());
+            for (Path file : found) {
+                futures.add(pool.submit(() -> patch(patch, file)));
+            }
+            List<SettingsManager.TargetResult> results = new ArrayList<>(found.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new SettingsManager.TargetResult(found.get(i), SettingsManager.Result.FAILED,
+                        Collections.emptyList(), new IOException(e.getCause())));
+                }
+            }
+            return new Report(new SettingsManager.Report(root, results), dryRun, scan.directories.get(),
+                scan.excluded.get(), scan.files.get(), scan.unreadable.get(), scanMillis,
+                (System.nanoTime() - start) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns true for a {@code .vscode/settings.json} or a
+     * {@code *.code-workspace} file.
+     */
+    static boolean isSettingsFile(Path file) {
+        String name = file.getFileName().toString();
+        if (name.toLowerCase(Locale.ROOT).endsWith(WORKSPACE_SUFFIX)) {
+            return true;
+        }
+        Path parent = file.getParent();
+        return name.equals("settings.json") && parent != null && parent.getFileName() != null
+            && parent.getFileName().toString().equals(".vscode");
+    }
+
+    /**
+     * Patches one file, or only computes the patch in a dry run, capturing
+     * any failure.
+     */
+    private SettingsManager.TargetResult patch(SettingsPatch patch, Path file) {
+        String section = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(WORKSPACE_SUFFIX)
+            ? WORKSPACE_SECTION : null;
+        try (Metrics.Phase phase = Metrics.begin("settings", file.toString())) {
+            FileUtils.checkNoLinks(root, file);
+            SettingsPatch.Result result = dryRun
+                ? patch.apply(read(file), section)
+                : patch.applyTo(file, section);
+            SettingsManager.Result outcome = result.isChanged()
+                ? SettingsManager.Result.UPDATED : SettingsManager.Result.UNCHANGED;
+            phase.done(result.getText().length(), outcome.name().toLowerCase(Locale.ROOT));
+            return new SettingsManager.TargetResult(file, outcome, result.getChanges(), null);
+        } catch (IOException ex) {
+            return new SettingsManager.TargetResult(file, SettingsManager.Result.FAILED,
+                Collections.emptyList(), ex);
+        }
+    }
+
+    /**
+     * Reads a file for a dry run, refusing it if it is a symbolic link.
+     */
+    private static String read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file, LinkOption.NOFOLLOW_LINKS)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * One parallel scan of the tree. Each task walks a folder; folders
+     * found less than {@link #FORK_DEPTH} deep become tasks of their own.
+     * A task queues its sub-tasks before it finishes, so the queue is
+     * drained once waiting on every task in it leaves it empty.
+     */
+    private final class Scan {
+        final ExecutorService pool;
+        final boolean linkCounts;
+        final Queue<Future<?>> tasks = new ConcurrentLinkedQueue<>();
+        final Queue<Path> found = new ConcurrentLinkedQueue<>();
+        final AtomicInteger directories = new AtomicInteger();
+        final AtomicInteger excluded = new AtomicInteger();
+        final AtomicInteger files = new AtomicInteger();
+        final AtomicInteger unreadable = new AtomicInteger();
+
+        Scan(ExecutorService pool) throws IOException {
+            this.pool = pool;
+            this.linkCounts = LINK_COUNTING_STORES.contains(Files.getFileStore(root).type());
+        }
+
+        List<Path> run() throws IOException, InterruptedException {
+            submit(root, 0);
+            Future<?> task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Cannot scan " + root, e.getCause());
+                }
+            }
+            List<Path> result = new ArrayList<>(found);
+            Collections.sort(result);
+            return result;
+        }
+
+        void submit(Path dir, int depth) {
+            tasks.add(pool.submit(() -> {
+                if (linkCounts) {
+                    list(dir, depth);
+                } else {
+                    walk(dir, depth);
+                }
+                return null;
+            }));
+        }
+
+        /**
+         * Returns true if a folder found at the given depth is to be
+         * scanned by the caller, false if it is excluded or was handed to
+         * another task.
+         */
+        boolean enter(Path dir, int depth) {
+            Path name = dir.getFileName();
+            for (PathMatcher exclude : excludes) {
+                if (exclude.matches(name)) {
+                    excluded.incrementAndGet();
+                    return false;
+                }
+            }
+            if (depth < FORK_DEPTH) {
+                submit(dir, depth);
+                return false;
+            }
+            return true;
+        }
+
+        void visitFile(Path file) {
+            files.incrementAndGet();
+            if (isSettingsFile(file)) {
+                found.add(file);
+            }
+        }
+
+        /**
+         * Lists a folder and its subfolders, looking up the type of an entry
+         * only while the folder's link count says it has subfolders left;
+         * in folders holding only files, the names are all that is read.
+         */
+        void list(Path dir, int depth) {
+            directories.incrementAndGet();
+            int subdirs = Integer.MAX_VALUE;
+            try {
+                int links = (Integer) Files.getAttribute(dir, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+                if (links >= 2) {
+                    subdirs = links - 2;
+                }
+            } catch (IOException | RuntimeException e) {
+                // Look up every entry
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path entry : stream) {
+                    if (subdirs <= 0) {
+                        visitFile(entry);
+                        continue;
+                    }
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        unreadable.incrementAndGet();
+                        continue;
+                    }
+                    if (!attrs.isDirectory()) {
+                        visitFile(entry);
+                    } else {
+                        subdirs--;
+                        if (enter(entry, depth + 1)) {
+                            list(entry, depth + 1);
+                        }
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                unreadable.incrementAndGet();
+            }
+        }
+
+        /**
+         * Walks a folder with the file system's own tree walk, which on
+         * Windows takes each entry's type from the directory listing.
+         */
+        void walk(Path start, int startDepth) throws IOException {
+            // Links are not followed, so a link to a parent cannot loop
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                private int depth = startDepth - 1;
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(start) && !enter(dir, depth + 1)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    depth++;
+                    directories.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    depth--;
+                    if (e != null) {
+                        unreadable.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    Scan.this.visitFile(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    unreadable.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+}
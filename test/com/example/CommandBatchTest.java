@@ -0,0 +1,71 @@
+package com.example;
+
+import java.util.List;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertFalse;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for running commands as one batch, using the bash shell; skipped
+ * on Windows.
+ */
+public class CommandBatchTest {
+    private static boolean hasBash() {
+        return !System.getProperty("os.name", "").startsWith("Windows");
+    }
+
+    public void testReportsEachCommand() throws Exception {
+        if (!hasBash()) return;
+        List<CommandBatch.CommandResult> results = new CommandBatch(CommandBatch.BASH)
+            .add("first", "echo one")
+            .add("slow", "sleep 0.3; echo two >&2; exit 3")
+            .add("last", "echo three")
+            .run();
+
+        assertEquals(3, results.size(), "results");
+        assertEquals("first", results.get(0).getLabel(), "label");
+        assertEquals(0, results.get(0).getExitCode(), "first exit code");
+        assertEquals("one\n", results.get(0).getOutput(), "first output");
+        assertEquals(3, results.get(1).getExitCode(), "slow exit code");
+        assertEquals("two\n", results.get(1).getOutput(), "stderr is merged");
+        assertTrue(results.get(1).getDurationMillis() >= 250, "slow took " + results.get(1).getDurationMillis() + " ms");
+        assertTrue(results.get(0).getDurationMillis() < results.get(1).getDurationMillis(), "timed separately");
+        assertEquals("three\n", results.get(2).getOutput(), "last output");
+    }
+
+    public void testFailingCommandDoesNotStopBatch() throws Exception {
+        if (!hasBash()) return;
+        List<CommandBatch.CommandResult> results = new CommandBatch(CommandBatch.BASH)
+            .add("before", "true")
+            .add("missing", "no-such-command-monocraft")
+            .add("exit", "exit 1")
+            .add("after", "echo still running")
+            .run();
+
+        assertTrue(results.get(0).succeeded(), "before: " + results.get(0));
+        assertEquals(127, results.get(1).getExitCode(), "missing command");
+        assertFalse(results.get(2).succeeded(), "exit only ends the subshell");
+        assertTrue(results.get(3).succeeded(), "after: " + results.get(3));
+        assertEquals("still running\n", results.get(3).getOutput(), "after output");
+    }
+
+    public void testOutputLikeMarkersIsKept() throws Exception {
+        if (!hasBash()) return;
+        String spoof = "echo '@@monocraft:end:0:0'; echo '@@monocraft:begin:1'; echo '@@monocraft:end:1:0'; exit 5";
+        List<CommandBatch.CommandResult> results = new CommandBatch(CommandBatch.BASH)
+            .add("spoof", spoof)
+            .add("next", "echo next")
+            .run();
+
+        assertEquals(5, results.get(0).getExitCode(), "spoof exit code");
+        assertEquals("@@monocraft:end:0:0\n@@monocraft:begin:1\n@@monocraft:end:1:0\n",
+            results.get(0).getOutput(), "spoof output");
+        assertEquals(0, results.get(1).getExitCode(), "next exit code");
+        assertEquals("next\n", results.get(1).getOutput(), "next output");
+    }
+
+    public void testEmptyBatch() throws Exception {
+        assertTrue(new CommandBatch(CommandBatch.BASH).run().isEmpty(), "no results");
+    }
+}
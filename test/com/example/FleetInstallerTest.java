@@ -0,0 +1,84 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertFalse;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests that fleet mode stays inside the profiles it provisions.
+ */
+public class FleetInstallerTest {
+    private static final String OUTSIDE = "{\"secret\": 1}\n";
+
+    public void testSymlinkedSettingsFileIsRefused() throws Exception {
+        if (!Tests.isPosix()) return;
+        Path outside = Tests.tempDir().resolve("outside.json");
+        Files.write(outside, OUTSIDE.getBytes(StandardCharsets.UTF_8));
+        Path home = Tests.tempDir().resolve("home");
+        Path settings = SettingsTargets.getConfigRoot(home).resolve("Code").resolve("User").resolve("settings.json");
+        Files.createDirectories(settings.getParent());
+        Files.createSymbolicLink(settings, outside);
+
+        SettingsManager.Report report = SettingsManager.modifyProfileSettings(true, home);
+
+        assertEquals(SettingsManager.Result.FAILED, report.getResult(), "settings result");
+        assertEquals(OUTSIDE, Files.readString(outside), "linked file content");
+        assertTrue(Files.isSymbolicLink(settings), "link left in place");
+    }
+
+    public void testSymlinkedConfigFolderIsRefused() throws Exception {
+        if (!Tests.isPosix()) return;
+        Path outside = Tests.tempDir().resolve("outside");
+        Files.createDirectories(outside.resolve("Code").resolve("User"));
+        Files.write(outside.resolve("Code").resolve("User").resolve("settings.json"),
+            OUTSIDE.getBytes(StandardCharsets.UTF_8));
+        Path home = Tests.tempDir().resolve("home");
+        Path configRoot = SettingsTargets.getConfigRoot(home);
+        Files.createDirectories(configRoot.getParent());
+        Files.createSymbolicLink(configRoot, outside);
+
+        SettingsManager.modifyProfileSettings(true, home);
+
+        assertEquals(OUTSIDE, Files.readString(outside.resolve("Code").resolve("User").resolve("settings.json")),
+            "settings behind a linked folder");
+    }
+
+    public void testSymlinkedFontsFolderIsRefused() throws Exception {
+        if (!Tests.isPosix()) return;
+        Path outside = Files.createDirectories(Tests.tempDir().resolve("outside"));
+        Path home = Files.createDirectories(Tests.tempDir().resolve("home"));
+        // Link a folder above the fonts folder, which is created below it
+        Path linked = FontInstaller.getBackend().getFontsDir(home).getParent();
+        Files.createDirectories(linked.getParent());
+        Files.createSymbolicLink(linked, outside);
+
+        FleetInstaller.Report report = FleetInstaller.provision(Arrays.asList(home),
+            FontManifest.Selection.DEFAULT, 1);
+
+        FleetInstaller.ProfileResult result = report.getProfiles().get(0);
+        assertTrue(result.getFontsError() != null, "fonts refused");
+        assertEquals(0, result.getFontsCopied(), "fonts copied");
+        try (Stream<Path> files = Files.list(outside)) {
+            assertFalse(files.findAny().isPresent(), "nothing written through the link");
+        }
+    }
+
+    public void testRegularProfileIsProvisioned() throws Exception {
+        Path home = Files.createDirectories(Tests.tempDir().resolve("home"));
+        Path settings = SettingsTargets.getConfigRoot(home).resolve("Code").resolve("User").resolve("settings.json");
+        Files.createDirectories(settings.getParent());
+        Files.write(settings, "{}\n".getBytes(StandardCharsets.UTF_8));
+
+        FleetInstaller.Report report = FleetInstaller.provision(Arrays.asList(home),
+            FontManifest.Selection.DEFAULT, 1);
+
+        assertEquals(FleetInstaller.Result.UPDATED, report.getResult(), "fleet result");
+        assertTrue(Files.readString(settings).contains("editor.fontFamily"), "settings patched");
+    }
+}
@@ -0,0 +1,31 @@
+package com.example;
+
+import static com.example.Tests.assertThrows;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for choosing the platform's font backend.
+ */
+public class FontBackendTest {
+    public void testMacOsIsRefused() throws Exception {
+        String os = System.getProperty("os.name");
+        System.setProperty("os.name", "Mac OS X");
+        try {
+            UnsupportedOperationException e = assertThrows(UnsupportedOperationException.class,
+                FontBackend::getDefault, "macOS backend");
+            assertTrue(e.getMessage().contains("macOS"), "message names the platform: " + e.getMessage());
+        } finally {
+            System.setProperty("os.name", os);
+        }
+    }
+
+    public void testLinuxGetsFontconfigBackend() throws Exception {
+        String os = System.getProperty("os.name");
+        System.setProperty("os.name", "Linux");
+        try {
+            assertTrue(FontBackend.getDefault() instanceof LinuxFontBackend, "Linux backend");
+        } finally {
+            System.setProperty("os.name", os);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertThrows;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for splitting font collections into single fonts. The bundled
+ * TrueType weights are packed into a collection for the test, since only
+ * some builds bundle the Nerd Font collection.
+ */
+public class FontCollectionSplitterTest {
+    private static final String NERD_COLLECTION = "/Monocraft-font/Monocraft-nerd-fonts-patched.ttc";
+    private static final String[] WEIGHTS = {
+        "weights/ttf/Monocraft-Light.ttf", "Monocraft.ttf", "weights/ttf/Monocraft-Bold.ttf"
+    };
+
+    public void testSplitsCollectionIntoValidFonts() throws Exception {
+        List<Path> fonts = new ArrayList<>();
+        for (String weight : WEIGHTS) {
+            Path font = Tests.bundledFont(weight);
+            if (font == null) return;
+            fonts.add(font);
+        }
+        Path collection = Tests.tempDir().resolve("Monocraft.ttc");
+        Files.write(collection, buildCollection(fonts));
+        assertEquals(3, FontFile.read(collection).getFaces().size(), "faces in the built collection");
+
+        List<Path> split = FontCollectionSplitter.split(collection, Tests.tempDir().resolve("faces"), "Monocraft-");
+
+        assertEquals(fonts.size(), split.size(), "files written");
+        for (int i = 0; i < fonts.size(); i++) {
+            FontFile.Face expected = FontFile.read(fonts.get(i)).getFaces().get(0);
+            FontFile out = FontFile.read(split.get(i));
+            assertTrue(out.isValid(), split.get(i).getFileName() + " valid: " + out.getProblems());
+            assertEquals(1, out.getFaces().size(), "faces in " + split.get(i).getFileName());
+            FontFile.Face face = out.getFaces().get(0);
+            assertEquals(expected.getFullName(), face.getFullName(), "full name");
+            assertEquals(expected.getSubfamily(), face.getSubfamily(), "subfamily");
+            assertEquals(expected.getFontRevision(), face.getFontRevision(), "revision");
+            assertEquals(expected.getTables().keySet(), face.getTables().keySet(), "tables");
+            assertEquals("Monocraft-" + expected.getFullName().replace(" ", "") + ".ttf",
+                split.get(i).getFileName().toString(), "file name");
+        }
+    }
+
+    public void testSplitsBundledNerdCollection() throws Exception {
+        Path collection = Tests.tempDir().resolve("nerd.ttc");
+        try (InputStream in = FontCollectionSplitterTest.class.getResourceAsStream(NERD_COLLECTION)) {
+            if (in == null) {
+                System.out.println("  skipped: " + NERD_COLLECTION + " not on classpath");
+                return;
+            }
+            Files.copy(in, collection);
+        }
+        List<FontFile.Face> faces = FontFile.read(collection).getFaces();
+
+        List<Path> split = FontCollectionSplitter.split(collection, Tests.tempDir().resolve("faces"), "Nerd-");
+
+        assertEquals(faces.size(), split.size(), "one file per face");
+        for (int i = 0; i < split.size(); i++) {
+            FontFile out = FontFile.read(split.get(i));
+            assertTrue(out.isValid(), split.get(i).getFileName() + " valid: " + out.getProblems());
+            assertEquals(faces.get(i).getFullName(), out.getFaces().get(0).getFullName(), "full name");
+        }
+    }
+
+    public void testSingleFontIsNotACollection() throws Exception {
+        Path font = Tests.bundledFont("Monocraft.ttf");
+        if (font == null) return;
+
+        assertThrows(IOException.class,
+            () -> FontCollectionSplitter.split(font, Tests.tempDir().resolve("faces"), "x-"), "split a .ttf");
+    }
+
+    /**
+     * Packs single fonts into a collection: a {@code ttcf} header, then
+     * each font with its table offsets moved by where it now starts.
+     */
+    private static byte[] buildCollection(List<Path> fonts) throws IOException {
+        List<byte[]> data = new ArrayList<>();
+        int size = 12 + 4 * fonts.size();
+        List<Integer> bases = new ArrayList<>();
+        for (Path font : fonts) {
+            byte[] bytes = Files.readAllBytes(font);
+            size = (size + 3) & ~3;
+            bases.add(size);
+            data.add(bytes);
+            size += bytes.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(0x74746366).putInt(0x00010000).putInt(fonts.size());
+        for (int base : bases) {
+            out.putInt(base);
+        }
+        for (int i = 0; i < data.size(); i++) {
+            int base = bases.get(i);
+            out.position(base);
+            out.put(data.get(i));
+            int numTables = out.getShort(base + 4) & 0xFFFF;
+            for (int t = 0; t < numTables; t++) {
+                int record = base + 12 + 16 * t;
+                out.putInt(record + 8, out.getInt(record + 8) + base);
+            }
+        }
+        return out.array();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertFalse;
+import static com.example.Tests.assertThrows;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for reading font headers and validating checksums, on the bundled
+ * TrueType font and damaged copies of it.
+ */
+public class FontFileTest {
+    public void testReadsBundledFont() throws Exception {
+        Path file = Tests.bundledFont("Monocraft.ttf");
+        if (file == null) return;
+
+        FontFile font = FontFile.read(file);
+
+        assertTrue(font.isValid(), "valid: " + font.getProblems());
+        assertFalse(font.isCollection(), "collection");
+        assertEquals(Files.size(file), font.getSize(), "size");
+        assertEquals(1, font.getFaces().size(), "faces");
+        FontFile.Face face = font.getFaces().get(0);
+        assertEquals("Monocraft", face.getFamily(), "family");
+        assertEquals("Regular", face.getSubfamily(), "subfamily");
+        assertEquals("Monocraft", face.getFullName(), "full name");
+        assertTrue(face.getVersion() != null && face.getVersion().startsWith("Version "), "version: " + face.getVersion());
+        assertTrue(face.getTables().keySet().containsAll(Arrays.asList("head", "name", "glyf", "cmap")),
+            "tables: " + face.getTables().keySet());
+        assertTrue(font.sameFontsAs(FontFile.readHeaders(file)), "headers alone give the same face");
+    }
+
+    public void testDifferentWeightIsNotTheSameFont() throws Exception {
+        Path regular = Tests.bundledFont("Monocraft.ttf");
+        Path bold = Tests.bundledFont("weights/ttf/Monocraft-Bold.ttf");
+        if (regular == null || bold == null) return;
+
+        assertFalse(FontFile.readHeaders(regular).sameFontsAs(FontFile.readHeaders(bold)), "regular vs bold");
+    }
+
+    public void testTruncatedCopyIsReportedTruncated() throws Exception {
+        Path file = Tests.bundledFont("Monocraft.ttf");
+        if (file == null) return;
+        byte[] bytes = Files.readAllBytes(file);
+        Path copy = Tests.tempDir().resolve("truncated.ttf");
+
+        Files.write(copy, Arrays.copyOf(bytes, bytes.length / 2));
+        FontFile half = FontFile.read(copy);
+        assertFalse(half.isValid(), "half a font is valid");
+        assertTrue(half.getProblems().get(0).contains("truncated"), "problem: " + half.getProblems());
+
+        // Cut inside the table directory and inside the head table's record
+        for (int length : new int[] {40, 300}) {
+            Files.write(copy, Arrays.copyOf(bytes, length));
+            IOException e = assertThrows(IOException.class, () -> FontFile.read(copy), length + " bytes");
+            assertTrue(e.getMessage().contains("truncated"), length + " bytes: " + e.getMessage());
+        }
+    }
+
+    public void testByteFlipIsChecksumMismatch() throws Exception {
+        Path file = Tests.bundledFont("Monocraft.ttf");
+        if (file == null) return;
+        byte[] bytes = Files.readAllBytes(file);
+        FontFile.Table glyf = FontFile.read(file).getFaces().get(0).getTables().get("glyf");
+        int at = (int) (glyf.getOffset() + glyf.getLength() / 2);
+        bytes[at] ^= 0x5A;
+        Path copy = Tests.tempDir().resolve("flipped.ttf");
+        Files.write(copy, bytes);
+
+        FontFile flipped = FontFile.read(copy);
+
+        assertFalse(flipped.isValid(), "flipped font is valid");
+        assertTrue(flipped.getProblems().contains("Checksum mismatch in table glyf at face offset 0"),
+            "problems: " + flipped.getProblems());
+        assertTrue(FontFile.readHeaders(copy).isValid(), "headers only never sum the tables");
+    }
+
+    public void testNotAFont() throws Exception {
+        Path file = Tests.tempDir().resolve("notes.ttf");
+        Files.write(file, "This is not a font, just some text.".getBytes("US-ASCII"));
+
+        assertThrows(IOException.class, () -> FontFile.read(file), "text file");
+    }
+}
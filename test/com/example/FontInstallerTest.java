@@ -0,0 +1,186 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertFalse;
+import static com.example.Tests.assertThrows;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for installing the bundled fonts through a
+ * {@link WindowsFontBackend} on a {@link MemoryFontRegistry}, with the app
+ * data folder in the test's temp directory. Skipped if the fonts are not on
+ * the classpath.
+ */
+@SuppressWarnings("try")
+public class FontInstallerTest {
+    private Path fontsDir;
+    private MemoryFontRegistry registry;
+    private List<Path> bundled;
+
+    /**
+     * Sets up an empty fonts folder and registry, and locates the bundled
+     * default fonts; returns false if there are none.
+     */
+    private boolean setUp() throws Exception {
+        registry = new MemoryFontRegistry();
+        return setUp(registry);
+    }
+
+    private boolean setUp(FontRegistry backendRegistry) throws Exception {
+        Tests.useTempAppData();
+        fontsDir = Tests.tempDir().resolve("Fonts");
+        FontInstaller.setBackend(new WindowsFontBackend(fontsDir, backendRegistry));
+        try {
+            bundled = FontInstaller.locateBundledFonts(FontManifest.Selection.DEFAULT);
+        } catch (IOException e) {
+            System.out.println("  skipped: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies the bundled fonts into the fonts folder without registering
+     * them, as fleet mode does.
+     */
+    private void placeLikeFleetMode() throws Exception {
+        Files.createDirectories(fontsDir);
+        for (Path font : bundled) {
+            Files.copy(font, fontsDir.resolve(font.getFileName().toString()));
+        }
+    }
+
+    public void testInstallRegistersFonts() throws Exception {
+        if (!setUp()) return;
+
+        assertEquals(FontInstaller.Result.INSTALLED, FontInstaller.installFonts(false), "first install");
+        assertEquals(bundled.size(), registry.getValues().size(), "registry values");
+        assertTrue(FontInstaller.verifyInstallation(), "verified");
+        assertEquals(FontInstaller.Result.ALREADY_INSTALLED, FontInstaller.installFonts(false), "second install");
+    }
+
+    public void testFontPlacedByFleetModeIsRegistered() throws Exception {
+        if (!setUp()) return;
+        placeLikeFleetMode();
+        assertFalse(FontInstaller.verifyInstallation(), "verified before registering");
+
+        assertEquals(FontInstaller.Result.INSTALLED, FontInstaller.installFonts(false), "install");
+
+        assertEquals(bundled.size(), registry.getValues().size(), "registry values");
+        for (Path font : bundled) {
+            assertTrue(registry.getValues().containsValue(fontsDir.resolve(font.getFileName()).toString()),
+                font.getFileName() + " registered");
+        }
+        assertTrue(FontInstaller.verifyInstallation(), "verified after install");
+    }
+
+    public void testUnchangedFontsAreCheckedFromJournal() throws Exception {
+        if (!setUp()) return;
+        assertEquals(FontInstaller.Result.INSTALLED, FontInstaller.installFonts(false), "install");
+        int reads = registry.getReadCount();
+
+        for (FontInstaller.FontCheck check : FontInstaller.checkInstallation(FontManifest.Selection.DEFAULT)) {
+            if (check.getStatus() == FontInstaller.FontStatus.NOT_BUNDLED) continue;
+            assertEquals(FontInstaller.FontStatus.CURRENT, check.getStatus(), check.getFileName() + " status");
+        }
+        assertEquals(FontInstaller.Result.ALREADY_INSTALLED, FontInstaller.installFonts(false), "second install");
+        assertEquals(reads, registry.getReadCount(), "registry reads after install");
+    }
+
+    public void testFontModifiedAfterInstallIsReadAgain() throws Exception {
+        if (!setUp()) return;
+        assertEquals(FontInstaller.Result.INSTALLED, FontInstaller.installFonts(false), "install");
+        Path installed = fontsDir.resolve(bundled.get(0).getFileName());
+
+        // Same size, damaged table data, written after the install
+        byte[] bytes = Files.readAllBytes(installed);
+        bytes[bytes.length - 8] ^= 0x5a;
+        Files.write(installed, bytes);
+        Files.setLastModifiedTime(installed, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+
+        for (FontInstaller.FontCheck check : FontInstaller.checkInstallation(FontManifest.Selection.DEFAULT)) {
+            if (check.getFileName().equals(installed.getFileName().toString())) {
+                assertEquals(FontInstaller.FontStatus.CORRUPT, check.getStatus(), "damaged font status");
+            }
+        }
+        assertFalse(FontInstaller.verifyInstallation(), "verified");
+        assertEquals(FontInstaller.Result.INSTALLED, FontInstaller.installFonts(false), "repair");
+        assertTrue(FontInstaller.verifyInstallation(), "verified after repair");
+    }
+
+    public void testFailedRegistrationKeepsFilesThatWereThere() throws Exception {
+        FailingRegistry failing = new FailingRegistry();
+        if (!setUp(failing)) return;
+        placeLikeFleetMode();
+
+        assertThrows(IOException.class, () -> FontInstaller.installFonts(true), "install with failing registry");
+
+        for (Path font : bundled) {
+            assertTrue(Files.isRegularFile(fontsDir.resolve(font.getFileName())), font.getFileName() + " kept");
+        }
+        assertTrue(failing.memory.getValues().isEmpty(), "nothing registered");
+        assertEquals(null, InstallJournal.getDefault().getPendingOperation(), "rolled back in the journal");
+        assertFalse(FontInstaller.verifyInstallation(), "verified without registration");
+    }
+
+    public void testRecoveryKeepsFilesThatWereThere() throws Exception {
+        if (!setUp()) return;
+        placeLikeFleetMode();
+        Path newFont = fontsDir.resolve("Monocraft-New.ttf");
+        Files.copy(bundled.get(0), newFont);
+
+        // An installation that died after registering the fonts
+        InstallJournal journal = InstallJournal.getDefault();
+        try (InstallJournal.Lock lock = journal.lock()) {
+            InstallJournal.Operation op = journal.begin(InstallJournal.OperationType.INSTALL);
+            List<Path> all = new ArrayList<>(bundled);
+            for (Path font : bundled) {
+                String name = font.getFileName().toString();
+                op.step(InstallJournal.StepKind.PRESENT, name, "abc", null);
+                op.step(InstallJournal.StepKind.REGISTER_EXISTING, name, "abc", null);
+            }
+            op.step(InstallJournal.StepKind.REGISTER, newFont.getFileName().toString(), "def", null);
+            all.add(newFont);
+            FontInstaller.getBackend().register(all);
+        }
+
+        assertTrue(FontInstaller.recoverInterruptedOperation() != null, "recovered");
+
+        for (Path font : bundled) {
+            assertTrue(Files.isRegularFile(fontsDir.resolve(font.getFileName())), font.getFileName() + " kept");
+        }
+        assertFalse(Files.exists(newFont), "font the installation added is removed");
+        assertTrue(registry.getValues().isEmpty(), "all unregistered");
+    }
+
+    /**
+     * Registry whose writes fail, e.g. because {@code reg import} is blocked.
+     */
+    private static final class FailingRegistry implements FontRegistry {
+        final MemoryFontRegistry memory = new MemoryFontRegistry();
+
+        @Override
+        public Map<String, String> readValues() {
+            return memory.readValues();
+        }
+
+        @Override
+        public void apply(Transaction transaction) throws IOException {
+            if (transaction.isEmpty()) return;
+            throw new IOException("reg import failed");
+        }
+
+        @Override
+        public void notifyFontsChanged(List<Path> added, List<Path> removed) {
+            memory.notifyFontsChanged(added, removed);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertThrows;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Round trips through the font pack format: a fonts folder is packed and
+ * single entries are read back.
+ */
+public class FontPackTest {
+    public void testRoundTripStoredAndDeflated() throws Exception {
+        Path font = Tests.bundledFont("Monocraft.ttf");
+        if (font == null) return;
+        Path dir = Tests.tempDir().resolve("Monocraft-font");
+        Path nested = dir.resolve("Monocraft-ttf-otf").resolve("Monocraft.ttf");
+        Files.createDirectories(nested.getParent());
+        Files.copy(font, nested);
+        // Random bytes do not compress, so this entry is stored as is
+        byte[] noise = new byte[64 * 1024];
+        new Random(42).nextBytes(noise);
+        Files.write(dir.resolve("Noise.otf"), noise);
+        Files.write(dir.resolve("README.txt"), "not a font".getBytes("US-ASCII"));
+        Path packFile = Tests.tempDir().resolve("fonts.pack");
+
+        List<FontPack.Entry> written = FontPack.write(dir, packFile);
+        FontPack pack = FontPack.open(packFile);
+
+        List<String> names = new ArrayList<>();
+        for (FontPack.Entry e : pack.getEntries()) {
+            names.add(e.getName());
+        }
+        assertEquals(Arrays.asList("Monocraft-ttf-otf/Monocraft.ttf", "Noise.otf"), names, "entries");
+        assertEquals(written.size(), names.size(), "entries written");
+
+        FontPack.Entry deflated = pack.getEntry("Monocraft-ttf-otf/Monocraft.ttf");
+        assertEquals(FontPack.Codec.DEFLATE, deflated.getCodec(), "font codec");
+        assertTrue(deflated.getStoredLength() < deflated.getLength(), "font compressed");
+        assertEquals(FileUtils.sha256(nested), deflated.getSha256(), "font hash in the index");
+        assertEquals(deflated.getSha256(), sha256(pack, deflated.getName()), "font read back");
+
+        FontPack.Entry stored = pack.getEntry("Noise.otf");
+        assertEquals(FontPack.Codec.STORED, stored.getCodec(), "noise codec");
+        assertEquals((long) noise.length, stored.getStoredLength(), "stored length");
+        assertEquals(FileUtils.sha256(dir.resolve("Noise.otf")), stored.getSha256(), "noise hash in the index");
+        assertEquals(stored.getSha256(), sha256(pack, stored.getName()), "noise read back");
+        try (InputStream in = pack.openEntry("Noise.otf")) {
+            assertTrue(Arrays.equals(noise, in.readAllBytes()), "stored bytes");
+        }
+    }
+
+    public void testEntriesOpenIndependently() throws Exception {
+        Path dir = Tests.tempDir().resolve("fonts");
+        Files.createDirectories(dir);
+        Random random = new Random(7);
+        for (int i = 0; i < 5; i++) {
+            byte[] data = new byte[1000 + i * 5000];
+            random.nextBytes(data);
+            // Half of each file repeats, so it deflates
+            System.arraycopy(data, 0, data, data.length / 2, data.length / 2);
+            Files.write(dir.resolve("Font" + i + ".ttf"), data);
+        }
+        Path packFile = Tests.tempDir().resolve("fonts.pack");
+        FontPack.write(dir, packFile);
+        FontPack pack = FontPack.open(packFile);
+
+        // Last entry first: reading one must not depend on reading others
+        for (int i = 4; i >= 0; i--) {
+            String name = "Font" + i + ".ttf";
+            assertEquals(FileUtils.sha256(dir.resolve(name)), sha256(pack, name), name);
+        }
+        assertThrows(IOException.class, () -> pack.openEntry("Missing.ttf"), "unknown entry");
+    }
+
+    public void testNotAPack() throws Exception {
+        Path file = Tests.tempDir().resolve("fonts.pack");
+        Files.write(file, "PK\u0003\u0004 not a pack".getBytes("ISO-8859-1"));
+
+        assertThrows(IOException.class, () -> FontPack.open(file), "zip file");
+    }
+
+    private static String sha256(FontPack pack, String name) throws IOException {
+        MessageDigest digest = FileUtils.newSha256();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = pack.openEntry(name)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return FileUtils.toHex(digest.digest());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertFalse;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for the {@code .reg} files exchanged with {@code reg export} and
+ * {@code reg import}, and for registering fonts through
+ * {@link WindowsFontBackend} against a {@link MemoryFontRegistry}.
+ */
+public class FontRegistryTest {
+    public void testRegFileRoundTrip() throws Exception {
+        FontRegistry.Transaction transaction = new FontRegistry.Transaction()
+            .set("Monocraft (TrueType)", "C:\\Users\\dev\\AppData\\Local\\Microsoft\\Windows\\Fonts\\Monocraft.ttf")
+            .set("Monocraft \"Nerd\" & Monocraft Bold (TrueType)", "C:\\Fonts\\Monocraft \"nerd\".ttc")
+            .set("Monocraft Italic (OpenType)", "D:\\Fonts\\Monocraft-Italic.otf");
+        Map<String, String> expected = new LinkedHashMap<>(transaction.getOperations());
+
+        String text = WindowsFontRegistry.formatRegFile(transaction);
+
+        assertTrue(text.startsWith("\uFEFFWindows Registry Editor Version 5.00\r\n"), "header");
+        assertTrue(text.contains("[" + FontRegistry.FONTS_KEY + "]\r\n"), "key line");
+        assertEquals(expected, WindowsFontRegistry.parseRegFile(text), "values read back");
+    }
+
+    public void testRegFileDeletesAreNotValues() {
+        FontRegistry.Transaction transaction = new FontRegistry.Transaction()
+            .set("Monocraft (TrueType)", "C:\\Fonts\\Monocraft.ttf")
+            .delete("Monocraft Bold (TrueType)");
+
+        String text = WindowsFontRegistry.formatRegFile(transaction);
+
+        assertTrue(text.contains("\"Monocraft Bold (TrueType)\"=-\r\n"), "delete line: " + text);
+        assertEquals(Collections.singletonMap("Monocraft (TrueType)", "C:\\Fonts\\Monocraft.ttf"),
+            WindowsFontRegistry.parseRegFile(text), "values read back");
+    }
+
+    public void testParseExportSkipsOtherTypesAndKeys() {
+        String export = "\uFEFFWindows Registry Editor Version 5.00\r\n\r\n"
+            + "[" + FontRegistry.FONTS_KEY + "]\r\n"
+            + "\"Other (TrueType)\"=\"C:\\\\Fonts\\\\other.ttf\"\r\n"
+            + "\"Binary\"=hex:01,02,03,\\\r\n"
+            + "  \"Fake\"=\"continued line\"\r\n"
+            + "\"Count\"=dword:00000001\r\n"
+            + "\"Monocraft (TrueType)\"=\"C:\\\\Fonts\\\\Monocraft.ttf\"\r\n"
+            + "\r\n"
+            + "[" + FontRegistry.FONTS_KEY + "\\Sub]\r\n"
+            + "\"Monocraft Sub (TrueType)\"=\"C:\\\\Sub.ttf\"\r\n";
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("Other (TrueType)", "C:\\Fonts\\other.ttf");
+        expected.put("Monocraft (TrueType)", "C:\\Fonts\\Monocraft.ttf");
+        assertEquals(expected, WindowsFontRegistry.parseRegFile(export), "string values of the first key");
+    }
+
+    public void testRegisterAndUnregister() throws Exception {
+        List<Path> fonts = bundledFonts("ttf/Monocraft-Bold.ttf", "otf/Monocraft-Italic.otf");
+        if (fonts == null) return;
+        Path fontsDir = Tests.tempDir().resolve("Fonts");
+        MemoryFontRegistry registry = new MemoryFontRegistry();
+        registry.put("Arial (TrueType)", "arial.ttf");
+        WindowsFontBackend backend = new WindowsFontBackend(fontsDir, registry);
+
+        Map<String, String> written = backend.register(fonts);
+
+        assertEquals(2, written.size(), "hashes of the copies");
+        assertEquals(1, registry.getApplyCount(), "transactions to register");
+        assertEquals(0, registry.getReadCount(), "reads to register");
+        Map<String, String> values = registry.getValues();
+        assertEquals(fontsDir.resolve("Monocraft-Bold.ttf").toString(),
+            values.get(WindowsFontBackend.valueName(fonts.get(0))), "TrueType value");
+        assertTrue(WindowsFontBackend.valueName(fonts.get(0)).endsWith(" (TrueType)"), "TrueType suffix");
+        assertEquals(fontsDir.resolve("Monocraft-Italic.otf").toString(),
+            values.get(WindowsFontBackend.valueName(fonts.get(1))), "OpenType value");
+        assertTrue(WindowsFontBackend.valueName(fonts.get(1)).endsWith(" (OpenType)"), "OpenType suffix");
+        assertEquals(Arrays.asList(fontsDir.resolve("Monocraft-Bold.ttf"), fontsDir.resolve("Monocraft-Italic.otf")),
+            registry.getLoadedFonts(), "fonts loaded into the session");
+        assertEquals(new HashSet<>(Arrays.asList("monocraft-bold.ttf", "monocraft-italic.otf")),
+            backend.getRegisteredFiles(), "registered files");
+
+        backend.unregister(Arrays.asList("Monocraft-Bold.ttf", "MONOCRAFT-ITALIC.OTF"));
+
+        assertEquals(Collections.singletonMap("Arial (TrueType)", "arial.ttf"), registry.getValues(),
+            "other fonts kept");
+        assertTrue(registry.getLoadedFonts().isEmpty(), "fonts unloaded");
+        assertEquals(2, registry.getApplyCount(), "transactions after unregister");
+        assertEquals(2, registry.getReadCount(), "reads after unregister");
+    }
+
+    public void testUnregisterOnlyNamedFiles() throws Exception {
+        List<Path> fonts = bundledFonts("ttf/Monocraft-Bold.ttf", "ttf/Monocraft-Light.ttf");
+        if (fonts == null) return;
+        Path fontsDir = Tests.tempDir().resolve("Fonts");
+        MemoryFontRegistry registry = new MemoryFontRegistry();
+        WindowsFontBackend backend = new WindowsFontBackend(fontsDir, registry);
+        backend.register(fonts);
+
+        backend.unregister(Collections.singletonList("monocraft-light.ttf"));
+
+        assertEquals(Collections.singleton("monocraft-bold.ttf"), backend.getRegisteredFiles(), "still registered");
+        assertEquals(Collections.singletonList(fontsDir.resolve("Monocraft-Bold.ttf")), registry.getLoadedFonts(),
+            "still loaded");
+        assertTrue(Files.exists(fontsDir.resolve("Monocraft-Light.ttf")), "unregister leaves the file");
+    }
+
+    public void testUnregisterNothingAppliesNoTransaction() throws Exception {
+        MemoryFontRegistry registry = new MemoryFontRegistry();
+        WindowsFontBackend backend = new WindowsFontBackend(Tests.tempDir().resolve("Fonts"), registry);
+
+        backend.unregister(Collections.singletonList("Monocraft.ttf"));
+
+        assertEquals(0, registry.getApplyCount(), "transactions");
+        assertFalse(Files.exists(backend.getFontsDir()), "no fonts folder created");
+    }
+
+    /**
+     * Copies bundled fonts to the temp directory, or returns null if the
+     * font resources are not on the classpath.
+     */
+    private static List<Path> bundledFonts(String... names) throws Exception {
+        List<Path> fonts = new ArrayList<>();
+        for (String name : names) {
+            Path font = Tests.bundledFont("weights/" + name);
+            if (font == null) {
+                return null;
+            }
+            fonts.add(font);
+        }
+        return fonts;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example;
+
+import java.nio.file.Path;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertThrows;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for the journal lock shared by processes using the same journal.
+ * Two {@link InstallJournal} instances on one file stand in for two
+ * processes.
+ */
+@SuppressWarnings("try")
+public class InstallJournalTest {
+    public void testWritesNeedTheLock() throws Exception {
+        InstallJournal journal = InstallJournal.open(Tests.tempDir().resolve("journal.log"));
+        assertThrows(IllegalStateException.class, () -> journal.begin(InstallJournal.OperationType.INSTALL),
+            "begin without the lock");
+    }
+
+    public void testRunningOperationIsNotPending() throws Exception {
+        Path file = Tests.tempDir().resolve("journal.log");
+        InstallJournal first = InstallJournal.open(file);
+        InstallJournal second = InstallJournal.open(file);
+
+        try (InstallJournal.Lock lock = first.lock()) {
+            first.begin(InstallJournal.OperationType.INSTALL)
+                .step(InstallJournal.StepKind.REGISTER, "Monocraft.ttf", "abc", "1.0");
+
+            assertEquals(null, second.tryLock(), "lock while another instance holds it");
+            assertEquals(null, InstallJournal.open(file).tryLock(), "lock from a fresh instance");
+        }
+
+        // The holder went away with the operation still open: now it is interrupted
+        try (InstallJournal.Lock lock = second.tryLock()) {
+            assertTrue(lock != null, "lock once released");
+            InstallJournal.Operation pending = second.getPendingOperation();
+            assertTrue(pending != null, "open operation found after reload");
+            assertEquals(InstallJournal.OperationType.INSTALL, pending.getType(), "pending type");
+            pending.abort("rolled back");
+        }
+    }
+
+    public void testLockReloadsOtherInstancesRecords() throws Exception {
+        Path file = Tests.tempDir().resolve("journal.log");
+        InstallJournal first = InstallJournal.open(file);
+        InstallJournal second = InstallJournal.open(file);
+
+        try (InstallJournal.Lock lock = first.lock()) {
+            InstallJournal.Operation op = first.begin(InstallJournal.OperationType.INSTALL);
+            op.step(InstallJournal.StepKind.REGISTER, "Monocraft.ttf", "abc", "1.0");
+            op.commit();
+        }
+        assertEquals(null, second.getInstalledFont("Monocraft.ttf"), "snapshot before locking");
+
+        try (InstallJournal.Lock lock = second.lock()) {
+            assertEquals("abc", second.getInstalledFont("Monocraft.ttf").getSha256(), "state after locking");
+            InstallJournal.Operation op = second.begin(InstallJournal.OperationType.UNINSTALL);
+            op.step(InstallJournal.StepKind.DELETE, "Monocraft.ttf", null, null);
+            op.commit();
+        }
+
+        InstallJournal reopened = InstallJournal.open(file);
+        assertEquals(null, reopened.getInstalledFont("Monocraft.ttf"), "uninstall recorded after install");
+        assertEquals(null, reopened.getPendingOperation(), "both operations closed");
+    }
+
+    public void testLockIsReentrant() throws Exception {
+        InstallJournal journal = InstallJournal.open(Tests.tempDir().resolve("journal.log"));
+        try (InstallJournal.Lock outer = journal.lock(); InstallJournal.Lock inner = journal.tryLock()) {
+            assertTrue(outer != null && inner != null, "nested lock in the same thread");
+            journal.begin(InstallJournal.OperationType.ADD_SETTINGS).commit();
+        }
+    }
+
+    public void testAbortedRegisterExistingLeavesNoRecord() throws Exception {
+        Path file = Tests.tempDir().resolve("journal.log");
+        InstallJournal journal = InstallJournal.open(file);
+        try (InstallJournal.Lock lock = journal.lock()) {
+            InstallJournal.Operation op = journal.begin(InstallJournal.OperationType.INSTALL);
+            op.step(InstallJournal.StepKind.PRESENT, "Monocraft.ttf", "abc", "1.0");
+            op.step(InstallJournal.StepKind.REGISTER_EXISTING, "Monocraft.ttf", "abc", "1.0");
+            op.step(InstallJournal.StepKind.REGISTER, "Monocraft-Bold.ttf", "def", "1.0");
+            op.abort("rolled back");
+        }
+
+        InstallJournal reopened = InstallJournal.open(file);
+        assertEquals(null, reopened.getInstalledFont("Monocraft.ttf"), "file found in place was not registered");
+        assertEquals(null, reopened.getInstalledFont("Monocraft-Bold.ttf"), "new font rolled back");
+        assertEquals(null, reopened.getPendingOperation(), "operation closed");
+    }
+}
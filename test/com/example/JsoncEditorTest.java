@@ -0,0 +1,103 @@
+package com.example;
+
+import java.io.IOException;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertThrows;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for editing top-level properties of JSON-with-comments documents,
+ * mostly the cases line-based matching gets wrong.
+ */
+public class JsoncEditorTest {
+    private static final String KEY = "editor.fontFamily";
+
+    public void testKeysInCommentsStringsAndNestedObjectsAreIgnored() throws Exception {
+        String text = "{\n"
+            + "    // \"editor.fontFamily\": \"Commented\",\n"
+            + "    /* \"editor.fontFamily\": \"Block\" */\n"
+            + "    \"note\": \"\\\"editor.fontFamily\\\": \\\"InString\\\"\",\n"
+            + "    \"[python]\": {\"editor.fontFamily\": \"Nested\"}\n"
+            + "}\n";
+        JsoncEditor editor = JsoncEditor.parse(text);
+
+        assertEquals(null, editor.get(KEY), "no top-level key");
+        assertEquals("{\n"
+            + "    // \"editor.fontFamily\": \"Commented\",\n"
+            + "    /* \"editor.fontFamily\": \"Block\" */\n"
+            + "    \"note\": \"\\\"editor.fontFamily\\\": \\\"InString\\\"\",\n"
+            + "    \"[python]\": {\"editor.fontFamily\": \"Nested\"},\n"
+            + "    \"editor.fontFamily\": \"Monocraft\"\n"
+            + "}\n", editor.set(KEY, "\"Monocraft\"").apply(), "set adds a top-level key");
+        assertEquals(text, JsoncEditor.parse(text).remove(KEY).apply(), "remove leaves the others alone");
+    }
+
+    public void testCrlfIsKept() throws Exception {
+        String text = "{\r\n  \"a\": 1\r\n}\r\n";
+
+        assertEquals("{\r\n  \"a\": 1,\r\n  \"editor.fontFamily\": \"Monocraft\"\r\n}\r\n",
+            JsoncEditor.parse(text).set(KEY, "\"Monocraft\"").apply(), "added with CRLF");
+        assertEquals("{\r\n}\r\n", JsoncEditor.parse(text).remove("a").apply(), "whole line removed");
+    }
+
+    public void testTrailingCommaIsKept() throws Exception {
+        String text = "{\n  \"a\": 1,\n}\n";
+
+        assertEquals("{\n  \"a\": 1,\n  \"editor.fontFamily\": \"Monocraft\",\n}\n",
+            JsoncEditor.parse(text).set(KEY, "\"Monocraft\"").apply(), "trailing comma style");
+        assertEquals("{\n  \"a\": 2,\n}\n", JsoncEditor.parse(text).set("a", "2").apply(), "value replaced");
+    }
+
+    public void testCommaFixedWhenLastMemberRemoved() throws Exception {
+        String text = "{\n  \"a\": 1,\n  \"editor.fontFamily\": \"Monocraft\"\n}\n";
+
+        assertEquals("{\n  \"a\": 1\n}\n", JsoncEditor.parse(text).remove(KEY).apply(), "dangling comma dropped");
+    }
+
+    public void testByteOrderMarkIsKept() throws Exception {
+        String text = "\uFEFF{\n  \"a\": 1\n}\n";
+
+        assertEquals("\uFEFF{\n  \"a\": 1,\n  \"editor.fontFamily\": \"Monocraft\"\n}\n",
+            JsoncEditor.parse(text).set(KEY, "\"Monocraft\"").apply(), "BOM kept");
+    }
+
+    public void testDuplicateKeys() throws Exception {
+        String text = "{\n  \"editor.fontFamily\": \"A\",\n  \"a\": 2,\n  \"editor.fontFamily\": \"B\"\n}\n";
+
+        assertEquals("\"B\"", JsoncEditor.parse(text).get(KEY), "last occurrence wins");
+        assertEquals("{\n  \"editor.fontFamily\": \"C\",\n  \"a\": 2,\n  \"editor.fontFamily\": \"C\"\n}\n",
+            JsoncEditor.parse(text).set(KEY, "\"C\"").apply(), "every occurrence set");
+        assertEquals("{\n  \"a\": 2\n}\n", JsoncEditor.parse(text).remove(KEY).apply(), "every occurrence removed");
+    }
+
+    public void testEmptyDocuments() throws Exception {
+        assertEquals("{\n    \"editor.fontFamily\": \"Monocraft\"\n}\n",
+            JsoncEditor.parse("").set(KEY, "\"Monocraft\"").apply(), "empty file");
+        assertEquals("", JsoncEditor.parse("").remove(KEY).apply(), "remove from empty file");
+        assertEquals("{\n    \"editor.fontFamily\": \"Monocraft\"\n}",
+            JsoncEditor.parse("{}").set(KEY, "\"Monocraft\"").apply(), "empty object");
+    }
+
+    public void testUnchangedDocumentIsReturnedAsIs() throws Exception {
+        String text = "{ \"editor.fontFamily\": \"Monocraft\" } // comment\n";
+        JsoncEditor editor = JsoncEditor.parse(text);
+
+        assertTrue(editor.set(KEY, "\"Monocraft\"").apply() == text, "same instance");
+    }
+
+    public void testInvalidDocumentsAreRejected() {
+        String[] invalid = {
+            "{\"a\": 1} junk",
+            "{}{}",
+            "[]",
+            "{\"a\": 1",
+            "{\"a\" 1}",
+            "{\"a\": \"unterminated}",
+            "{\"a\": 1 /* open comment}"
+        };
+        for (String text : invalid) {
+            assertThrows(IOException.class, () -> JsoncEditor.parse(text), text);
+        }
+    }
+}
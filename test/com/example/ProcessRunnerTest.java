@@ -0,0 +1,121 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertFalse;
+import static com.example.Tests.assertThrows;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for running external commands, using {@code sh -c}; skipped on
+ * Windows.
+ */
+public class ProcessRunnerTest {
+    private static ProcessRunner sh(String script) {
+        return new ProcessRunner(Arrays.asList("sh", "-c", script));
+    }
+
+    private static boolean hasShell() {
+        return !System.getProperty("os.name", "").startsWith("Windows");
+    }
+
+    public void testCapturesStdoutAndStderr() throws Exception {
+        if (!hasShell()) return;
+        ProcessRunner.Result result = sh("echo out1; echo err1 >&2; echo out2").run();
+
+        assertTrue(result.succeeded(), "succeeded: " + result);
+        assertEquals(0, result.getExitCode(), "exit code");
+        assertEquals("out1\nout2\n", result.getStdout(), "stdout");
+        assertEquals("err1\n", result.getStderr(), "stderr");
+        assertFalse(result.isTimedOut(), "timed out");
+    }
+
+    public void testMergeErrorsKeepsOrder() throws Exception {
+        if (!hasShell()) return;
+        ProcessRunner.Result result = sh("echo one; echo two >&2; echo three").mergeErrors(true).run();
+
+        assertEquals("one\ntwo\nthree\n", result.getStdout(), "merged output");
+        assertEquals("", result.getStderr(), "stderr");
+    }
+
+    public void testNonZeroExit() throws Exception {
+        if (!hasShell()) return;
+        ProcessRunner.Result result = sh("echo failing >&2; exit 7").run();
+
+        assertFalse(result.succeeded(), "succeeded");
+        assertFalse(result.isTimedOut(), "timed out");
+        assertEquals(7, result.getExitCode(), "exit code");
+        assertEquals("failing\n", result.getStderr(), "stderr");
+        assertEquals("sh: exit 7 in " + result.getDurationMillis() + " ms", result.toString(), "description");
+    }
+
+    public void testTimeoutKillsProcessTree() throws Exception {
+        if (!hasShell()) return;
+        long start = System.nanoTime();
+        // The child keeps stdout open, so the result only completes once it is killed too
+        ProcessRunner.Result result = sh("sleep 30 & echo $!; wait").timeoutMillis(300).run();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(result.isTimedOut(), "timed out: " + result);
+        assertFalse(result.succeeded(), "succeeded");
+        assertTrue(elapsedMillis < 10_000, "returned after " + elapsedMillis + " ms");
+        long child = Long.parseLong(result.getStdout().trim());
+        assertChildEnds(child);
+    }
+
+    public void testCancelKillsProcessTree() throws Exception {
+        if (!hasShell()) return;
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<ProcessRunner.Result> future = sh("sleep 30 & echo $!; wait")
+            .timeoutMillis(0)
+            .onOutputLine(lines::add)
+            .start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lines.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, lines.size(), "lines seen before cancelling");
+
+        future.cancel(true);
+
+        assertThrows(CancellationException.class, future::get, "result of a cancelled run");
+        assertChildEnds(Long.parseLong(lines.get(0)));
+    }
+
+    public void testLargeOutputDoesNotStall() throws Exception {
+        if (!hasShell()) return;
+        // Far more than a pipe buffer on both streams at once
+        ProcessRunner.Result result = sh("i=0; while [ $i -lt 20000 ]; do echo line $i; echo err $i >&2; "
+            + "i=$((i+1)); done").timeoutMillis(60_000).run();
+
+        assertTrue(result.succeeded(), "succeeded: " + result);
+        assertEquals(20000, result.getStdout().split("\n").length, "stdout lines");
+        assertEquals(20000, result.getStderr().split("\n").length, "stderr lines");
+    }
+
+    public void testMissingCommandFailsToStart() {
+        assertThrows(IOException.class,
+            () -> new ProcessRunner(Collections.singletonList("monocraft-no-such-command")).run(), "start");
+        assertThrows(IllegalArgumentException.class,
+            () -> new ProcessRunner(Collections.emptyList()), "empty command");
+    }
+
+    /**
+     * Waits briefly for a process to be gone.
+     */
+    private static void assertChildEnds(long pid) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)) {
+            assertTrue(System.nanoTime() < deadline, "child " + pid + " still running");
+            Thread.sleep(20);
+        }
+    }
+}
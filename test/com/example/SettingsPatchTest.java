@@ -0,0 +1,78 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertFalse;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for writing patched settings and workspace files.
+ */
+public class SettingsPatchTest {
+    private static final Set<PosixFilePermission> SHARED = PosixFilePermissions.fromString("rw-rw-r--");
+
+    public void testApplyToKeepsPermissions() throws Exception {
+        if (!Tests.isPosix()) return;
+        Path file = Tests.tempDir().resolve("settings.json");
+        Files.write(file, "{\n    \"editor.fontSize\": 14\n}\n".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(file, SHARED);
+
+        SettingsPatch.Result result = SettingsManager.createPatch(true).applyTo(file);
+
+        assertTrue(result.isChanged(), "patch should change the file");
+        assertTrue(Files.readString(file).contains("editor.fontFamily"), "font setting written");
+        assertEquals(SHARED, Files.getPosixFilePermissions(file), "permissions after patch");
+    }
+
+    public void testApplyToSectionKeepsPermissions() throws Exception {
+        if (!Tests.isPosix()) return;
+        Path file = Tests.tempDir().resolve("project.code-workspace");
+        Files.write(file, "{\n  \"folders\": [],\n  \"settings\": {}\n}\n".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(file, SHARED);
+
+        SettingsManager.createPatch(true).applyTo(file, WorkspacePatcher.WORKSPACE_SECTION);
+
+        assertTrue(Files.readString(file).contains("editor.fontFamily"), "font setting written");
+        assertEquals(SHARED, Files.getPosixFilePermissions(file), "permissions after patch");
+    }
+
+    public void testWorkspacePatcherKeepsPermissions() throws Exception {
+        if (!Tests.isPosix()) return;
+        Path root = Tests.tempDir().resolve("repo");
+        Path settings = root.resolve(".vscode").resolve("settings.json");
+        Files.createDirectories(settings.getParent());
+        Files.write(settings, "{}\n".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(settings, SHARED);
+
+        WorkspacePatcher.Report report = new WorkspacePatcher(root).run(true);
+
+        assertEquals(SettingsManager.Result.UPDATED, report.getSettings().getResult(), "workspace result");
+        assertEquals(SHARED, Files.getPosixFilePermissions(settings), "permissions after add");
+
+        new WorkspacePatcher(root).run(false);
+
+        assertFalse(Files.readString(settings).contains("editor.fontFamily"), "font setting removed");
+        assertEquals(SHARED, Files.getPosixFilePermissions(settings), "permissions after remove");
+    }
+
+    public void testUnchangedFileIsNotRewritten() throws Exception {
+        Path file = Tests.tempDir().resolve("settings.json");
+        Files.write(file, "{}\n".getBytes(StandardCharsets.UTF_8));
+        SettingsPatch patch = SettingsManager.createPatch(true);
+        patch.applyTo(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+
+        assertFalse(patch.applyTo(file).isChanged(), "second patch changes nothing");
+        assertEquals(modified, Files.getLastModifiedTime(file).toMillis(), "modification time");
+        assertEquals(key, Files.readAttributes(file, BasicFileAttributes.class).fileKey(),
+            "file not replaced");
+    }
+}
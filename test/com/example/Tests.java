@@ -0,0 +1,208 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Minimal test harness, so the tests need nothing but the JDK.
+ *
+ * Every public no-argument method whose name starts with {@code test} in
+ * the classes listed in {@link #TEST_CLASSES} runs on a fresh instance. A
+ * test fails by throwing, e.g. from one of the {@code assert} methods here.
+ * Each test gets its own temp directory from {@link #tempDir()}, deleted
+ * when it ends; the app data folder and font backend are reset after each
+ * test.
+ *
+ * Usage: {@code Tests [--filter text]}, exit code 1 if any test failed.
+ */
+public final class Tests {
+    private static final List<Class<?>> TEST_CLASSES = Arrays.asList(
+        CommandBatchTest.class,
+        FleetInstallerTest.class,
+        FontFileTest.class,
+        FontBackendTest.class,
+        FontCollectionSplitterTest.class,
+        FontInstallerTest.class,
+        FontPackTest.class,
+        FontRegistryTest.class,
+        InstallJournalTest.class,
+        JsoncEditorTest.class,
+        ProcessRunnerTest.class,
+        SettingsPatchTest.class,
+        WorkspacePatcherTest.class
+    );
+
+    private static final String FONTS_RESOURCE = "/Monocraft-font/Monocraft-ttf-otf/other-formats/";
+    private static final String APP_DATA_PROPERTY = "monocraft.appDataDir";
+
+    private static Path tempDir;
+
+    private Tests() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--filter") && i + 1 < args.length) {
+                filter = args[++i];
+            } else {
+                System.err.println("Usage: Tests [--filter text]");
+                System.exit(2);
+            }
+        }
+
+        int passed = 0;
+        List<String> failures = new ArrayList<>();
+        for (Class<?> type : TEST_CLASSES) {
+            Method[] methods = type.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                String name = type.getSimpleName() + "." + method.getName();
+                if (!method.getName().startsWith("test") || method.getParameterCount() != 0
+                    || !Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())
+                    || (filter != null && !name.contains(filter))) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    method.invoke(type.getDeclaredConstructor().newInstance());
+                    passed++;
+                    System.out.printf("PASS %s (%d ms)%n", name, (System.nanoTime() - start) / 1_000_000);
+                } catch (InvocationTargetException e) {
+                    failures.add(name);
+                    System.out.printf("FAIL %s%n", name);
+                    e.getCause().printStackTrace(System.out);
+                } finally {
+                    System.clearProperty(APP_DATA_PROPERTY);
+                    FontInstaller.setBackend(null);
+                    if (tempDir != null) {
+                        deleteRecursively(tempDir);
+                        tempDir = null;
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%n%d passed, %d failed%n", passed, failures.size());
+        for (String failure : failures) {
+            System.out.println("  " + failure);
+        }
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Returns the running test's temp directory, creating it on first use.
+     */
+    static Path tempDir() throws IOException {
+        if (tempDir == null) {
+            tempDir = Files.createTempDirectory("monocraft-test-");
+        }
+        return tempDir;
+    }
+
+    /**
+     * Points the app data folder (journal, caches, font index) into the
+     * running test's temp directory until the test ends.
+     *
+     * @return The app data folder
+     */
+    static Path useTempAppData() throws IOException {
+        Path dir = tempDir().resolve("app-data");
+        System.setProperty(APP_DATA_PROPERTY, dir.toString());
+        return dir;
+    }
+
+    /**
+     * Copies a bundled font from the classpath into the running test's temp
+     * directory.
+     *
+     * @param resource Path below {@code /Monocraft-font/Monocraft-ttf-otf/other-formats/},
+     *        e.g. {@code Monocraft.ttf}
+     * @return The copy, or null (with a note) if the fonts are not on the classpath
+     */
+    static Path bundledFont(String resource) throws IOException {
+        try (InputStream in = Tests.class.getResourceAsStream(FONTS_RESOURCE + resource)) {
+            if (in == null) {
+                System.out.println("  skipped: " + resource + " not on classpath");
+                return null;
+            }
+            Path dir = tempDir().resolve("bundled");
+            Files.createDirectories(dir);
+            Path font = dir.resolve(resource.substring(resource.lastIndexOf('/') + 1));
+            Files.copy(in, font, StandardCopyOption.REPLACE_EXISTING);
+            return font;
+        }
+    }
+
+    /**
+     * Returns true on Linux and other systems with POSIX permissions.
+     */
+    static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void assertFalse(boolean condition, String message) {
+        assertTrue(!condition, message);
+    }
+
+    static void assertEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    /**
+     * Runs an action that must throw an exception of the given type.
+     *
+     * @return The exception thrown
+     */
+    static <T extends Throwable> T assertThrows(Class<T> type, Action action, String message) {
+        try {
+            action.run();
+        } catch (Throwable t) {
+            if (type.isInstance(t)) {
+                return type.cast(t);
+            }
+            throw new AssertionError(message + ": expected " + type.getSimpleName() + " but got " + t, t);
+        }
+        throw new AssertionError(message + ": expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+
+    /**
+     * Code expected to fail in {@link #assertThrows}.
+     */
+    interface Action {
+        void run() throws Exception;
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.example.Tests.assertEquals;
+import static com.example.Tests.assertTrue;
+
+/**
+ * Tests for scanning a source tree for workspace settings and patching them.
+ */
+public class WorkspacePatcherTest {
+    private static final String EMPTY = "{}\n";
+
+    private Path root;
+
+    private Path write(String relative, String content) throws Exception {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<Path> paths(WorkspacePatcher.Report report) {
+        List<Path> paths = new ArrayList<>();
+        for (SettingsManager.TargetResult target : report.getSettings().getTargets()) {
+            paths.add(target.getPath());
+        }
+        return paths;
+    }
+
+    public void testScanFindsSettingsAndSkipsExcludes() throws Exception {
+        root = Tests.tempDir().resolve("repo");
+        Path top = write(".vscode/settings.json", EMPTY);
+        // Deeper than the folders the scan hands to other tasks
+        Path deep = write("a/b/c/d/e/f/g/.vscode/settings.json", EMPTY);
+        Path workspace = write("tools/project.code-workspace", "{\"folders\": [], \"settings\": {}}\n");
+        write(".git/.vscode/settings.json", EMPTY);
+        write("node_modules/pkg/.vscode/settings.json", EMPTY);
+        write("build/.vscode/settings.json", EMPTY);
+        write("x.cache/.vscode/settings.json", EMPTY);
+        write("a/b/c/d/e/f/node_modules/.vscode/settings.json", EMPTY);
+        write("src/settings.json", EMPTY);
+        write("src/.vscode/launch.json", EMPTY);
+
+        WorkspacePatcher.Report report = new WorkspacePatcher(root).exclude("build").exclude("*.cache")
+            .parallelism(3).dryRun(true).run(true);
+
+        List<Path> expected = new ArrayList<>(Arrays.asList(top, deep, workspace));
+        Collections.sort(expected);
+        assertEquals(expected, paths(report), "files found");
+        assertEquals(5, report.getExcluded(), "folders excluded");
+        assertEquals(0, report.getUnreadable(), "unreadable");
+    }
+
+    public void testDefaultExcludesOnly() throws Exception {
+        root = Tests.tempDir().resolve("repo");
+        Path build = write("build/.vscode/settings.json", EMPTY);
+        write(".git/.vscode/settings.json", EMPTY);
+
+        WorkspacePatcher.Report report = new WorkspacePatcher(root).dryRun(true).run(true);
+
+        assertEquals(Arrays.asList(build), paths(report), "only build is scanned");
+        assertEquals(1, report.getExcluded(), "folders excluded");
+    }
+
+    public void testWorkspaceFileSettingsSection() throws Exception {
+        root = Tests.tempDir().resolve("repo");
+        String original = "{\n  \"folders\": [{\"path\": \".\"}],\n  \"settings\": {\n    \"a\": 1\n  }\n}\n";
+        Path workspace = write("project.code-workspace", original);
+
+        WorkspacePatcher.Report report = new WorkspacePatcher(root).run(true);
+
+        assertEquals(SettingsManager.Result.UPDATED, report.getSettings().getTargets().get(0).getResult(), "added");
+        JsoncEditor editor = JsoncEditor.parse(Files.readString(workspace));
+        assertEquals("[{\"path\": \".\"}]", editor.get("folders"), "folders untouched");
+        assertEquals(null, editor.get("editor.fontFamily"), "nothing added at the top level");
+        JsoncEditor settings = JsoncEditor.parse(editor.get("settings"));
+        assertTrue(settings.get("editor.fontFamily") != null, "font set in the settings section");
+        assertEquals("1", settings.get("a"), "other settings kept");
+
+        new WorkspacePatcher(root).run(false);
+
+        assertEquals(original, Files.readString(workspace), "removed again");
+    }
+
+    public void testDryRunWritesNothing() throws Exception {
+        root = Tests.tempDir().resolve("repo");
+        Path settings = write(".vscode/settings.json", EMPTY);
+
+        WorkspacePatcher.Report report = new WorkspacePatcher(root).dryRun(true).run(true);
+
+        assertTrue(report.isDryRun(), "dry run reported");
+        assertEquals(SettingsManager.Result.UPDATED, report.getSettings().getTargets().get(0).getResult(),
+            "would be updated");
+        assertEquals(EMPTY, Files.readString(settings), "file untouched");
+    }
+
+    public void testSymlinkedSettingsAreRefused() throws Exception {
+        if (!Tests.isPosix()) return;
+        root = Tests.tempDir().resolve("repo");
+        Path outside = Tests.tempDir().resolve("outside.json");
+        Files.write(outside, EMPTY.getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(root.resolve(".vscode"));
+        Path link = Files.createSymbolicLink(root.resolve(".vscode/settings.json"), outside);
+        Path workspaceLink = Files.createSymbolicLink(root.resolve("evil.code-workspace"), outside);
+
+        for (boolean dryRun : new boolean[] {true, false}) {
+            WorkspacePatcher.Report report = new WorkspacePatcher(root).dryRun(dryRun).run(true);
+
+            assertEquals(Arrays.asList(link, workspaceLink), paths(report), "links found");
+            for (SettingsManager.TargetResult target : report.getSettings().getTargets()) {
+                assertEquals(SettingsManager.Result.FAILED, target.getResult(), target.getPath() + " refused");
+                assertTrue(target.getError().getMessage().contains("symbolic link"),
+                    "reason: " + target.getError().getMessage());
+            }
+        }
+        assertEquals(EMPTY, Files.readString(outside), "link target untouched");
+    }
+}